@@ -2,8 +2,10 @@ package ru.practicum.ewm.main;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = {"ru.practicum.ewm.stats.client",
+        "ru.practicum.ewm.main.config",
         "ru.practicum.ewm.main.controllers",
         "ru.practicum.ewm.main.dto",
         "ru.practicum.ewm.main.enums",
@@ -11,10 +13,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
         "ru.practicum.ewm.main.exceptions",
         "ru.practicum.ewm.main.mapper",
         "ru.practicum.ewm.main.model",
+        "ru.practicum.ewm.main.outbox",
         "ru.practicum.ewm.main.repository",
+        "ru.practicum.ewm.main.search",
         "ru.practicum.ewm.main.services",
         "ru.practicum.ewm.stats.dto"
 })
+@EnableScheduling
 public class EwmMainServer {
     public static void main(String[] args) {
         SpringApplication.run(EwmMainServer.class, args);
@@ -0,0 +1,76 @@
+package ru.practicum.ewm.main.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.client.StatClient;
+import ru.practicum.ewm.stats.client.exception.NotAvailableStatServerException;
+import ru.practicum.ewm.stats.dto.EndpointHitNewRequest;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отправляет просмотры в stats-server в фоне, отдельно от {@link LookupExecutor}: если stats-server отвечает
+ * медленно, отправка просмотров не занимает потоки, результат которых ждёт ответ на запрос.
+ * <p>
+ * Просмотры отправляют не больше {@code ewm.hit-executor.threads} потоков, в очереди ждёт не больше
+ * {@code ewm.hit-executor.queue-capacity} задач. Если очередь заполнена, просмотры сохраняются в буфер
+ * недоставленных просмотров StatClient в вызывающем потоке и отправляются позже.
+ */
+@Component
+@Slf4j
+public class HitExecutor implements AutoCloseable {
+    private final StatClient client;
+    private final ThreadPoolExecutor delegate;
+
+    public HitExecutor(StatClient client,
+                       @Value("${ewm.hit-executor.threads:8}") int threads,
+                       @Value("${ewm.hit-executor.queue-capacity:10000}") int queueCapacity,
+                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.client = client;
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("hit-", 0).factory()
+                : Thread.ofPlatform().name("hit-", 0).factory();
+        this.delegate = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+    }
+
+    /**
+     * Ставит просмотры в очередь на отправку, не дожидаясь её.
+     */
+    public void send(List<EndpointHitNewRequest> hits) {
+        try {
+            delegate.execute(() -> hits.forEach(this::sendHit));
+        } catch (RejectedExecutionException e) {
+            log.warn("Очередь отправки просмотров заполнена, просмотры сохраняются в буфер: {}.", hits.size());
+            hits.forEach(this::spillHit);
+        }
+    }
+
+    private void sendHit(EndpointHitNewRequest hit) {
+        try {
+            client.createHit(hit);
+        } catch (NotAvailableStatServerException e) {
+            // недоступность stats-server не должна ломать публичные запросы
+            log.warn("Просмотр не сохранен: {}", e.getMessage());
+        }
+    }
+
+    private void spillHit(EndpointHitNewRequest hit) {
+        try {
+            client.spillHit(hit);
+        } catch (NotAvailableStatServerException e) {
+            log.warn("Просмотр не сохранен: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.shutdown();
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.ewm.main.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Исполнитель для параллельных запросов к stats-server при чтении событий, результат которых ждёт ответ.
+ * Просмотры отправляются отдельно, через {@link HitExecutor}.
+ * Число одновременно выполняемых задач ограничено {@code ewm.lookup-executor.max-concurrency}.
+ * Для виртуальных потоков ограничение берётся внутри задачи, а не при отправке: вызывающий поток
+ * не блокируется, и задача может без взаимной блокировки ставить в исполнитель следующую.
+ */
+@Component
+public class LookupExecutor implements Executor, AutoCloseable {
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+
+    public LookupExecutor(@Value("${ewm.lookup-executor.max-concurrency:64}") int maxConcurrency,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lookup-", 0).factory());
+            this.permits = new Semaphore(maxConcurrency);
+        } else {
+            this.delegate = Executors.newFixedThreadPool(maxConcurrency, Thread.ofPlatform().name("lookup-", 0).factory());
+            this.permits = null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (permits == null) {
+            delegate.execute(task);
+            return;
+        }
+        delegate.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        delegate.shutdown();
+    }
+}
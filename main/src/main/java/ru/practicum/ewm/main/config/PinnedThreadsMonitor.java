@@ -0,0 +1,70 @@
+package ru.practicum.ewm.main.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Сообщает о закреплении виртуальных потоков за платформенными (блокировка внутри synchronized
+ * или native-вызова). Использует событие JFR {@code jdk.VirtualThreadPinned}, поэтому не требует
+ * флага {@code -Djdk.tracePinnedThreads} и работает в продакшене.
+ */
+@Component
+@ConditionalOnProperty(name = "ewm.diagnostics.pinned-threads.enabled", havingValue = "true")
+@Slf4j
+public class PinnedThreadsMonitor {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int STACK_DEPTH = 8;
+
+    private final Duration threshold;
+    private final Counter pinnedCounter;
+    private RecordingStream stream;
+
+    public PinnedThreadsMonitor(@Value("${ewm.diagnostics.pinned-threads.threshold:20ms}") Duration threshold,
+                                MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        this.pinnedCounter = Counter.builder("ewm.virtual-threads.pinned")
+                .description("Количество закреплений виртуальных потоков дольше порога")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Мониторинг закрепления виртуальных потоков включен, порог {} мс.", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null)
+            stream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        String stack = event.getStackTrace() == null ? "стек недоступен" : event.getStackTrace().getFrames()
+                .stream()
+                .limit(STACK_DEPTH)
+                .map(PinnedThreadsMonitor::formatFrame)
+                .collect(Collectors.joining("\n\tat "));
+        log.warn("Виртуальный поток закреплен за платформенным на {} мс:\n\tat {}", event.getDuration().toMillis(), stack);
+    }
+
+    private static String formatFrame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,121 @@
+package ru.practicum.ewm.main.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул реплик БД для read-only транзакций, см. {@link ReplicaRoutingConfig}.
+ * <p>
+ * Соединения выдаются репликами по очереди. Отставание каждой реплики периодически проверяется запросом
+ * {@code ewm.db.replicas.lag-query}, который возвращает отставание в секундах; реплика, отставшая больше
+ * {@code ewm.db.replicas.max-lag} или не ответившая, исключается до следующей успешной проверки.
+ * Если доступных реплик нет, соединение выдаёт основная БД.
+ */
+@Slf4j
+public class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+    private final List<Replica> replicas;
+    private final DataSource primary;
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaDataSource(List<HikariDataSource> replicas, DataSource primary, Duration maxLag, String lagQuery) {
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.primary = primary;
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+        checkLag();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection connect(ConnectionSource source) throws SQLException {
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (!replica.available)
+                continue;
+            try {
+                return source.get(replica.dataSource);
+            } catch (SQLFeatureNotSupportedException e) {
+                // способ получения соединения не поддерживает пул, а не реплика: исключать её не нужно
+                throw e;
+            } catch (SQLException e) {
+                replica.setAvailable(false, e.getMessage());
+            }
+        }
+        return source.get(primary);
+    }
+
+    /**
+     * Проверяет отставание реплик и включает или исключает их из выдачи соединений.
+     */
+    @Scheduled(fixedDelayString = "${ewm.db.replicas.check-delay:PT5S}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout((int) Math.max(1, maxLag.toSeconds()));
+                try (ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                    resultSet.next();
+                    double lag = resultSet.getDouble(1);
+                    replica.setAvailable(lag * 1000 <= maxLag.toMillis(), "отставание " + lag + " с");
+                }
+            } catch (SQLException e) {
+                replica.setAvailable(false, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+
+    private static class Replica {
+        private final HikariDataSource dataSource;
+        private volatile boolean available;
+        // первая проверка пишет в лог результат, даже если реплика недоступна
+        private volatile boolean checked;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        void setAvailable(boolean available, String reason) {
+            if (this.available == available && checked)
+                return;
+            this.available = available;
+            checked = true;
+            if (available)
+                log.info("Реплика {} доступна для чтения.", dataSource.getPoolName());
+            else
+                log.warn("Реплика {} исключена из чтения: {}.", dataSource.getPoolName(), reason);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.ewm.main.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Направляет read-only транзакции ({@code @Transactional(readOnly = true)}, чтение через репозитории Spring Data
+ * вне транзакции сервиса) на реплики БД, остальные - на основную БД.
+ * <p>
+ * Основная БД настраивается как обычно через {@code spring.datasource}, реплики перечисляются в
+ * {@code ewm.db.replicas.urls} и используют те же учётные данные и настройки пула. Приложение получает
+ * {@link LazyConnectionDataSourceProxy}: физическое соединение берётся при первом запросе, когда признак
+ * read-only транзакции уже установлен, и для read-only транзакции берётся из {@link ReplicaDataSource}.
+ * Сервисы при этом не меняются. Соединение выбирается один раз на транзакцию, поэтому запись внутри
+ * read-only транзакции не попадёт на реплику, а сама транзакция не переключится между БД.
+ * <p>
+ * Включается настройкой {@code ewm.db.replicas.enabled}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "ewm.db.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource,
+                                               @Value("${ewm.db.replicas.urls}") List<String> urls,
+                                               @Value("${ewm.db.replicas.max-lag:PT5S}") Duration maxLag,
+                                               @Value("${ewm.db.replicas.lag-query}") String lagQuery) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            // пул реплики создаётся при первом запросе соединения, недоступная реплика не мешает запуску
+            HikariDataSource replica = new HikariDataSource();
+            primaryDataSource.copyStateTo(replica);
+            replica.setJdbcUrl(url);
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaDataSource(replicas, primaryDataSource, maxLag, lagQuery);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,163 @@
+package ru.practicum.ewm.main.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Применяет версионные миграции схемы БД при запуске приложения, до создания EntityManagerFactory
+ * (см. {@link SchemaMigratorDetector}); Hibernate только проверяет схему.
+ * <p>
+ * Общие скрипты лежат в {@code db/migration}, скрипты для конкретной БД - в {@code db/migration/h2} и
+ * {@code db/migration/postgresql}. Скрипт называется {@code V<версия>__<описание>.sql}, версии сквозные для всех
+ * каталогов. Применённые версии и контрольные суммы хранятся в таблице {@code schema_migrations}: каждый скрипт
+ * выполняется один раз в своей транзакции вместе с записью о нём, а скрипт, изменённый после применения,
+ * останавливает запуск. Если два экземпляра применяют одну версию одновременно, второй не сможет записать её
+ * в schema_migrations и завершится с ошибкой.
+ * <p>
+ * Включается настройкой {@code ewm.db.migrations.enabled}.
+ */
+@Component
+@ConditionalOnProperty(name = "ewm.db.migrations.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class SchemaMigrator implements InitializingBean {
+    private static final String LOCATION = "classpath*:db/migration/";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private final DataSource dataSource;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        migrate();
+    }
+
+    public void migrate() {
+        try (Connection connection = dataSource.getConnection()) {
+            List<Migration> migrations = findMigrations(vendor(connection));
+            createHistoryTable(connection);
+            Map<Integer, Long> applied = findApplied(connection);
+            int count = 0;
+            for (Migration migration : migrations) {
+                Long checksum = applied.get(migration.version());
+                if (checksum == null) {
+                    apply(connection, migration);
+                    count++;
+                } else if (checksum != migration.checksum()) {
+                    throw new IllegalStateException("Миграция " + migration.fileName() + " изменена после применения.");
+                }
+            }
+            log.info("Применено миграций схемы БД: {}, всего версий: {}.", count, migrations.size());
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Не удалось применить миграции схемы БД: " + e.getMessage(), e);
+        }
+    }
+
+    private List<Migration> findMigrations(String vendor) throws IOException {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        List<Migration> migrations = new ArrayList<>();
+        for (String pattern : List.of(LOCATION + "*.sql", LOCATION + vendor + "/*.sql")) {
+            for (Resource resource : resolver.getResources(pattern)) {
+                Matcher matcher = FILE_NAME.matcher(resource.getFilename());
+                if (!matcher.matches())
+                    throw new IllegalStateException("Некорректное имя миграции: " + resource.getFilename());
+                byte[] content = resource.getContentAsByteArray();
+                CRC32 checksum = new CRC32();
+                checksum.update(content);
+                migrations.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '),
+                        resource, checksum.getValue()));
+            }
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version() == migrations.get(i - 1).version())
+                throw new IllegalStateException("Несколько миграций с версией " + migrations.get(i).version() + ".");
+        }
+        return migrations;
+    }
+
+    private void createHistoryTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_migrations (
+                        version INT PRIMARY KEY,
+                        description VARCHAR(200) NOT NULL,
+                        checksum BIGINT NOT NULL,
+                        applied_on TIMESTAMP NOT NULL
+                    )""");
+        }
+    }
+
+    private Map<Integer, Long> findApplied(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (resultSet.next())
+                applied.put(resultSet.getInt(1), resultSet.getLong(2));
+        }
+        return applied;
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement history = connection.prepareStatement(
+                "INSERT INTO schema_migrations (version, description, checksum, applied_on) VALUES (?, ?, ?, ?)")) {
+            ScriptUtils.executeSqlScript(connection, new EncodedResource(migration.resource(), StandardCharsets.UTF_8));
+            history.setInt(1, migration.version());
+            history.setString(2, migration.description());
+            history.setLong(3, migration.checksum());
+            history.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            history.executeUpdate();
+            connection.commit();
+            log.info("Применена миграция {}.", migration.fileName());
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static String vendor(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        return switch (product) {
+            case "H2" -> "h2";
+            case "PostgreSQL" -> "postgresql";
+            default -> throw new IllegalStateException("Миграции для БД " + product + " не поддерживаются.");
+        };
+    }
+
+    private record Migration(int version, String description, Resource resource, long checksum) {
+        String fileName() {
+            return resource.getFilename();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.ewm.main.config;
+
+import org.springframework.boot.sql.init.dependency.AbstractBeansOfTypeDatabaseInitializerDetector;
+
+import java.util.Set;
+
+/**
+ * Сообщает Spring Boot, что {@link SchemaMigrator} инициализирует БД, поэтому EntityManagerFactory и другие
+ * компоненты, работающие с БД, создаются после применения миграций. Зарегистрирован в META-INF/spring.factories.
+ */
+public class SchemaMigratorDetector extends AbstractBeansOfTypeDatabaseInitializerDetector {
+    @Override
+    protected Set<Class<?>> getDatabaseInitializerBeanTypes() {
+        return Set.of(SchemaMigrator.class);
+    }
+}
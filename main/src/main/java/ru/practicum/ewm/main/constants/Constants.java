@@ -1,7 +1,12 @@
 package ru.practicum.ewm.main.constants;
 
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 public class Constants {
     public static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // просмотры сохраняются только для опубликованных событий, поэтому раньше этой даты их нет
+    public static final LocalDateTime VIEWS_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+    // заголовок ответа с курсором следующей страницы списка
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 }
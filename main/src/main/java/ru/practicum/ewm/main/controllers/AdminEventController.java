@@ -1,5 +1,6 @@
 package ru.practicum.ewm.main.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -33,9 +34,12 @@ public class AdminEventController {
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
             @RequestParam(defaultValue = "0") @Min(0) int from,
-            @RequestParam(defaultValue = "10") @Min(1) int size) {
+            @RequestParam(defaultValue = "10") @Min(1) int size,
+            @RequestParam(required = false) String cursor,
+            HttpServletResponse response) {
         log.info("Получен запрос GET/admin/events.");
-        return eventService.findEventsByAdmin(users, states, categories, rangeStart, rangeEnd, from, size);
+        return eventService.findEventsByAdmin(users, states, categories, rangeStart, rangeEnd, from, size, cursor)
+                .writeNextCursor(response);
     }
 
     @PatchMapping("/{eventId}")
@@ -1,5 +1,6 @@
 package ru.practicum.ewm.main.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
@@ -25,9 +26,11 @@ public class AdminUserController {
     @GetMapping
     public Collection<UserDto> findUsers(@RequestParam(required = false) List<Long> ids,
                                          @RequestParam(defaultValue = "0") @Min(0) int from,
-                                         @RequestParam(defaultValue = "10") @Min(1) int size) {
+                                         @RequestParam(defaultValue = "10") @Min(1) int size,
+                                         @RequestParam(required = false) String cursor,
+                                         HttpServletResponse response) {
         log.info("Получен запрос GET/admin/users?ids={}&from={}&size={}", ids, from, size);
-        return service.findUsers(ids, from, size);
+        return service.findUsers(ids, from, size, cursor).writeNextCursor(response);
     }
 
     @ResponseStatus(HttpStatus.CREATED)
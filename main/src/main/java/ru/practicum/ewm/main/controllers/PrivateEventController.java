@@ -1,5 +1,6 @@
 package ru.practicum.ewm.main.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -32,9 +33,11 @@ public class PrivateEventController {
     @GetMapping
     public Collection<EventShortDto> findEventsByUserId(@PathVariable @Min(1) long userId,
                                                         @RequestParam(defaultValue = "0") @Min(0) int from,
-                                                        @RequestParam(defaultValue = "10") @Min(1) int size) {
+                                                        @RequestParam(defaultValue = "10") @Min(1) int size,
+                                                        @RequestParam(required = false) String cursor,
+                                                        HttpServletResponse response) {
         log.info("Получен запрос GET/users/{}/events.", userId);
-        return eventService.findEventsByUserId(userId, from, size);
+        return eventService.findEventsByUserId(userId, from, size, cursor).writeNextCursor(response);
     }
 
     @ResponseStatus(HttpStatus.CREATED)
@@ -1,10 +1,12 @@
 package ru.practicum.ewm.main.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.ewm.main.dto.responses.CategoryDto;
 import ru.practicum.ewm.main.services.CategoryService;
 
@@ -19,15 +21,22 @@ public class PublicCategoryController {
     private final CategoryService service;
 
     @GetMapping("/{catId}")
-    public CategoryDto findById(@PathVariable @Min(1) int catId) {
+    public CategoryDto findById(@PathVariable @Min(1) int catId, WebRequest webRequest) {
         log.info("Получен запрос GET/categories/{}.", catId);
+        if (service.getCategoryVersion(catId).isNotModified(webRequest))
+            return null;
         return service.findById(catId);
     }
 
     @GetMapping
     public Collection<CategoryDto> findCategories(@RequestParam(defaultValue = "0") @Min(0) int from,
-                                                  @RequestParam(defaultValue = "10") @Min(1) int size) {
+                                                  @RequestParam(defaultValue = "10") @Min(1) int size,
+                                                  @RequestParam(required = false) String cursor,
+                                                  HttpServletResponse response,
+                                                  WebRequest webRequest) {
         log.info("Получен запрос GET/categories?from={}&size={}", from, size);
-        return service.findCategories(from, size);
+        if (service.getCategoriesVersion().isNotModified(webRequest))
+            return null;
+        return service.findCategories(from, size, cursor).writeNextCursor(response);
     }
 }
@@ -1,10 +1,12 @@
 package ru.practicum.ewm.main.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.ewm.main.dto.responses.CommentDto;
 import ru.practicum.ewm.main.enums.CommentSort;
 import ru.practicum.ewm.main.services.CommentService;
@@ -24,14 +26,22 @@ public class PublicCommentController {
             @PathVariable @Min(1) long eventId,
             @RequestParam(defaultValue = "0") @Min(0) int from,
             @RequestParam(defaultValue = "10") @Min(1) int size,
-            @RequestParam(defaultValue = "COMMENT_DATE") CommentSort sort) {
+            @RequestParam(defaultValue = "COMMENT_DATE") CommentSort sort,
+            @RequestParam(required = false) String cursor,
+            HttpServletResponse response,
+            WebRequest webRequest) {
         log.info("Получен запрос GET/events/{}/comments", eventId);
-        return commentService.findCommentsPublic(eventId, from, size, sort);
+        if (commentService.getPublicCommentsVersion(eventId).isNotModified(webRequest))
+            return null;
+        return commentService.findCommentsPublic(eventId, from, size, sort, cursor).writeNextCursor(response);
     }
 
     @GetMapping("/{comId}")
-    public CommentDto findCommentById(@PathVariable @Min(1) long eventId, @PathVariable @Min(1) long comId) {
+    public CommentDto findCommentById(@PathVariable @Min(1) long eventId, @PathVariable @Min(1) long comId,
+                                      WebRequest webRequest) {
         log.info("Получен запрос GET/events/{}/comments/{}.", eventId, comId);
+        if (commentService.getPublicCommentVersion(eventId, comId).isNotModified(webRequest))
+            return null;
         return commentService.findCommentByIdPublic(eventId, comId);
     }
 }
@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.ewm.main.dto.responses.CompilationDto;
 import ru.practicum.ewm.main.services.CompilationService;
 
@@ -21,14 +22,19 @@ public class PublicCompilationController {
     @GetMapping
     public Collection<CompilationDto> findCompilations(@RequestParam(required = false) Boolean pinned,
                                                        @RequestParam(defaultValue = "0") @Min(0) int from,
-                                                       @RequestParam(defaultValue = "10") @Min(1) int size) {
+                                                       @RequestParam(defaultValue = "10") @Min(1) int size,
+                                                       WebRequest webRequest) {
         log.info("Получен запрос GET/compilations");
+        if (compilationService.getPublicCompilationsVersion().isNotModified(webRequest))
+            return null;
         return compilationService.findPublicCompilations(pinned, from, size);
     }
 
     @GetMapping("/{compId}")
-    public CompilationDto findCompilationById(@PathVariable @Min(1) long compId) {
+    public CompilationDto findCompilationById(@PathVariable @Min(1) long compId, WebRequest webRequest) {
         log.info("Получен запрос GET/compilations/{}.", compId);
+        if (compilationService.getPublicCompilationVersion(compId).isNotModified(webRequest))
+            return null;
         return compilationService.findPublicCompilationById(compId);
     }
 }
@@ -1,16 +1,22 @@
 package ru.practicum.ewm.main.controllers;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.ewm.main.dto.responses.EventFullDto;
 import ru.practicum.ewm.main.dto.responses.EventShortDto;
 import ru.practicum.ewm.main.enums.EventsSort;
 import ru.practicum.ewm.main.services.EventService;
+import ru.practicum.ewm.main.services.GeoCircle;
 
 import java.time.LocalDateTime;
 import java.util.Collection;
@@ -32,18 +38,29 @@ public class PublicEventController {
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
             @RequestParam(required = false) Boolean onlyAvailable,
+            @RequestParam(required = false) @DecimalMin("-90") @DecimalMax("90") Double lat,
+            @RequestParam(required = false) @DecimalMin("-180") @DecimalMax("180") Double lon,
+            @RequestParam(required = false) @Positive Double radius,
             @RequestParam(required = false) EventsSort sort,
             @RequestParam(defaultValue = "0") @Min(0) int from,
             @RequestParam(defaultValue = "10") @Min(1) int size,
-            HttpServletRequest request) {
+            @RequestParam(required = false) String cursor,
+            HttpServletRequest request,
+            HttpServletResponse response,
+            WebRequest webRequest) {
         log.info("Получен запрос GET/events.");
-        return eventService.getPublicEvents(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from,
-                size, request);
+        if (eventService.getPublicEventsVersion().isNotModified(webRequest))
+            return null;
+        return eventService.getPublicEvents(text, categories, paid, rangeStart, rangeEnd, onlyAvailable,
+                GeoCircle.of(lat, lon, radius), sort, from, size, cursor, request).writeNextCursor(response);
     }
 
     @GetMapping("/{id}")
-    public EventFullDto findEventById(@PathVariable @Min(1) long id, HttpServletRequest request) {
+    public EventFullDto findEventById(@PathVariable @Min(1) long id, HttpServletRequest request, WebRequest webRequest) {
         log.info("Получен запрос GET/events/{}.", id);
+        // ответ 304 не запрашивает просмотры и не сохраняет просмотр в stats-server
+        if (eventService.getPublicEventVersion(id).isNotModified(webRequest))
+            return null;
         return eventService.getPublicEventById(id, request);
     }
 }
@@ -4,10 +4,9 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import ru.practicum.ewm.main.enums.CommentState;
-import ru.practicum.ewm.main.model.User;
 
 import java.time.LocalDateTime;
-import java.util.Set;
+import java.util.List;
 
 @Data
 @AllArgsConstructor
@@ -20,6 +19,9 @@ public class CommentDto {
     private LocalDateTime created;
     private CommentState state;
     private long useful;
-    private Set<User> likes;
-    private Set<User> dislikes;
+    // не больше CommentService.REACTIONS_PREVIEW_SIZE пользователей, полное число оценок - в likesCount и dislikesCount
+    private List<UserShortDto> likes;
+    private List<UserShortDto> dislikes;
+    private long likesCount;
+    private long dislikesCount;
 }
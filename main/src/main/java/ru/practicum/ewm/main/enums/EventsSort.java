@@ -1,5 +1,5 @@
 package ru.practicum.ewm.main.enums;
 
 public enum EventsSort {
-    EVENT_DATE, VIEWS
+    EVENT_DATE, VIEWS, RELEVANCE, DISTANCE
 }
@@ -1,7 +1,14 @@
 package ru.practicum.ewm.main.enums;
 
+import java.util.Set;
+
 public enum EventsState {
     PENDING,
     PUBLISHED,
-    CANCELED
+    // опубликованное событие, которое уже прошло, см. EventLifecycle
+    COMPLETED,
+    CANCELED;
+
+    // состояния событий, которые можно просматривать и комментировать
+    public static final Set<EventsState> VISIBLE = Set.of(PUBLISHED, COMPLETED);
 }
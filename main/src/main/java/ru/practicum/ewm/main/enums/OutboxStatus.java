@@ -0,0 +1,13 @@
+package ru.practicum.ewm.main.enums;
+
+/**
+ * Состояние доменного события в outbox.
+ */
+public enum OutboxStatus {
+    // ожидает доставки
+    PENDING,
+    // доставлено на одном экземпляре, хранится ewm.outbox.retention для потребителей на остальных экземплярах
+    DELIVERED,
+    // доставка прекращена после ewm.outbox.max-attempts неудачных попыток, событие хранится для разбора
+    DEAD
+}
@@ -0,0 +1,44 @@
+package ru.practicum.ewm.main.enums;
+
+/**
+ * Данные, версии которых входят в ETag публичных ответов.
+ * <p>
+ * Версия набора хранится в нескольких строках-полосах и читается как их сумма: параллельные транзакции
+ * увеличивают разные полосы и не ждут друг друга. Версии сущностей хранятся по строке на сущность.
+ */
+public enum VersionedResource {
+    /**
+     * Все события: публичный список и события подборок.
+     */
+    EVENTS(true, null),
+    CATEGORIES(true, null),
+    COMPILATIONS(true, null),
+    /**
+     * Событие по id, его изменение меняет и версию всех событий.
+     */
+    EVENT(false, EVENTS),
+    CATEGORY(false, CATEGORIES),
+    /**
+     * Комментарии события, по id события.
+     */
+    EVENT_COMMENTS(false, null);
+
+    private final boolean set;
+    private final VersionedResource parent;
+
+    VersionedResource(boolean set, VersionedResource parent) {
+        this.set = set;
+        this.parent = parent;
+    }
+
+    public boolean isSet() {
+        return set;
+    }
+
+    /**
+     * Набор, в который входит сущность, или null.
+     */
+    public VersionedResource getParent() {
+        return parent;
+    }
+}
@@ -30,7 +30,10 @@ public interface CommentMapper {
 
     @Mapping(target = "eventId", source = "comment.event.id")
     @Mapping(target = "authorId", source = "comment.author.id")
-    @Mapping(target = "useful", expression = "java(getUseful(comment))")
+    @Mapping(target = "likes", ignore = true)
+    @Mapping(target = "dislikes", ignore = true)
+    @Mapping(target = "likesCount", source = "comment.likes")
+    @Mapping(target = "dislikesCount", source = "comment.dislikes")
     CommentDto toCommentDto(Comment comment);
 
     List<CommentDto> toCommentDtoList(List<Comment> comments);
@@ -38,8 +41,4 @@ public interface CommentMapper {
     default LocalDateTime getNow() {
         return LocalDateTime.now();
     }
-
-    default long getUseful(Comment comment) {
-        return (comment.getLikes().size() - comment.getDislikes().size());
-    }
 }
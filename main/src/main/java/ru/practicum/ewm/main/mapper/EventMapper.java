@@ -8,7 +8,9 @@ import ru.practicum.ewm.main.dto.updateRequests.UpdateEventAdminRequest;
 import ru.practicum.ewm.main.dto.updateRequests.UpdateEventUserRequest;
 import ru.practicum.ewm.main.model.Category;
 import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.EventCard;
 import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.EventShortView;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -32,6 +34,29 @@ public interface EventMapper {
 
     List<EventShortDto> toEventShortDtoList(List<Event> events);
 
+    @Mapping(target = "category.id", source = "categoryId")
+    @Mapping(target = "category.name", source = "categoryName")
+    @Mapping(target = "initiator.id", source = "initiatorId")
+    @Mapping(target = "initiator.name", source = "initiatorName")
+    @Mapping(target = "views", ignore = true)
+    EventShortDto toEventShortDto(EventShortView event);
+
+    @Mapping(target = "category.id", source = "categoryId")
+    @Mapping(target = "category.name", source = "categoryName")
+    @Mapping(target = "initiator.id", source = "initiatorId")
+    @Mapping(target = "initiator.name", source = "initiatorName")
+    EventShortDto toEventShortDto(EventCard card);
+
+    @Mapping(target = "event", ignore = true)
+    @Mapping(target = "categoryId", source = "category.id")
+    @Mapping(target = "categoryName", source = "category.name")
+    @Mapping(target = "initiatorId", source = "initiator.id")
+    @Mapping(target = "initiatorName", source = "initiator.name")
+    @Mapping(target = "lat", source = "location.lat")
+    @Mapping(target = "lon", source = "location.lon")
+    @Mapping(target = "views", ignore = true)
+    EventCard toEventCard(Event event);
+
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "category", source = "category")
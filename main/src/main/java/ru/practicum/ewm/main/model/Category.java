@@ -1,14 +1,16 @@
 package ru.practicum.ewm.main.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "categories")
-@AllArgsConstructor
 @NoArgsConstructor
 @Getter
 @Setter
@@ -19,4 +21,15 @@ public class Category {
 
     @Column(nullable = false, length = 50, unique = true)
     private String name;
+
+    // категория отдаётся в составе событий как есть, поэтому служебное поле не сериализуется
+    @JsonIgnore
+    @UpdateTimestamp
+    @Column(name = "updated_on", nullable = false)
+    private LocalDateTime updatedOn;
+
+    public Category(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
 }
@@ -0,0 +1,29 @@
+package ru.practicum.ewm.main.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ru.practicum.ewm.main.enums.VersionedResource;
+
+/**
+ * Версия сущности или полосы набора данных, см. {@link ru.practicum.ewm.main.services.ChangeVersions}.
+ */
+@Entity
+@Table(name = "change_versions")
+@IdClass(ChangeVersionId.class)
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+public class ChangeVersion {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private VersionedResource resource;
+
+    @Id
+    private long scope;
+
+    @Column(nullable = false)
+    private long version;
+}
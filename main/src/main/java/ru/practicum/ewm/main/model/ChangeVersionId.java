@@ -0,0 +1,46 @@
+package ru.practicum.ewm.main.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import ru.practicum.ewm.main.enums.VersionedResource;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * Составной ключ версии: набор данных и сущность или полоса набора, см. {@link VersionedResource}.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+public class ChangeVersionId implements Serializable, Comparable<ChangeVersionId> {
+    private static final Comparator<ChangeVersionId> ORDER = Comparator.comparing(ChangeVersionId::getResource)
+            .thenComparingLong(ChangeVersionId::getScope);
+
+    private VersionedResource resource;
+    private long scope;
+
+    /**
+     * Версия сущности, например, события по id.
+     */
+    public static ChangeVersionId of(VersionedResource resource, long scope) {
+        return new ChangeVersionId(resource, scope);
+    }
+
+    /**
+     * Версия набора целиком: сумма версий его полос.
+     */
+    public static ChangeVersionId of(VersionedResource set) {
+        return new ChangeVersionId(set, 0);
+    }
+
+    @Override
+    public int compareTo(ChangeVersionId other) {
+        return ORDER.compare(this, other);
+    }
+}
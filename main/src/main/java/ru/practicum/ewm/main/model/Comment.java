@@ -2,11 +2,10 @@ package ru.practicum.ewm.main.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
 import ru.practicum.ewm.main.enums.CommentState;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
 
 @Entity
 @Table(name = "comments")
@@ -40,17 +39,19 @@ public class Comment {
     @Column(nullable = false)
     private CommentState state;
 
-    @ManyToMany(fetch = FetchType.EAGER)
-    @JoinTable(name = "comments_likes",
-            joinColumns = @JoinColumn(name = "comment_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id"))
-    @Builder.Default
-    private Set<User> likes = new HashSet<>();
-
-    @ManyToMany(fetch = FetchType.EAGER)
-    @JoinTable(name = "comments_dislikes",
-            joinColumns = @JoinColumn(name = "comment_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id"))
-    @Builder.Default
-    private Set<User> dislikes = new HashSet<>();
+    // счётчики оценок меняются только запросом CommentRepository.addReactions, чтобы параллельные оценки
+    // не перезаписывали значения друг друга; useful - разница лайков и дизлайков для сортировки
+    @Column(nullable = false, updatable = false)
+    private long likes;
+
+    @Column(nullable = false, updatable = false)
+    private long dislikes;
+
+    @Column(nullable = false, updatable = false)
+    private long useful;
+
+    // CommentRepository.addReactions обновляет его вместе со счётчиками оценок
+    @UpdateTimestamp
+    @Column(name = "updated_on", nullable = false)
+    private LocalDateTime updatedOn;
 }
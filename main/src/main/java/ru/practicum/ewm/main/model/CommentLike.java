@@ -0,0 +1,32 @@
+package ru.practicum.ewm.main.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Лайк пользователя к комментарию. Строки добавляются и удаляются запросами {@link
+ * ru.practicum.ewm.main.repository.CommentRepository}, повторная оценка отклоняется первичным ключом.
+ */
+@Entity
+@Table(name = "comments_likes")
+@IdClass(CommentReactionId.class)
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode(of = {"comment", "user"})
+public class CommentLike {
+    @Id
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "comment_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Comment comment;
+
+    @Id
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+}
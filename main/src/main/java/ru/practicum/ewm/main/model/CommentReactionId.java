@@ -0,0 +1,20 @@
+package ru.practicum.ewm.main.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Составной ключ лайка или дизлайка: комментарий и пользователь.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode
+public class CommentReactionId implements Serializable {
+    private long comment;
+    private long user;
+}
@@ -2,7 +2,9 @@ package ru.practicum.ewm.main.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -31,4 +33,9 @@ public class Compilation {
             inverseJoinColumns = @JoinColumn(name = "event_id"))
     @Builder.Default
     private Set<Event> events = new HashSet<>();
+
+    // изменение только состава событий не обновляет строку подборки, поэтому сервис выставляет его сам
+    @UpdateTimestamp
+    @Column(name = "updated_on", nullable = false)
+    private LocalDateTime updatedOn;
 }
@@ -2,6 +2,7 @@ package ru.practicum.ewm.main.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
 import ru.practicum.ewm.main.enums.EventsState;
 
 import java.time.LocalDateTime;
@@ -58,9 +59,15 @@ public class Event {
 
     @Column(name = "participant_limit", nullable = false)
     private long participantLimit;
-    @Column(name = "confirmed_requests", nullable = false)
+    // меняется только условным запросом EventRepository.addConfirmedRequests, чтобы параллельные подтверждения
+    // не превысили лимит участников и не перезаписали значение друг друга
+    @Column(name = "confirmed_requests", nullable = false, updatable = false)
     @Builder.Default
     private long confirmedRequests = 0;
+    // запросы, меняющие confirmedRequests, обновляют его явно
+    @UpdateTimestamp
+    @Column(name = "updated_on", nullable = false)
+    private LocalDateTime updatedOn;
     @Transient
     private long views;
     @Transient
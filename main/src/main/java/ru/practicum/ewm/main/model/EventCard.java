@@ -0,0 +1,68 @@
+package ru.practicum.ewm.main.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Карточка опубликованного события для публичного списка: поля {@link ru.practicum.ewm.main.dto.responses.EventShortDto}
+ * вместе с названиями категории и инициатора, лимитом участников и просмотрами, так что список читается одним
+ * запросом к одной таблице. Изменения событий вносятся в карточки через {@link ru.practicum.ewm.main.services.EventCards},
+ * сами события по-прежнему хранятся в таблице events.
+ */
+@Entity
+@Table(name = "event_cards")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString(exclude = "event")
+@Builder
+public class EventCard {
+    @Id
+    @Column(name = "event_id")
+    private long id;
+    // нужно только для поиска по тексту, описание события в карточке не хранится
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "event_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Event event;
+
+    @Column(name = "category_id", nullable = false)
+    private int categoryId;
+    @Column(name = "category_name", nullable = false, length = 50)
+    private String categoryName;
+
+    @Column(nullable = false, length = 120)
+    private String title;
+    @Column(nullable = false, length = 2000)
+    private String annotation;
+
+    @Column(name = "event_date", nullable = false)
+    private LocalDateTime eventDate;
+    @Column(name = "created_on", nullable = false)
+    private LocalDateTime createdOn;
+
+    @Column(name = "initiator_id", nullable = false)
+    private long initiatorId;
+    @Column(name = "initiator_name", nullable = false, length = 250)
+    private String initiatorName;
+
+    // координаты места проведения для поиска рядом с точкой
+    @Column(nullable = false)
+    private float lat;
+    @Column(nullable = false)
+    private float lon;
+
+    @Column(nullable = false)
+    private boolean paid;
+    @Column(name = "participant_limit", nullable = false)
+    private long participantLimit;
+    @Column(name = "confirmed_requests", nullable = false)
+    private long confirmedRequests;
+    @Column(nullable = false)
+    private long views;
+}
@@ -0,0 +1,50 @@
+package ru.practicum.ewm.main.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ru.practicum.ewm.main.enums.OutboxStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Доменное событие, сохранённое в одной транзакции с изменением, которое его породило (transactional outbox).
+ * После доставки строка переводится в {@link OutboxStatus#DELIVERED} и удаляется по истечении срока хранения или
+ * переводится в {@link OutboxStatus#DEAD}, если доставка не удалась, см. {@link ru.practicum.ewm.main.outbox.OutboxDispatcher}.
+ */
+@Entity
+@Table(name = "outbox_events")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    // имя класса события, см. ru.practicum.ewm.main.outbox.DomainEvent
+    @Column(nullable = false, length = 50)
+    private String type;
+    @Column(nullable = false, length = 1000)
+    private String payload;
+
+    @Column(name = "created_on", nullable = false)
+    private LocalDateTime createdOn;
+    // неудачные попытки доставки
+    @Column(nullable = false)
+    private int attempts;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private OutboxStatus status = OutboxStatus.PENDING;
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    // экземпляр приложения, который доставляет событие, и срок, до которого событие за ним закреплено
+    @Column(name = "claimed_by", length = 36)
+    private String claimedBy;
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.main.outbox;
+
+/**
+ * Подборка создана, изменена или удалена администратором.
+ */
+public record CompilationChanged(long compilationId) implements DomainEvent {
+}
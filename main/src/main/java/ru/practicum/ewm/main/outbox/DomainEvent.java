@@ -0,0 +1,9 @@
+package ru.practicum.ewm.main.outbox;
+
+/**
+ * Доменное событие, публикуется через {@link DomainEvents}. Каждое событие относится к одному событию афиши
+ * или к одной подборке.
+ */
+public sealed interface DomainEvent
+        permits EventPublished, EventChanged, RequestConfirmed, RequestCanceled, CompilationChanged {
+}
@@ -0,0 +1,50 @@
+package ru.practicum.ewm.main.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.main.model.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Преобразует доменные события в строки outbox и обратно: тип хранится как имя класса события, поля - в JSON.
+ */
+@Component
+@RequiredArgsConstructor
+class DomainEventCodec {
+    @SuppressWarnings("unchecked")
+    private static final Map<String, Class<? extends DomainEvent>> TYPES = Arrays.stream(DomainEvent.class.getPermittedSubclasses())
+            .map(type -> (Class<? extends DomainEvent>) type)
+            .collect(Collectors.toMap(Class::getSimpleName, Function.identity()));
+
+    private final ObjectMapper objectMapper;
+
+    OutboxEvent write(DomainEvent event) {
+        try {
+            return OutboxEvent.builder()
+                    .type(event.getClass().getSimpleName())
+                    .payload(objectMapper.writeValueAsString(event))
+                    .createdOn(LocalDateTime.now())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось записать доменное событие " + event + ".", e);
+        }
+    }
+
+    DomainEvent read(OutboxEvent record) {
+        Class<? extends DomainEvent> type = TYPES.get(record.getType());
+        if (type == null)
+            throw new IllegalStateException("Неизвестный тип доменного события: " + record.getType() + ".");
+        try {
+            return objectMapper.readValue(record.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать доменное событие с id: " + record.getId() + ".", e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.ewm.main.outbox;
+
+/**
+ * Потребитель доменных событий. {@link OutboxDispatcher} передаёт каждому потребителю все события по порядку
+ * записи, в транзакции, которая удаляет событие из outbox; потребитель сам выбирает нужные ему типы.
+ * <p>
+ * Обработка должна быть идемпотентной: после сбоя событие доставляется снова, а события параллельных транзакций
+ * могут прийти не в порядке их коммитов. Поэтому потребители пересчитывают состояние по БД, а не применяют
+ * приращения из события.
+ */
+public interface DomainEventConsumer {
+    void accept(DomainEvent event);
+
+    /**
+     * Потребитель хранит состояние в памяти экземпляра приложения, например, кэш, и должен получать события на
+     * каждом экземпляре. Такой потребитель получает события вне транзакции доставки, после их записи в БД, и
+     * только события, записанные после запуска экземпляра. Остальные потребители обновляют общие данные в БД,
+     * и каждое событие доставляется им на одном экземпляре.
+     */
+    default boolean isBroadcast() {
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.ewm.main.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.main.repository.OutboxEventRepository;
+
+/**
+ * Публикация доменных событий через transactional outbox.
+ * <p>
+ * Сервис публикует событие в транзакции изменения, событие записывается в outbox_events в той же транзакции.
+ * Поэтому потребители получают событие тогда и только тогда, когда изменение зафиксировано, а сам запрос
+ * не ждёт обновления производных данных: их обновляет {@link OutboxDispatcher} после коммита.
+ */
+@Component
+@RequiredArgsConstructor
+public class DomainEvents {
+    private final OutboxEventRepository outboxEventRepository;
+    private final DomainEventCodec codec;
+    private final OutboxDispatcher dispatcher;
+
+    public void publish(DomainEvent event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive())
+            throw new IllegalStateException("Доменное событие публикуется только в транзакции изменения: " + event + ".");
+        outboxEventRepository.save(codec.write(event));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.wakeUp();
+            }
+        });
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.main.outbox;
+
+/**
+ * Событие изменено администратором или инициатором, в том числе отклонено или снято с публикации.
+ */
+public record EventChanged(long eventId) implements DomainEvent {
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.main.outbox;
+
+/**
+ * Администратор опубликовал событие.
+ */
+public record EventPublished(long eventId) implements DomainEvent {
+}
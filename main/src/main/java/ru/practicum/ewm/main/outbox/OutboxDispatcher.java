@@ -0,0 +1,230 @@
+package ru.practicum.ewm.main.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.main.enums.OutboxStatus;
+import ru.practicum.ewm.main.model.OutboxEvent;
+import ru.practicum.ewm.main.repository.OutboxEventRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Доставляет события из outbox всем {@link DomainEventConsumer} по порядку их записи.
+ * <p>
+ * Доставка выполняется в отдельном потоке: после коммита транзакции, записавшей событие, и периодически раз в
+ * {@code ewm.outbox.poll-delay}, чтобы доставить события, записанные до перезапуска или не доставленные из-за
+ * ошибки. Каждое событие доставляется в своей транзакции, которая отмечает его доставленным, поэтому событие
+ * доставляется хотя бы один раз. Если потребитель выбросил исключение, доставка останавливается до следующего
+ * запуска, чтобы не нарушить порядок; после {@code ewm.outbox.max-attempts} неудачных попыток событие
+ * переводится в {@link OutboxStatus#DEAD} вместе с последней ошибкой и больше не доставляется.
+ * <p>
+ * Перед доставкой пачка событий закрепляется за экземпляром приложения на {@code ewm.outbox.claim-timeout},
+ * поэтому несколько экземпляров доставляют разные события. Порядок соблюдается внутри экземпляра; между
+ * экземплярами он не нужен, так как потребители пересчитывают данные по текущему состоянию БД. События
+ * экземпляра, остановившегося посреди доставки, забираются другими после истечения срока закрепления.
+ * <p>
+ * Потребители с состоянием в памяти ({@link DomainEventConsumer#isBroadcast()}) получают события на каждом
+ * экземпляре: экземпляр читает события, записанные за последние {@code ewm.outbox.broadcast-lag}, и передаёт
+ * потребителям те, которые ещё не передавал. Окно нужно потому, что события параллельных транзакций становятся
+ * видны не в порядке id; событие транзакции, которая фиксировалась дольше окна, потребители не получат.
+ * Доставленные события хранятся {@code ewm.outbox.retention} и затем удаляются.
+ */
+@Component
+@Slf4j
+public class OutboxDispatcher implements AutoCloseable {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final DomainEventCodec codec;
+    // потребители, которым событие доставляется на одном экземпляре
+    private final List<DomainEventConsumer> consumers;
+    // потребители, которым событие доставляется на каждом экземпляре
+    private final List<DomainEventConsumer> broadcastConsumers;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration claimTimeout;
+    private final Duration broadcastLag;
+    private final Duration retention;
+    // события, записанные до запуска, не нужны: состояние потребителей в памяти создаётся после запуска
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    // id событий окна broadcast-lag, которые уже переданы потребителям на каждом экземпляре, и время их записи
+    private final Map<Long, LocalDateTime> broadcasted = new HashMap<>();
+    // идентификатор экземпляра приложения в закреплённых событиях
+    private final String owner = UUID.randomUUID().toString();
+    // доставка из потока диспетчера и прямые вызовы dispatch() не должны закреплять события одновременно
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform().name("outbox-dispatcher").factory());
+    // доставка уже поставлена в очередь исполнителя, повторные сигналы не нужны
+    private final AtomicBoolean queued = new AtomicBoolean();
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            DomainEventCodec codec,
+                            List<DomainEventConsumer> consumers,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${ewm.outbox.batch-size:100}") int batchSize,
+                            @Value("${ewm.outbox.max-attempts:5}") int maxAttempts,
+                            @Value("${ewm.outbox.claim-timeout:PT1M}") Duration claimTimeout,
+                            @Value("${ewm.outbox.broadcast-lag:PT1M}") Duration broadcastLag,
+                            @Value("${ewm.outbox.retention:PT10M}") Duration retention) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.codec = codec;
+        this.consumers = consumers.stream().filter(consumer -> !consumer.isBroadcast()).toList();
+        this.broadcastConsumers = consumers.stream().filter(DomainEventConsumer::isBroadcast).toList();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.claimTimeout = claimTimeout;
+        this.broadcastLag = broadcastLag;
+        this.retention = retention;
+    }
+
+    /**
+     * Запускает доставку в потоке диспетчера, если она ещё не запланирована.
+     */
+    @Scheduled(fixedDelayString = "${ewm.outbox.poll-delay:PT5S}")
+    public void wakeUp() {
+        if (!queued.compareAndSet(false, true))
+            return;
+        try {
+            executor.execute(() -> {
+                queued.set(false);
+                try {
+                    dispatch();
+                } catch (RuntimeException e) {
+                    log.warn("Доставка доменных событий прервана: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // приложение останавливается, события будут доставлены после запуска
+            queued.set(false);
+        }
+    }
+
+    /**
+     * Доставляет накопленные события в текущем потоке.
+     *
+     * @return число событий, доставленных на этом экземпляре, и событий, доставка которых прекращена
+     */
+    public int dispatch() {
+        lock.lock();
+        try {
+            int dispatched = dispatchClaimed();
+            broadcast();
+            int deleted = outboxEventRepository.deleteDeliveredBefore(LocalDateTime.now().minus(retention));
+            if (deleted > 0)
+                log.debug("Удалены доставленные доменные события: {}.", deleted);
+            return dispatched;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int dispatchClaimed() {
+        try {
+            int dispatched = 0;
+            while (true) {
+                LocalDateTime now = LocalDateTime.now();
+                List<Long> ids = outboxEventRepository.findClaimableIds(now, Limit.of(batchSize));
+                if (ids.isEmpty())
+                    return dispatched;
+                outboxEventRepository.claim(ids, owner, now, now.plus(claimTimeout));
+                for (OutboxEvent record : outboxEventRepository.findClaimed(owner)) {
+                    if (!deliver(record))
+                        return dispatched;
+                    dispatched++;
+                }
+                if (ids.size() < batchSize)
+                    return dispatched;
+            }
+        } finally {
+            // недоставленные события пачки сразу становятся доступны другим экземплярам
+            outboxEventRepository.releaseClaims(owner);
+        }
+    }
+
+    /**
+     * Передаёт потребителям на каждом экземпляре события окна broadcast-lag, которые им ещё не передавались.
+     * Событие, на котором потребитель выбросил исключение, передаётся снова при следующей доставке.
+     */
+    private void broadcast() {
+        if (broadcastConsumers.isEmpty())
+            return;
+        LocalDateTime lagStart = LocalDateTime.now().minus(broadcastLag);
+        LocalDateTime from = lagStart.isBefore(startedAt) ? startedAt : lagStart;
+        broadcasted.values().removeIf(createdOn -> createdOn.isBefore(from));
+        long afterId = 0;
+        List<OutboxEvent> batch;
+        do {
+            batch = outboxEventRepository.findCreatedSince(from, afterId, Limit.of(batchSize));
+            for (OutboxEvent record : batch) {
+                if (!broadcasted.containsKey(record.getId()) && broadcast(record))
+                    broadcasted.put(record.getId(), record.getCreatedOn());
+            }
+            if (!batch.isEmpty())
+                afterId = batch.getLast().getId();
+        } while (batch.size() == batchSize);
+    }
+
+    private boolean broadcast(OutboxEvent record) {
+        try {
+            DomainEvent event = codec.read(record);
+            broadcastConsumers.forEach(consumer -> consumer.accept(event));
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Доменное событие {} не передано потребителям экземпляра: {}", record, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean deliver(OutboxEvent record) {
+        try {
+            Boolean delivered = transactionTemplate.execute(status -> {
+                DomainEvent event = codec.read(record);
+                consumers.forEach(consumer -> consumer.accept(event));
+                if (outboxEventRepository.markDeliveredClaimed(record.getId(), owner) == 0) {
+                    // срок закрепления истёк, событие доставит экземпляр, который забрал его
+                    status.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            });
+            if (!Boolean.TRUE.equals(delivered))
+                log.warn("Доменное событие {} закреплено за другим экземпляром, доставка остановлена.", record);
+            return Boolean.TRUE.equals(delivered);
+        } catch (RuntimeException e) {
+            String error = String.valueOf(e.getMessage());
+            if (error.length() > MAX_ERROR_LENGTH)
+                error = error.substring(0, MAX_ERROR_LENGTH);
+            if (record.getAttempts() + 1 >= maxAttempts) {
+                log.error("Доставка доменного события {} прекращена после {} попыток: {}", record, maxAttempts, error);
+                outboxEventRepository.markDead(record.getId(), error);
+                return true;
+            }
+            log.warn("Доменное событие {} не доставлено: {}", record, error);
+            outboxEventRepository.incrementAttempts(record.getId(), error);
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.main.outbox;
+
+/**
+ * Участник отменил подтверждённую заявку, место освободилось.
+ */
+public record RequestCanceled(long eventId, long requestId) implements DomainEvent {
+}
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.main.outbox;
+
+import java.util.List;
+
+/**
+ * Заявки на участие подтверждены, сразу при создании или инициатором события.
+ */
+public record RequestConfirmed(long eventId, List<Long> requestIds) implements DomainEvent {
+}
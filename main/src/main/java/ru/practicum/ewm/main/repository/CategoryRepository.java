@@ -1,10 +1,28 @@
 package ru.practicum.ewm.main.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.ewm.main.model.Category;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, Integer> {
     Optional<Category> findByName(String name);
+
+    List<Category> findByIdGreaterThan(int afterId, Pageable pageable);
+
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.ChangeStamp(count(c), max(c.updatedOn))
+            FROM Category c
+            WHERE c.id = :catId
+            """)
+    ChangeStamp findStampById(int catId);
+
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.ChangeStamp(count(c), max(c.updatedOn))
+            FROM Category c
+            """)
+    ChangeStamp findStamp();
 }
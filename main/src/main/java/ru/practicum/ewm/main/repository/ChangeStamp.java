@@ -0,0 +1,37 @@
+package ru.practicum.ewm.main.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сводка по строкам, из которых собран ответ.
+ *
+ * @param count        количество строк или -1, если строки не подсчитывались
+ * @param lastModified время последнего изменения, null для пустого набора
+ */
+public record ChangeStamp(long count, LocalDateTime lastModified) {
+    /**
+     * Сводка по набору без подсчёта строк: изменения, которые не видны по времени, учитывает версия набора.
+     */
+    public ChangeStamp(LocalDateTime lastModified) {
+        this(-1, lastModified);
+    }
+
+    /**
+     * Сводка по строкам вместе со связанными строками, которые входят в тот же ответ.
+     */
+    public ChangeStamp(long count, LocalDateTime lastModified, LocalDateTime relatedModified) {
+        this(count, relatedModified == null || lastModified != null && lastModified.isAfter(relatedModified)
+                ? lastModified : relatedModified);
+    }
+
+    /**
+     * Сводка вместе со связанными строками из другого набора: количество остаётся от этого набора.
+     */
+    public ChangeStamp with(ChangeStamp related) {
+        return new ChangeStamp(count, lastModified, related.lastModified());
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+}
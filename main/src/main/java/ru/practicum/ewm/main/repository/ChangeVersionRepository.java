@@ -0,0 +1,42 @@
+package ru.practicum.ewm.main.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.main.enums.VersionedResource;
+import ru.practicum.ewm.main.model.ChangeVersion;
+import ru.practicum.ewm.main.model.ChangeVersionId;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ChangeVersionRepository extends JpaRepository<ChangeVersion, ChangeVersionId> {
+    /**
+     * Увеличивает версию. Изменения текущей транзакции сохраняются до запроса, чтобы строка версии
+     * блокировалась последней.
+     *
+     * @return 0, если строки версии ещё нет
+     */
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query("""
+            UPDATE ChangeVersion v
+            SET v.version = v.version + 1
+            WHERE v.resource = :resource AND v.scope = :scope
+            """)
+    int increment(VersionedResource resource, long scope);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO change_versions (resource, scope, version)
+            VALUES (:resource, :scope, 1)
+            """, nativeQuery = true)
+    void insert(String resource, long scope);
+
+    /**
+     * Полосы наборов.
+     */
+    List<ChangeVersion> findByResourceIn(Collection<VersionedResource> sets);
+}
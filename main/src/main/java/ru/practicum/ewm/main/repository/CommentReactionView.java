@@ -0,0 +1,12 @@
+package ru.practicum.ewm.main.repository;
+
+/**
+ * Пользователь, оценивший комментарий, для списка оценок в {@link ru.practicum.ewm.main.dto.responses.CommentDto}.
+ */
+public interface CommentReactionView {
+    long getCommentId();
+
+    long getUserId();
+
+    String getUserName();
+}
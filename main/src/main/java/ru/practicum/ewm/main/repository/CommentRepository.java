@@ -1,22 +1,113 @@
 package ru.practicum.ewm.main.repository;
 
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import ru.practicum.ewm.main.enums.CommentState;
 import ru.practicum.ewm.main.model.Comment;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface CommentRepository extends JpaRepository<Comment, Long>, QuerydslPredicateExecutor<Comment> {
     long countByEventIdAndState(long eventId, CommentState state);
 
+    /**
+     * Считает комментарии в заданном статусе для нескольких событий одним запросом; события без комментариев
+     * в результат не попадают.
+     */
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.EventCommentsCount(c.event.id, count(c))
+            FROM Comment c
+            WHERE c.event.id IN :eventIds AND c.state = :state
+            GROUP BY c.event.id
+            """)
+    List<EventCommentsCount> countByEventIdInAndState(Collection<Long> eventIds, CommentState state);
+
     Optional<Comment> findByIdAndAuthorId(long comId, long userId);
 
-    List<Comment> findByAuthorId(long authorId, Pageable pageable);
+    Optional<Comment> findByIdAndEventId(long comId, long eventId);
 
-    List<Comment> findByEventIdAndState(long eventId, CommentState state, Pageable pageable);
+    @Modifying
+    @Query(value = """
+            INSERT INTO comments_likes (comment_id, user_id)
+            VALUES (:comId, :userId)
+            """, nativeQuery = true)
+    void insertLike(long comId, long userId);
 
-    Optional<Comment> findByIdAndEventId(long comId, long eventId);
+    @Modifying
+    @Query(value = """
+            DELETE FROM comments_likes
+            WHERE comment_id = :comId AND user_id = :userId
+            """, nativeQuery = true)
+    int deleteLike(long comId, long userId);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO comments_dislikes (comment_id, user_id)
+            VALUES (:comId, :userId)
+            """, nativeQuery = true)
+    void insertDislike(long comId, long userId);
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM comments_dislikes
+            WHERE comment_id = :comId AND user_id = :userId
+            """, nativeQuery = true)
+    int deleteDislike(long comId, long userId);
+
+    /**
+     * Первые {@code limit} пользователей по id, поставивших лайк, для каждого из комментариев одним запросом.
+     */
+    @Query(value = """
+            SELECT r.comment_id AS commentId, u.id AS userId, u.name AS userName
+            FROM (SELECT l.comment_id, l.user_id,
+                         ROW_NUMBER() OVER (PARTITION BY l.comment_id ORDER BY l.user_id) AS row_num
+                  FROM comments_likes l
+                  WHERE l.comment_id IN :comIds) r
+            JOIN users u ON u.id = r.user_id
+            WHERE r.row_num <= :limit
+            ORDER BY r.comment_id, r.user_id
+            """, nativeQuery = true)
+    List<CommentReactionView> findFirstLikes(Collection<Long> comIds, int limit);
+
+    /**
+     * Первые {@code limit} пользователей по id, поставивших дизлайк, для каждого из комментариев одним запросом.
+     */
+    @Query(value = """
+            SELECT r.comment_id AS commentId, u.id AS userId, u.name AS userName
+            FROM (SELECT d.comment_id, d.user_id,
+                         ROW_NUMBER() OVER (PARTITION BY d.comment_id ORDER BY d.user_id) AS row_num
+                  FROM comments_dislikes d
+                  WHERE d.comment_id IN :comIds) r
+            JOIN users u ON u.id = r.user_id
+            WHERE r.row_num <= :limit
+            ORDER BY r.comment_id, r.user_id
+            """, nativeQuery = true)
+    List<CommentReactionView> findFirstDislikes(Collection<Long> comIds, int limit);
+
+    @Modifying
+    @Query("""
+            UPDATE Comment c
+            SET c.likes = c.likes + :likes, c.dislikes = c.dislikes + :dislikes, c.useful = c.useful + :likes - :dislikes,
+                c.updatedOn = LOCAL DATETIME
+            WHERE c.id = :comId
+            """)
+    void addReactions(long comId, long likes, long dislikes);
+
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.ChangeStamp(count(c), max(c.updatedOn))
+            FROM Comment c
+            WHERE c.event.id = :eventId AND c.state = :state
+            """)
+    ChangeStamp findStampByEventIdAndState(long eventId, CommentState state);
+
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.ChangeStamp(count(c), max(c.updatedOn))
+            FROM Comment c
+            WHERE c.id = :comId AND c.event.id = :eventId AND c.state = :state
+            """)
+    ChangeStamp findStampByIdAndEventIdAndState(long comId, long eventId, CommentState state);
 }
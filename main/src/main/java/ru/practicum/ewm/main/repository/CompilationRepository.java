@@ -1,13 +1,12 @@
 package ru.practicum.ewm.main.repository;
 
-import lombok.NonNull;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import ru.practicum.ewm.main.model.Compilation;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
@@ -18,11 +17,40 @@ public interface CompilationRepository extends JpaRepository<Compilation, Long>
             """)
     boolean existsCompilationByTitle(String title);
 
-    @EntityGraph(attributePaths = {"events", "events.category", "events.initiator"})
-    List<Compilation> findByPinned(boolean pinned, Pageable pageable);
+    /**
+     * Страница id подборок. Подборки вместе с событиями загружаются отдельно через {@link #findByIdIn(Collection)}:
+     * при загрузке коллекции событий в одном запросе со страницей Hibernate выбирает все подборки и делит
+     * их на страницы в памяти.
+     */
+    @Query("""
+            SELECT c.id
+            FROM Compilation c
+            WHERE (:pinned IS NULL OR c.pinned = :pinned)
+            ORDER BY c.id
+            """)
+    List<Long> findPageIds(Boolean pinned, Pageable pageable);
 
-    @Override
-    @NonNull
     @EntityGraph(attributePaths = {"events", "events.category", "events.initiator"})
-    Page<Compilation> findAll(@NonNull Pageable pageable);
+    List<Compilation> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Сводка по подборке и её событиям.
+     */
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.ChangeStamp(count(DISTINCT c), max(c.updatedOn), max(e.updatedOn))
+            FROM Compilation c
+            LEFT JOIN c.events e
+            WHERE c.id = :compId
+            """)
+    ChangeStamp findStampById(long compId);
+
+    /**
+     * Сводка по всем подборкам и их событиям.
+     */
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.ChangeStamp(count(DISTINCT c), max(c.updatedOn), max(e.updatedOn))
+            FROM Compilation c
+            LEFT JOIN c.events e
+            """)
+    ChangeStamp findStamp();
 }
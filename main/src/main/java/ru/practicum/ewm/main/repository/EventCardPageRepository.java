@@ -0,0 +1,18 @@
+package ru.practicum.ewm.main.repository;
+
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.ewm.main.model.EventCard;
+
+import java.util.List;
+
+/**
+ * Чтение страниц карточек событий.
+ */
+public interface EventCardPageRepository {
+    /**
+     * Возвращает страницу карточек без подсчёта общего количества; сортировка может быть задана как {@code Sort},
+     * так и {@code QSort}.
+     */
+    List<EventCard> findPage(Predicate predicate, Pageable pageable);
+}
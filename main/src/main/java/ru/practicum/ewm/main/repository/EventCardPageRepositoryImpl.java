@@ -0,0 +1,33 @@
+package ru.practicum.ewm.main.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.PathBuilderFactory;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.support.Querydsl;
+import ru.practicum.ewm.main.model.EventCard;
+import ru.practicum.ewm.main.model.QEventCard;
+
+import java.util.List;
+
+class EventCardPageRepositoryImpl implements EventCardPageRepository {
+    private final EntityManager entityManager;
+    private final Querydsl querydsl;
+
+    EventCardPageRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.querydsl = new Querydsl(entityManager, new PathBuilderFactory().create(EventCard.class));
+    }
+
+    @Override
+    public List<EventCard> findPage(Predicate predicate, Pageable pageable) {
+        QEventCard card = QEventCard.eventCard;
+        JPQLQuery<EventCard> query = new JPAQuery<>(entityManager)
+                .select(card)
+                .from(card)
+                .where(predicate);
+        return querydsl.applyPagination(pageable, query).fetch();
+    }
+}
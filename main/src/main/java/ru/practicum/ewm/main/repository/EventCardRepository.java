@@ -0,0 +1,87 @@
+package ru.practicum.ewm.main.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.main.model.EventCard;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Карточки опубликованных событий. Счётчики событий меняются пакетными запросами в обход сущностей, поэтому
+ * и в карточки они переносятся запросами, а не через загрузку и сохранение карточек.
+ */
+public interface EventCardRepository extends JpaRepository<EventCard, Long>, EventCardPageRepository,
+        EventCardViewsRepository {
+    /**
+     * Переносит confirmed_requests из событий в их карточки.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE EventCard c
+            SET c.confirmedRequests = (SELECT e.confirmedRequests FROM Event e WHERE e.id = c.id)
+            WHERE c.id IN :eventIds
+            """)
+    int refreshConfirmedRequests(Collection<Long> eventIds);
+
+    /**
+     * Исправляет confirmed_requests всех карточек, которые расходятся с событиями.
+     *
+     * @return число исправленных карточек
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE EventCard c
+            SET c.confirmedRequests = (SELECT e.confirmedRequests FROM Event e WHERE e.id = c.id)
+            WHERE c.confirmedRequests <> (SELECT e.confirmedRequests FROM Event e WHERE e.id = c.id)
+            """)
+    int syncConfirmedRequests();
+
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.EventViews(c.id, c.views)
+            FROM EventCard c
+            WHERE c.id > :afterId
+            ORDER BY c.id
+            """)
+    List<EventViews> findViewsAfterId(long afterId, Limit limit);
+
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.EventViews(c.id, c.views)
+            FROM EventCard c
+            WHERE c.id IN :ids
+            """)
+    List<EventViews> findViewsByIdIn(Collection<Long> ids);
+
+    @Modifying
+    @Query("""
+            UPDATE EventCard c
+            SET c.categoryName = :name
+            WHERE c.categoryId = :catId
+            """)
+    int renameCategory(int catId, String name);
+
+    /**
+     * Создаёт карточки опубликованных событий, у которых их нет, например, опубликованных до появления карточек.
+     *
+     * @return число созданных карточек
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            INSERT INTO EventCard (id, categoryId, categoryName, title, annotation, eventDate, createdOn, initiatorId,
+                                   initiatorName, lat, lon, paid, participantLimit, confirmedRequests, views)
+            SELECT e.id, c.id, c.name, e.title, e.annotation, e.eventDate, e.createdOn, u.id,
+                   u.name, e.location.lat, e.location.lon, e.paid, e.participantLimit, e.confirmedRequests, 0L
+            FROM Event e
+            JOIN e.category c
+            JOIN e.initiator u
+            WHERE e.state = ru.practicum.ewm.main.enums.EventsState.PUBLISHED
+            AND NOT EXISTS (SELECT 1 FROM EventCard ec WHERE ec.id = e.id)
+            """)
+    int createMissing();
+}
@@ -0,0 +1,13 @@
+package ru.practicum.ewm.main.repository;
+
+import java.util.Collection;
+
+/**
+ * Запись просмотров в карточки событий.
+ */
+public interface EventCardViewsRepository {
+    /**
+     * Записывает просмотры в карточки одним пакетом JDBC вместо отдельного UPDATE на каждую карточку.
+     */
+    void updateViews(Collection<EventViews> views);
+}
@@ -0,0 +1,34 @@
+package ru.practicum.ewm.main.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+
+class EventCardViewsRepositoryImpl implements EventCardViewsRepository {
+    private final EntityManager entityManager;
+
+    EventCardViewsRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional
+    public void updateViews(Collection<EventViews> views) {
+        if (views.isEmpty())
+            return;
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE event_cards SET views = ? WHERE event_id = ?")) {
+                for (EventViews event : views) {
+                    statement.setLong(1, event.views());
+                    statement.setLong(2, event.id());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.main.repository;
+
+/**
+ * id события и число его комментариев.
+ */
+public record EventCommentsCount(long eventId, long count) {
+}
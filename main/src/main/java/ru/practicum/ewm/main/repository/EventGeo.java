@@ -0,0 +1,54 @@
+package ru.practicum.ewm.main.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import ru.practicum.ewm.main.model.QEventCard;
+
+/**
+ * Выражения QueryDSL для поиска карточек событий в радиусе от точки.
+ * <p>
+ * Условие состоит из прямоугольника по широте и долготе, описанного вокруг круга, который сужает выборку
+ * по индексу {@code event_cards_lat_lon_idx}, и точной проверки расстояния по формуле гаверсинусов
+ * для оставшихся карточек.
+ */
+public final class EventGeo {
+    private static final double EARTH_RADIUS = 6371.0;
+
+    private EventGeo() {
+    }
+
+    public static BooleanExpression within(QEventCard card, double lat, double lon, double radius) {
+        return boundingBox(card, lat, lon, radius).and(distance(card, lat, lon).loe(radius));
+    }
+
+    /**
+     * Расстояние от события до точки в километрах.
+     */
+    public static NumberExpression<Double> distance(QEventCard card, double lat, double lon) {
+        return Expressions.numberTemplate(Double.class, EventGeoFunctionContributor.DISTANCE + "({0}, {1}, {2}, {3})",
+                card.lat, card.lon, lat, lon);
+    }
+
+    private static BooleanExpression boundingBox(QEventCard card, double lat, double lon, double radius) {
+        double angle = radius / EARTH_RADIUS;
+        double minLat = lat - Math.toDegrees(angle);
+        double maxLat = lat + Math.toDegrees(angle);
+        BooleanExpression latitude = card.lat.between((float) Math.max(minLat, -90), (float) Math.min(maxLat, 90));
+        // круг накрывает полюс: подходит любая долгота
+        if (minLat <= -90 || maxLat >= 90)
+            return latitude;
+        double ratio = Math.sin(angle) / Math.cos(Math.toRadians(lat));
+        if (angle >= Math.PI / 2 || ratio >= 1)
+            return latitude;
+        double delta = Math.toDegrees(Math.asin(ratio));
+        double minLon = lon - delta;
+        double maxLon = lon + delta;
+        // прямоугольник пересекает 180-й меридиан и делится на два
+        if (minLon < -180)
+            return latitude.and(card.lon.goe((float) (minLon + 360)).or(card.lon.loe((float) maxLon)));
+        if (maxLon > 180)
+            return latitude.and(card.lon.goe((float) minLon).or(card.lon.loe((float) (maxLon - 360))));
+        return latitude.and(card.lon.between((float) minLon, (float) maxLon));
+    }
+}
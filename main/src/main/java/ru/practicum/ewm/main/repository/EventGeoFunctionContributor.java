@@ -0,0 +1,26 @@
+package ru.practicum.ewm.main.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Функция {@code geo_distance(lat1, lon1, lat2, lon2)} для HQL/QueryDSL: расстояние между точками в километрах
+ * по формуле гаверсинусов. Формула использует только стандартные математические функции SQL, поэтому одинакова
+ * для PostgreSQL и H2 и не требует расширений PostGIS или earthdistance.
+ */
+public class EventGeoFunctionContributor implements FunctionContributor {
+    static final String DISTANCE = "geo_distance";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Double> doubleType = functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.DOUBLE);
+        // least защищает asin от значений чуть больше 1 из-за погрешности вычислений
+        functionContributions.getFunctionRegistry().registerPattern(DISTANCE,
+                "(12742.0 * asin(least(1.0, sqrt(power(sin(radians(?3 - ?1) / 2), 2)"
+                        + " + cos(radians(?1)) * cos(radians(?3)) * power(sin(radians(?4 - ?2) / 2), 2)))))",
+                doubleType);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.ewm.main.repository;
+
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Чтение событий для списков в виде проекций вместо сущностей.
+ */
+public interface EventProjectionRepository {
+    /**
+     * Возвращает страницу событий без подсчёта общего количества; сортировка может быть задана как {@code Sort},
+     * так и {@code QSort}.
+     */
+    List<EventShortView> findShortViews(Predicate predicate, Pageable pageable);
+}
@@ -0,0 +1,45 @@
+package ru.practicum.ewm.main.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.PathBuilderFactory;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.support.Querydsl;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.QEvent;
+
+import java.util.List;
+
+class EventProjectionRepositoryImpl implements EventProjectionRepository {
+    private final EntityManager entityManager;
+    private final Querydsl querydsl;
+
+    EventProjectionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.querydsl = new Querydsl(entityManager, new PathBuilderFactory().create(Event.class));
+    }
+
+    @Override
+    public List<EventShortView> findShortViews(Predicate predicate, Pageable pageable) {
+        QEvent event = QEvent.event;
+        JPQLQuery<EventShortView> query = new JPAQuery<>(entityManager)
+                .select(Projections.constructor(EventShortView.class,
+                        event.id,
+                        event.category.id,
+                        event.category.name,
+                        event.title,
+                        event.annotation,
+                        event.eventDate,
+                        event.createdOn,
+                        event.initiator.id,
+                        event.initiator.name,
+                        event.paid,
+                        event.confirmedRequests))
+                .from(event)
+                .where(predicate);
+        return querydsl.applyPagination(pageable, query).fetch();
+    }
+}
@@ -1,20 +1,145 @@
 package ru.practicum.ewm.main.repository;
 
-import org.springframework.data.domain.PageRequest;
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.main.enums.EventsState;
 import ru.practicum.ewm.main.model.Event;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
-public interface EventRepository extends JpaRepository<Event, Long>, QuerydslPredicateExecutor<Event> {
-    List<Event> findByInitiatorIdOrderByCreatedOnDesc(long userId, PageRequest pageable);
+/**
+ * Списки событий и поиск события пользователя загружают категорию и инициатора тем же запросом, что и события:
+ * без графа сущностей Hibernate догружает каждую из них отдельным select.
+ */
+public interface EventRepository extends JpaRepository<Event, Long>, QuerydslPredicateExecutor<Event>,
+        EventProjectionRepository {
+    @Override
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    Page<Event> findAll(Predicate predicate, Pageable pageable);
 
+    @Override
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    Iterable<Event> findAll(Predicate predicate);
+
+    @EntityGraph(attributePaths = {"category", "initiator"})
     Optional<Event> findByIdAndInitiatorId(long eventId, long userId);
 
     Optional<Event> findByCategoryId(long catId);
 
+    @EntityGraph(attributePaths = {"category", "initiator"})
     List<Event> findByIdIn(Set<Long> eventsIds);
+
+    /**
+     * Опубликованные события, дата которых раньше before, начиная с самых ранних.
+     */
+    @Query("""
+            SELECT e.id
+            FROM Event e
+            WHERE e.state = ru.practicum.ewm.main.enums.EventsState.PUBLISHED AND e.eventDate < :before
+            ORDER BY e.eventDate
+            """)
+    List<Long> findPublishedIdsByEventDateBefore(LocalDateTime before, Limit limit);
+
+    /**
+     * Переводит прошедшие опубликованные события в состояние COMPLETED.
+     *
+     * @return число завершённых событий
+     */
+    @Modifying
+    @Query("""
+            UPDATE Event e
+            SET e.state = ru.practicum.ewm.main.enums.EventsState.COMPLETED, e.updatedOn = LOCAL DATETIME
+            WHERE e.id IN :eventIds AND e.state = ru.practicum.ewm.main.enums.EventsState.PUBLISHED
+            AND e.eventDate < :before
+            """)
+    int completeEvents(Collection<Long> eventIds, LocalDateTime before);
+
+    /**
+     * Увеличивает число подтверждённых заявок на count, если лимит участников позволяет; отрицательный count
+     * освобождает места.
+     *
+     * @return 1, если число заявок изменено, 0, если мест не хватает
+     */
+    @Modifying
+    @Query("""
+            UPDATE Event e
+            SET e.confirmedRequests = e.confirmedRequests + :count, e.updatedOn = LOCAL DATETIME
+            WHERE e.id = :eventId AND (e.participantLimit = 0 OR e.confirmedRequests + :count <= e.participantLimit)
+            """)
+    int addConfirmedRequests(long eventId, long count);
+
+    /**
+     * Пересчитывает confirmed_requests событий по заявкам в статусе CONFIRMED.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE Event e
+            SET e.confirmedRequests = (SELECT count(r) FROM Request r
+                                       WHERE r.event.id = e.id AND r.status = ru.practicum.ewm.main.enums.RequestStatus.CONFIRMED),
+                e.updatedOn = LOCAL DATETIME
+            WHERE e.id IN :eventIds
+            """)
+    int reconcileConfirmedRequests(Collection<Long> eventIds);
+
+    /**
+     * Исправляет confirmed_requests событий без премодерации, если он расходится с числом заявок в статусе CONFIRMED.
+     *
+     * @return число исправленных событий
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE Event e
+            SET e.confirmedRequests = (SELECT count(r) FROM Request r
+                                       WHERE r.event.id = e.id AND r.status = ru.practicum.ewm.main.enums.RequestStatus.CONFIRMED),
+                e.updatedOn = LOCAL DATETIME
+            WHERE e.requestModeration = false AND e.participantLimit > 0
+            AND e.confirmedRequests <> (SELECT count(r) FROM Request r
+                                        WHERE r.event.id = e.id AND r.status = ru.practicum.ewm.main.enums.RequestStatus.CONFIRMED)
+            """)
+    int reconcileUnmoderatedConfirmedRequests();
+
+    /**
+     * Лимит участников из БД, а не из загруженной ранее сущности.
+     */
+    @Query("""
+            SELECT e.participantLimit
+            FROM Event e
+            WHERE e.id = :eventId
+            """)
+    Optional<Long> findParticipantLimitById(long eventId);
+
+    /**
+     * Сводка по событию и его категории.
+     */
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.ChangeStamp(count(e), max(e.updatedOn), max(c.updatedOn))
+            FROM Event e
+            JOIN e.category c
+            WHERE e.id = :eventId AND e.state IN :states
+            """)
+    ChangeStamp findStampByIdAndStateIn(long eventId, Collection<EventsState> states);
+
+    /**
+     * Сводка по всем событиям без подсчёта строк: максимум читается из индекса по updated_on, а удаления
+     * учитывает версия всех событий.
+     */
+    @Query("""
+            SELECT new ru.practicum.ewm.main.repository.ChangeStamp(max(e.updatedOn))
+            FROM Event e
+            """)
+    ChangeStamp findStamp();
 }
@@ -0,0 +1,46 @@
+package ru.practicum.ewm.main.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import ru.practicum.ewm.main.model.QEvent;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Выражения QueryDSL для полнотекстового поиска событий по аннотации и описанию.
+ * Текст запроса разбивается на слова, событие подходит, если содержит все слова.
+ */
+public final class EventSearch {
+    private static final int MAX_TERMS = 8;
+
+    private EventSearch() {
+    }
+
+    public static List<String> terms(String text) {
+        if (text == null)
+            return List.of();
+        return Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .limit(MAX_TERMS)
+                .toList();
+    }
+
+    public static BooleanExpression matches(QEvent event, List<String> terms) {
+        return terms.stream()
+                .<BooleanExpression>map(term -> Expressions.booleanTemplate(EventSearchFunctionContributor.MATCH + "({0}, {1}, {2})",
+                        event.annotation, event.description, term))
+                .reduce(BooleanExpression::and)
+                .orElseThrow();
+    }
+
+    public static NumberExpression<Double> rank(QEvent event, List<String> terms) {
+        return terms.stream()
+                .<NumberExpression<Double>>map(term -> Expressions.numberTemplate(Double.class, EventSearchFunctionContributor.RANK + "({0}, {1}, {2})",
+                        event.annotation, event.description, term))
+                .reduce(NumberExpression::add)
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.ewm.main.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.query.sqm.function.SqmFunctionRegistry;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Функции полнотекстового поиска событий для HQL/QueryDSL.
+ * <ul>
+ *     <li>{@code fts_match(annotation, description, term)} - событие содержит слово, начинающееся с term;</li>
+ *     <li>{@code fts_rank(annotation, description, term)} - релевантность события для term,
+ *     совпадение в аннотации весит больше, чем в описании.</li>
+ * </ul>
+ * В PostgreSQL поиск идёт по tsvector с русской морфологией и использует GIN-индекс {@code events_fts_idx}
+ * (см. db/migration/postgresql/V2__event_search_index.sql), выражение в fts_match должно совпадать с выражением индекса.
+ * В остальных БД (H2 в тестах) без учёта регистра ищется слово, начинающееся с term, как и в PostgreSQL,
+ * но без морфологии: форма слова должна начинаться с term.
+ * <p>
+ * term должен состоять только из букв и цифр, см. {@link EventSearch#terms(String)}.
+ */
+public class EventSearchFunctionContributor implements FunctionContributor {
+    static final String MATCH = "fts_match";
+    static final String RANK = "fts_rank";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        SqmFunctionRegistry registry = functionContributions.getFunctionRegistry();
+        BasicType<Boolean> booleanType = functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.BOOLEAN);
+        BasicType<Double> doubleType = functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.DOUBLE);
+
+        if (functionContributions.getDialect() instanceof PostgreSQLDialect) {
+            registry.registerPattern(MATCH,
+                    "(to_tsvector('russian', ?1 || ' ' || ?2) @@ to_tsquery('russian', ?3 || ':*'))",
+                    booleanType);
+            registry.registerPattern(RANK,
+                    "ts_rank(setweight(to_tsvector('russian', ?1), 'A') || setweight(to_tsvector('russian', ?2), 'B'), "
+                            + "to_tsquery('russian', ?3 || ':*'))",
+                    doubleType);
+        } else {
+            registry.registerPattern(MATCH,
+                    "(" + wordPrefix("?1") + " or " + wordPrefix("?2") + ")",
+                    booleanType);
+            registry.registerPattern(RANK,
+                    "(case when " + wordPrefix("?1") + " then 1.0 else 0.0 end"
+                            + " + case when " + wordPrefix("?2") + " then 0.4 else 0.0 end)",
+                    doubleType);
+        }
+    }
+
+    /**
+     * Текст содержит слово, начинающееся с term: term стоит в начале текста или после символа, который
+     * не является буквой или цифрой.
+     */
+    private static String wordPrefix(String text) {
+        return "regexp_like(lower(" + text + "), '(^|[^\\p{L}\\p{N}])' || lower(?3))";
+    }
+}
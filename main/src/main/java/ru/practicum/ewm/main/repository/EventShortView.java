@@ -0,0 +1,20 @@
+package ru.practicum.ewm.main.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Поля события, нужные для {@link ru.practicum.ewm.main.dto.responses.EventShortDto} и курсора страницы.
+ * Читаются из БД без описания события и без загрузки сущностей в контекст персистентности.
+ */
+public record EventShortView(long id,
+                             int categoryId,
+                             String categoryName,
+                             String title,
+                             String annotation,
+                             LocalDateTime eventDate,
+                             LocalDateTime createdOn,
+                             long initiatorId,
+                             String initiatorName,
+                             boolean paid,
+                             long confirmedRequests) {
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.main.repository;
+
+/**
+ * id события и сохранённое в БД число просмотров.
+ */
+public record EventViews(long id, long views) {
+}
@@ -0,0 +1,115 @@
+package ru.practicum.ewm.main.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.main.model.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    /**
+     * Идентификаторы самых старых ожидающих событий, которые не закреплены за другим экземпляром приложения.
+     */
+    @Query("""
+            SELECT o.id
+            FROM OutboxEvent o
+            WHERE o.status = ru.practicum.ewm.main.enums.OutboxStatus.PENDING
+            AND (o.claimedUntil IS NULL OR o.claimedUntil < :now)
+            ORDER BY o.id
+            """)
+    List<Long> findClaimableIds(LocalDateTime now, Limit limit);
+
+    /**
+     * Закрепляет события за экземпляром приложения. Условие повторяется в UPDATE, поэтому из событий,
+     * выбранных одновременно несколькими экземплярами, каждое достаётся только одному из них.
+     *
+     * @return число закреплённых событий
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("""
+            UPDATE OutboxEvent o
+            SET o.claimedBy = :owner, o.claimedUntil = :until
+            WHERE o.id IN :ids
+            AND o.status = ru.practicum.ewm.main.enums.OutboxStatus.PENDING
+            AND (o.claimedUntil IS NULL OR o.claimedUntil < :now)
+            """)
+    int claim(Collection<Long> ids, String owner, LocalDateTime now, LocalDateTime until);
+
+    @Query("""
+            SELECT o
+            FROM OutboxEvent o
+            WHERE o.claimedBy = :owner
+            AND o.status = ru.practicum.ewm.main.enums.OutboxStatus.PENDING
+            ORDER BY o.id
+            """)
+    List<OutboxEvent> findClaimed(String owner);
+
+    /**
+     * Отмечает доставленное событие, если оно всё ещё закреплено за экземпляром приложения.
+     *
+     * @return {@code 0}, если срок закрепления истёк и событие забрал другой экземпляр
+     */
+    @Modifying
+    @Query("""
+            UPDATE OutboxEvent o
+            SET o.status = ru.practicum.ewm.main.enums.OutboxStatus.DELIVERED, o.claimedBy = NULL, o.claimedUntil = NULL
+            WHERE o.id = :id
+            AND o.claimedBy = :owner
+            """)
+    int markDeliveredClaimed(long id, String owner);
+
+    /**
+     * События в любом состоянии, записанные не раньше {@code from}, для потребителей на каждом экземпляре.
+     */
+    @Query("""
+            SELECT o
+            FROM OutboxEvent o
+            WHERE o.createdOn >= :from
+            AND o.id > :afterId
+            ORDER BY o.id
+            """)
+    List<OutboxEvent> findCreatedSince(LocalDateTime from, long afterId, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            DELETE FROM OutboxEvent o
+            WHERE o.status = ru.practicum.ewm.main.enums.OutboxStatus.DELIVERED
+            AND o.createdOn < :before
+            """)
+    int deleteDeliveredBefore(LocalDateTime before);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE OutboxEvent o
+            SET o.attempts = o.attempts + 1, o.lastError = :error, o.claimedBy = NULL, o.claimedUntil = NULL
+            WHERE o.id = :id
+            """)
+    void incrementAttempts(long id, String error);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE OutboxEvent o
+            SET o.status = ru.practicum.ewm.main.enums.OutboxStatus.DEAD, o.attempts = o.attempts + 1,
+            o.lastError = :error, o.claimedBy = NULL, o.claimedUntil = NULL
+            WHERE o.id = :id
+            """)
+    void markDead(long id, String error);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE OutboxEvent o
+            SET o.claimedBy = NULL, o.claimedUntil = NULL
+            WHERE o.claimedBy = :owner
+            """)
+    void releaseClaims(String owner);
+}
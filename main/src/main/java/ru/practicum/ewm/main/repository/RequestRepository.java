@@ -1,6 +1,10 @@
 package ru.practicum.ewm.main.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.ewm.main.enums.RequestStatus;
 import ru.practicum.ewm.main.model.Request;
 
 import java.util.List;
@@ -9,9 +13,38 @@ import java.util.Optional;
 public interface RequestRepository extends JpaRepository<Request, Long> {
     List<Request> findAllByEventId(long eventId);
 
+    @EntityGraph(attributePaths = {"event", "requester"})
     List<Request> findAllByIdInAndEventId(List<Long> ids, long eventId);
 
     Optional<Request> findByEventIdAndRequesterId(long eventId, long requesterId);
 
     List<Request> findByRequesterId(long userId);
+
+    long countByEventIdAndStatus(long eventId, RequestStatus status);
+
+    /**
+     * Переводит заявки из статуса PENDING в новый статус одним запросом.
+     *
+     * @return число обновлённых заявок; меньше числа ids, если часть заявок уже не в статусе PENDING
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Request r
+            SET r.status = :status
+            WHERE r.id IN :ids AND r.status = ru.practicum.ewm.main.enums.RequestStatus.PENDING
+            """)
+    int updatePendingStatus(List<Long> ids, RequestStatus status);
+
+    /**
+     * Отклоняет все заявки события в статусе PENDING, если лимит участников исчерпан.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Request r
+            SET r.status = ru.practicum.ewm.main.enums.RequestStatus.REJECTED
+            WHERE r.event.id = :eventId AND r.status = ru.practicum.ewm.main.enums.RequestStatus.PENDING
+            AND EXISTS (SELECT e.id FROM Event e
+                        WHERE e.id = :eventId AND e.participantLimit > 0 AND e.confirmedRequests >= e.participantLimit)
+            """)
+    int rejectPendingIfLimitReached(long eventId);
 }
@@ -1,6 +1,6 @@
 package ru.practicum.ewm.main.repository;
 
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import ru.practicum.ewm.main.model.User;
 
@@ -10,5 +10,7 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
-    List<User> findByIdIn(List<Long> ids, PageRequest pageRequest);
+    List<User> findByIdGreaterThan(long afterId, Pageable pageable);
+
+    List<User> findByIdInAndIdGreaterThan(List<Long> ids, long afterId, Pageable pageable);
 }
@@ -0,0 +1,246 @@
+package ru.practicum.ewm.main.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.QEvent;
+import ru.practicum.ewm.main.repository.EventRepository;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по названию, аннотации и описанию опубликованных событий.
+ * <p>
+ * Строится при старте приложения и обновляется после коммита транзакций, в которых
+ * {@link ru.practicum.ewm.main.services.EventService} создаёт или меняет события.
+ * Каждое слово запроса ищется как префикс основы слова, событие должно содержать все слова запроса.
+ * Результаты ранжируются по BM25, совпадение в названии весит больше, чем в аннотации, а в аннотации - больше,
+ * чем в описании.
+ * <p>
+ * Включается настройкой {@code ewm.search.inverted-index.enabled}, пока индекс не построен,
+ * поиск выполняется средствами БД.
+ * <p>
+ * Индекс хранится в памяти экземпляра приложения и обновляется только в том экземпляре, который изменил событие:
+ * остальные экземпляры не узнают об изменении до перезапуска и возвращают устаревшие результаты. Поэтому индекс
+ * можно включать, только если main-service запущен в одном экземпляре.
+ */
+@Component
+@Slf4j
+public class EventTextIndex {
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float ANNOTATION_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // ограничение на число термов, в которые раскрывается префикс
+    private static final int MAX_EXPANSIONS = 64;
+    private static final int BUILD_BATCH_SIZE = 500;
+
+    private final EventRepository eventRepository;
+    private final boolean enabled;
+    private final int maxHits;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // терм -> (id события -> взвешенная частота терма)
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, IndexedEvent> events = new HashMap<>();
+    private double totalLength;
+    private volatile boolean ready;
+
+    public EventTextIndex(EventRepository eventRepository,
+                          @Value("${ewm.search.inverted-index.enabled:false}") boolean enabled,
+                          @Value("${ewm.search.inverted-index.max-hits:1000}") int maxHits) {
+        this.eventRepository = eventRepository;
+        this.enabled = enabled;
+        this.maxHits = maxHits;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled)
+            return;
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            events.clear();
+            totalLength = 0;
+            PageRequest pageRequest = PageRequest.of(0, BUILD_BATCH_SIZE, Sort.by("id"));
+            Page<Event> page;
+            do {
+                page = eventRepository.findAll(QEvent.event.state.eq(EventsState.PUBLISHED), pageRequest);
+                page.forEach(event -> add(event.getId(), event.getTitle(), event.getAnnotation(), event.getDescription()));
+                pageRequest = pageRequest.next();
+            } while (page.hasNext());
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Построен текстовый индекс событий: {} событий, {} термов за {} мс.", events.size(), postings.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Обновляет событие в индексе после коммита текущей транзакции: опубликованное событие индексируется заново,
+     * остальные удаляются из индекса.
+     */
+    public void update(Event event) {
+        if (!enabled)
+            return;
+        long id = event.getId();
+        boolean published = event.getState() == EventsState.PUBLISHED;
+        String title = event.getTitle();
+        String annotation = event.getAnnotation();
+        String description = event.getDescription();
+        Runnable update = () -> {
+            lock.writeLock().lock();
+            try {
+                remove(id);
+                if (published)
+                    add(id, title, annotation, description);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        afterCommit(update);
+    }
+
+    /**
+     * Удаляет события из индекса после коммита текущей транзакции.
+     */
+    public void remove(Collection<Long> ids) {
+        if (!enabled)
+            return;
+        Runnable remove = () -> {
+            lock.writeLock().lock();
+            try {
+                ids.forEach(this::remove);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        afterCommit(remove);
+    }
+
+    /**
+     * Ищет события, содержащие все слова запроса. Остальные фильтры применяет БД к найденным id, поэтому
+     * результат не обрезается: иначе первые {@code max-hits} по релевантности могли бы целиком отсеяться фильтрами.
+     *
+     * @return id всех найденных событий с оценкой релевантности, по убыванию оценки; пустая карта, если ничего
+     * не найдено; {@code null}, если запрос нужно выполнить средствами БД: в нём только служебные слова или
+     * найдено больше {@code max-hits} событий
+     */
+    public Map<Long, Double> search(String text) {
+        List<String> terms = TextTokenizer.tokens(text).stream().distinct().toList();
+        if (terms.isEmpty())
+            return null;
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            double avgLength = events.isEmpty() ? 1 : totalLength / events.size();
+            for (String term : terms) {
+                Map<Long, Double> termScores = score(term, avgLength);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+                if (scores.isEmpty())
+                    return Map.of();
+            }
+            if (scores.size() > maxHits)
+                return null;
+            Map<Long, Double> result = new LinkedHashMap<>();
+            scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> score(String prefix, double avgLength) {
+        Map<Long, Double> scores = new HashMap<>();
+        SortedMap<String, Map<Long, Float>> expansions = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        int expanded = 0;
+        for (Map<Long, Float> posting : expansions.values()) {
+            if (++expanded > MAX_EXPANSIONS)
+                break;
+            double idf = Math.log(1 + (events.size() - posting.size() + 0.5) / (posting.size() + 0.5));
+            posting.forEach((id, frequency) -> {
+                double norm = K1 * (1 - B + B * events.get(id).length() / avgLength);
+                scores.merge(id, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+            });
+        }
+        return scores;
+    }
+
+    private void add(long id, String title, String annotation, String description) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = addTokens(frequencies, title, TITLE_WEIGHT)
+                + addTokens(frequencies, annotation, ANNOTATION_WEIGHT)
+                + addTokens(frequencies, description, DESCRIPTION_WEIGHT);
+        frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, frequency));
+        events.put(id, new IndexedEvent(frequencies.keySet().toArray(String[]::new), length));
+        totalLength += length;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void remove(long id) {
+        IndexedEvent event = events.remove(id);
+        if (event == null)
+            return;
+        for (String term : event.terms()) {
+            Map<Long, Float> posting = postings.get(term);
+            posting.remove(id);
+            if (posting.isEmpty())
+                postings.remove(term);
+        }
+        totalLength -= event.length();
+    }
+
+    private static float addTokens(Map<String, Float> frequencies, String text, float weight) {
+        List<String> tokens = TextTokenizer.tokens(text);
+        tokens.forEach(token -> frequencies.merge(token, weight, Float::sum));
+        return tokens.size() * weight;
+    }
+
+    private record IndexedEvent(String[] terms, float length) {
+    }
+}
@@ -0,0 +1,144 @@
+package ru.practicum.ewm.main.search;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Стеммер для русского языка по алгоритму Snowball (Портера).
+ * Окончания отсекаются только в области RV - после первой гласной, словообразовательные суффиксы - в области R2.
+ */
+final class RussianStemmer {
+    private static final String VOWELS = "аеиоуыэюя";
+
+    private static final String[] PERFECTIVE_GERUND_1 = byLength("в", "вши", "вшись");
+    private static final String[] PERFECTIVE_GERUND_2 = byLength("ив", "ивши", "ившись", "ыв", "ывши", "ывшись");
+    private static final String[] ADJECTIVE = byLength("ее", "ие", "ые", "ое", "ими", "ыми", "ей", "ий", "ый", "ой",
+            "ем", "им", "ым", "ом", "его", "ого", "ему", "ому", "их", "ых", "ую", "юю", "ая", "яя", "ою", "ею");
+    private static final String[] PARTICIPLE_1 = byLength("ем", "нн", "вш", "ющ", "щ");
+    private static final String[] PARTICIPLE_2 = byLength("ивш", "ывш", "ующ");
+    private static final String[] REFLEXIVE = byLength("ся", "сь");
+    private static final String[] VERB_1 = byLength("ла", "на", "ете", "йте", "ли", "й", "л", "ем", "н", "ло", "но",
+            "ет", "ют", "ны", "ть", "ешь", "нно");
+    private static final String[] VERB_2 = byLength("ила", "ыла", "ена", "ейте", "уйте", "ите", "или", "ыли", "ей",
+            "уй", "ил", "ыл", "им", "ым", "ен", "ило", "ыло", "ено", "ят", "ует", "уют", "ит", "ыт", "ены", "ить",
+            "ыть", "ишь", "ую", "ю");
+    private static final String[] NOUN = byLength("а", "ев", "ов", "ие", "ье", "е", "иями", "ями", "ами", "еи", "ии",
+            "и", "ией", "ей", "ой", "ий", "й", "иям", "ям", "ием", "ем", "ам", "ом", "о", "у", "ах", "иях", "ях", "ы",
+            "ь", "ию", "ью", "ю", "ия", "ья", "я");
+    private static final String[] SUPERLATIVE = byLength("ейш", "ейше");
+    private static final String[] DERIVATIONAL = byLength("ост", "ость");
+
+    private RussianStemmer() {
+    }
+
+    static String stem(String word) {
+        String w = word.replace('ё', 'е');
+        int rv = regionAfterVowel(w, 0);
+        if (rv >= w.length())
+            return w;
+        int r2 = regionAfterConsonantAfterVowel(w, regionAfterConsonantAfterVowel(w, 0));
+
+        StringBuilder s = new StringBuilder(w);
+        // шаг 1: деепричастие, иначе возвратная частица и прилагательное, глагол или существительное
+        if (!removeGroups(s, rv, PERFECTIVE_GERUND_1, PERFECTIVE_GERUND_2)) {
+            remove(s, rv, REFLEXIVE);
+            if (!removeAdjectival(s, rv) && !removeGroups(s, rv, VERB_1, VERB_2))
+                remove(s, rv, NOUN);
+        }
+        // шаг 2
+        if (endsWith(s, rv, "и"))
+            s.setLength(s.length() - 1);
+        // шаг 3
+        remove(s, Math.max(rv, r2), DERIVATIONAL);
+        // шаг 4
+        if (endsWith(s, rv, "нн")) {
+            s.setLength(s.length() - 1);
+        } else if (remove(s, rv, SUPERLATIVE)) {
+            if (endsWith(s, rv, "нн"))
+                s.setLength(s.length() - 1);
+        } else if (endsWith(s, rv, "ь")) {
+            s.setLength(s.length() - 1);
+        }
+        return s.toString();
+    }
+
+    private static boolean removeAdjectival(StringBuilder s, int rv) {
+        if (!remove(s, rv, ADJECTIVE))
+            return false;
+        removeGroups(s, rv, PARTICIPLE_1, PARTICIPLE_2);
+        return true;
+    }
+
+    /**
+     * Удаляет самое длинное окончание из двух групп. Окончания первой группы удаляются,
+     * только если перед ними стоит "а" или "я".
+     */
+    private static boolean removeGroups(StringBuilder s, int rv, String[] afterAOrYa, String[] any) {
+        String first = longest(s, rv, afterAOrYa);
+        String second = longest(s, rv, any);
+        if (second != null && (first == null || second.length() >= first.length())) {
+            s.setLength(s.length() - second.length());
+            return true;
+        }
+        if (first == null)
+            return false;
+        int start = s.length() - first.length();
+        if (start - 1 < rv || (s.charAt(start - 1) != 'а' && s.charAt(start - 1) != 'я'))
+            return false;
+        s.setLength(start);
+        return true;
+    }
+
+    private static boolean remove(StringBuilder s, int region, String[] endings) {
+        String ending = longest(s, region, endings);
+        if (ending == null)
+            return false;
+        s.setLength(s.length() - ending.length());
+        return true;
+    }
+
+    private static String longest(StringBuilder s, int region, String[] endings) {
+        for (String ending : endings) {
+            if (endsWith(s, region, ending))
+                return ending;
+        }
+        return null;
+    }
+
+    private static boolean endsWith(StringBuilder s, int region, String ending) {
+        int start = s.length() - ending.length();
+        if (start < region)
+            return false;
+        for (int i = 0; i < ending.length(); i++) {
+            if (s.charAt(start + i) != ending.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static int regionAfterVowel(String w, int from) {
+        for (int i = from; i < w.length(); i++) {
+            if (isVowel(w.charAt(i)))
+                return i + 1;
+        }
+        return w.length();
+    }
+
+    private static int regionAfterConsonantAfterVowel(String w, int from) {
+        for (int i = from + 1; i < w.length(); i++) {
+            if (!isVowel(w.charAt(i)) && isVowel(w.charAt(i - 1)))
+                return i + 1;
+        }
+        return w.length();
+    }
+
+    private static boolean isVowel(char c) {
+        return VOWELS.indexOf(c) >= 0;
+    }
+
+    private static String[] byLength(String... endings) {
+        return Arrays.stream(endings)
+                .sorted(Comparator.comparingInt(String::length).reversed())
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.ewm.main.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Разбивает текст на термы: слова в нижнем регистре без служебных слов, русские слова приводятся к основе.
+ */
+final class TextTokenizer {
+    private static final Set<String> STOP_WORDS = Set.of(
+            "без", "был", "была", "были", "было", "быть", "вам", "вас", "все", "всё", "где", "для", "его", "ее", "её",
+            "если", "есть", "еще", "ещё", "же", "за", "из", "или", "им", "их", "как", "ко", "ли", "мы", "на", "над",
+            "не", "нет", "но", "об", "он", "она", "они", "оно", "от", "по", "под", "при", "про", "со", "так", "там",
+            "то", "тоже", "только", "ты", "уже", "чем", "что", "это", "эта", "этот", "and", "for", "of", "or", "the");
+
+    private TextTokenizer() {
+    }
+
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null)
+            return tokens;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() < 2 || STOP_WORDS.contains(word))
+                continue;
+            tokens.add(isCyrillic(word) ? RussianStemmer.stem(word) : word);
+        }
+        return tokens;
+    }
+
+    private static boolean isCyrillic(String word) {
+        return Character.UnicodeScript.of(word.codePointAt(0)) == Character.UnicodeScript.CYRILLIC;
+    }
+}
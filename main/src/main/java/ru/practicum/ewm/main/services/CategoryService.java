@@ -2,30 +2,40 @@ package ru.practicum.ewm.main.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.main.dto.responses.CategoryDto;
 import ru.practicum.ewm.main.dto.newRequests.NewCategoryDto;
+import ru.practicum.ewm.main.enums.VersionedResource;
 import ru.practicum.ewm.main.exceptions.ConflictException;
 import ru.practicum.ewm.main.exceptions.DuplicatedDataException;
 import ru.practicum.ewm.main.exceptions.NotFoundException;
 import ru.practicum.ewm.main.mapper.CategoryMapper;
 import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.ChangeVersionId;
 import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.ChangeStamp;
 import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.OffsetPageRequest;
 
-import java.util.Collection;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 @Transactional
 public class CategoryService {
+    private static final String ID_ORDER = "id";
+
     private final CategoryRepository categoryRepository;
     private final EventRepository eventRepository;
     private final CategoryMapper mapper;
+    private final ReferenceLookup referenceLookup;
+    private final ResourceVersions resourceVersions;
+    private final ChangeVersions changeVersions;
+    private final EventCards eventCards;
 
     public CategoryDto create(NewCategoryDto newCategory) {
         if (categoryRepository.findByName(newCategory.getName()).isPresent()) {
@@ -33,6 +43,7 @@ public class CategoryService {
             throw new DuplicatedDataException("Категория с указанным названием уже существует.", "Было нарушено ограничение целостности");
         }
         final Category category = categoryRepository.save(mapper.toCategory(newCategory));
+        changeVersions.touch(VersionedResource.CATEGORY, category.getId());
         log.info("Категория успешно сохранена.");
         return mapper.toCategoryDto(category);
     }
@@ -45,6 +56,8 @@ public class CategoryService {
             throw new ConflictException("Нельзя удалить категорию, если ее значение используется в других таблицах.", "Было нарушено ограничение целостности.");
         }
         categoryRepository.deleteById(catId);
+        changeVersions.touch(VersionedResource.CATEGORY, catId);
+        referenceLookup.evictCategory(catId);
         log.info("Категория с id {} удалена.", catId);
     }
 
@@ -59,22 +72,39 @@ public class CategoryService {
         }
         cat.setName(newCategory.getName());
         final Category updCategory = categoryRepository.save(cat);
+        changeVersions.touch(VersionedResource.CATEGORY, catId);
+        referenceLookup.evictCategory(catId);
+        eventCards.renameCategory(catId, updCategory.getName());
         log.info("Категория с id {} обновлена.", catId);
         return mapper.toCategoryDto(updCategory);
     }
 
+    @Transactional(readOnly = true)
+    public ResourceVersion getCategoryVersion(int catId) {
+        ChangeStamp category = categoryRepository.findStampById(catId);
+        return category.isEmpty() ? ResourceVersion.NONE : resourceVersions.of(category, ChangeVersionId.of(VersionedResource.CATEGORY, catId));
+    }
+
+    @Transactional(readOnly = true)
+    public ResourceVersion getCategoriesVersion() {
+        return resourceVersions.of(categoryRepository.findStamp(), ChangeVersionId.of(VersionedResource.CATEGORIES));
+    }
+
     @Transactional(readOnly = true)
     public CategoryDto findById(int catId) {
-        final Category category = categoryRepository.findById(catId)
-                .orElseThrow(() -> new NotFoundException("Категория с id: " + catId + " не найдена.", "Искомый объект не был найден."));
+        final Category category = referenceLookup.validateCategoryExisted(catId);
         log.info("Категория с id {} найдена.", catId);
         return mapper.toCategoryDto(category);
     }
 
     @Transactional(readOnly = true)
-    public Collection<CategoryDto> findCategories(int from, int size) {
-        final PageRequest pageable = PageRequest.of(from / size, size, Sort.by("id").ascending());
-        log.info("Поиск категорий c номера страницы {} и c количеством элементов на странице {}.", from, size);
-        return mapper.toCategoryDtoList(categoryRepository.findAll(pageable).getContent());
+    public CursorPage<CategoryDto> findCategories(int from, int size, String cursor) {
+        // с курсором выборка начинается после последней категории предыдущей страницы, from не учитывается
+        final PageCursor after = PageCursor.decode(cursor, ID_ORDER);
+        final Pageable pageable = OffsetPageRequest.of(after == null ? from : 0, size, Sort.by("id").ascending());
+        log.info("Поиск категорий c {} элемента и c количеством элементов на странице {}.", from, size);
+        List<Category> categories = categoryRepository.findByIdGreaterThan(after == null ? 0 : (int) after.id(), pageable);
+        return new CursorPage<>(mapper.toCategoryDtoList(categories),
+                PageCursor.next(categories, size, category -> PageCursor.of(ID_ORDER, category.getId(), category.getId())));
     }
 }
@@ -0,0 +1,130 @@
+package ru.practicum.ewm.main.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.main.enums.VersionedResource;
+import ru.practicum.ewm.main.model.ChangeVersion;
+import ru.practicum.ewm.main.model.ChangeVersionId;
+import ru.practicum.ewm.main.repository.ChangeVersionRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Версии данных, из которых собираются публичные ответы.
+ * <p>
+ * Транзакция, изменившая данные, увеличивает их версии перед коммитом. Строка версии остаётся заблокированной
+ * до коммита, поэтому версии растут в порядке коммитов: читатель, получивший версию, видит все изменения,
+ * зафиксированные до неё. Время изменения строк так не упорядочено - его берут до коммита, а параллельные
+ * транзакции фиксируются в любом порядке.
+ * <p>
+ * Блокируются только строки изменённых сущностей и одна из {@link #STRIPES} полос каждого изменённого набора,
+ * поэтому, например, заявки на разные события не ждут друг друга. Строки версий блокируются в порядке ключей.
+ * Строка версии сущности создаётся при первом изменении, обычно транзакцией, создавшей сущность.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChangeVersions {
+    /**
+     * Число полос версии набора, строки полос создаёт миграция.
+     */
+    static final int STRIPES = 16;
+
+    private final ChangeVersionRepository changeVersionRepository;
+
+    /**
+     * Отмечает изменение набора целиком, например, пакетное изменение карточек событий.
+     */
+    public void touch(VersionedResource set) {
+        increment().add(set, 0);
+    }
+
+    /**
+     * Отмечает изменение сущности, а вместе с ней и набора, в который она входит. Вне транзакции версии
+     * увеличиваются сразу.
+     */
+    public void touch(VersionedResource resource, long id) {
+        increment().add(resource, id);
+    }
+
+    /**
+     * Текущие версии: для набора - сумма версий полос, для сущности без строки версии - null.
+     */
+    public Map<ChangeVersionId, Long> current(Collection<ChangeVersionId> ids) {
+        Map<ChangeVersionId, Long> versions = new HashMap<>();
+        List<VersionedResource> sets = ids.stream()
+                .map(ChangeVersionId::getResource)
+                .filter(VersionedResource::isSet)
+                .toList();
+        if (!sets.isEmpty())
+            changeVersionRepository.findByResourceIn(sets)
+                    .forEach(stripe -> versions.merge(ChangeVersionId.of(stripe.getResource()), stripe.getVersion(), Long::sum));
+        List<ChangeVersionId> entities = ids.stream()
+                .filter(id -> !id.getResource().isSet())
+                .toList();
+        if (!entities.isEmpty())
+            for (ChangeVersion version : changeVersionRepository.findAllById(entities))
+                versions.put(ChangeVersionId.of(version.getResource(), version.getScope()), version.getVersion());
+        return versions;
+    }
+
+    private Increment increment() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive())
+            return new Increment(true);
+        // синхронизации приостанавливаются вместе с транзакцией, поэтому вложенная транзакция получит свою
+        return TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(Increment.class::isInstance)
+                .map(Increment.class::cast)
+                .filter(increment -> increment.owner() == this)
+                .findFirst()
+                .orElseGet(() -> {
+                    Increment increment = new Increment(false);
+                    TransactionSynchronizationManager.registerSynchronization(increment);
+                    return increment;
+                });
+    }
+
+    /**
+     * Версии, изменённые транзакцией.
+     */
+    private final class Increment implements TransactionSynchronization {
+        private final Set<ChangeVersionId> ids = new TreeSet<>();
+        // все наборы транзакция увеличивает в одной полосе
+        private final int stripe = ThreadLocalRandom.current().nextInt(STRIPES);
+        private final boolean immediate;
+
+        private Increment(boolean immediate) {
+            this.immediate = immediate;
+        }
+
+        private ChangeVersions owner() {
+            return ChangeVersions.this;
+        }
+
+        private void add(VersionedResource resource, long id) {
+            if (resource.isSet())
+                ids.add(ChangeVersionId.of(resource, stripe));
+            else {
+                ids.add(ChangeVersionId.of(resource, id));
+                if (resource.getParent() != null)
+                    ids.add(ChangeVersionId.of(resource.getParent(), stripe));
+            }
+            if (immediate)
+                beforeCommit(false);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            for (ChangeVersionId id : ids)
+                if (changeVersionRepository.increment(id.getResource(), id.getScope()) == 0)
+                    changeVersionRepository.insert(id.getResource().name(), id.getScope());
+        }
+    }
+}
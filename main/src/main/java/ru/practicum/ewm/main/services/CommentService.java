@@ -4,45 +4,56 @@ import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.main.dto.newRequests.NewComment;
 import ru.practicum.ewm.main.dto.responses.CommentDto;
+import ru.practicum.ewm.main.dto.responses.UserShortDto;
 import ru.practicum.ewm.main.dto.updateRequests.UpdateCommentAdminRequest;
 import ru.practicum.ewm.main.dto.updateRequests.UpdateCommentUserRequest;
 import ru.practicum.ewm.main.enums.CommentSort;
 import ru.practicum.ewm.main.enums.CommentState;
 import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.enums.VersionedResource;
 import ru.practicum.ewm.main.exceptions.ConflictException;
 import ru.practicum.ewm.main.exceptions.NotFoundException;
 import ru.practicum.ewm.main.exceptions.ValidationException;
 import ru.practicum.ewm.main.mapper.CommentMapper;
 import ru.practicum.ewm.main.model.*;
+import ru.practicum.ewm.main.repository.ChangeStamp;
+import ru.practicum.ewm.main.repository.CommentReactionView;
 import ru.practicum.ewm.main.repository.CommentRepository;
 import ru.practicum.ewm.main.repository.EventRepository;
-import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.main.repository.OffsetPageRequest;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 @Transactional
 public class CommentService {
+    private static final String CREATED_ORDER = "created";
+    private static final String USEFUL_ORDER = "useful";
+    // сколько оценивших пользователей возвращается в комментарии, полное число оценок - в счётчиках
+    static final int REACTIONS_PREVIEW_SIZE = 10;
+
     private final CommentRepository commentRepository;
-    private final UserRepository userRepository;
+    private final ReferenceLookup referenceLookup;
     private final EventRepository eventRepository;
     private final CommentMapper commentMapper;
+    private final ResourceVersions resourceVersions;
+    private final ChangeVersions changeVersions;
 
     public CommentDto createComment(long authorId, long eventId, NewComment newComment) {
-        User author = validateUserExisted(authorId);
+        User author = referenceLookup.validateUserExisted(authorId);
         Event event = validateEventExisted(eventId);
-        if (event.getState() != EventsState.PUBLISHED) {
+        if (!EventsState.VISIBLE.contains(event.getState())) {
             log.warn("Выброшено ConflictException: комментировать можно только опубликованные события.");
             throw new ConflictException("Комментировать можно только опубликованные события.", "Для запрошенной операции условия не выполнены.");
         }
@@ -52,37 +63,41 @@ public class CommentService {
         }
 
         Comment comment = commentRepository.save(commentMapper.toComment(newComment, event, author));
+        changeVersions.touch(VersionedResource.EVENT_COMMENTS, eventId);
         log.info("Новый комментарий сохранен с id: {}", comment.getId());
-        return commentMapper.toCommentDto(comment);
+        return toDto(comment);
     }
 
     public CommentDto updateCommentByUser(long authorId, long comId, UpdateCommentUserRequest request) {
-        validateUserExisted(authorId);
+        referenceLookup.validateUserExisted(authorId);
         Comment comment = validateCommentExisted(comId);
         if (comment.getAuthor().getId() != authorId) {
             log.warn("Выброшено ConflictException: обновить комментарий может только автор комментария.");
             throw new ConflictException("Oбновить комментарий может только автор комментария.", "Для запрошенной операции условия не выполнены.");
         }
         Comment updComment = commentRepository.save(commentMapper.updateCommentUser(request, comment));
+        changeVersions.touch(VersionedResource.EVENT_COMMENTS, comment.getEvent().getId());
         log.info("Комментарий с id: {} обновлен.", updComment.getId());
-        return commentMapper.toCommentDto(updComment);
+        return toDto(updComment);
     }
 
     public CommentDto updateCommentByAdmin(long comId, UpdateCommentAdminRequest request) {
         Comment comment = validateCommentExisted(comId);
         Comment updComment = commentRepository.save(commentMapper.updateCommentAdmin(request, comment));
+        changeVersions.touch(VersionedResource.EVENT_COMMENTS, comment.getEvent().getId());
         log.info("Комментарий с id:{} обновлен.", updComment.getId());
-        return commentMapper.toCommentDto(updComment);
+        return toDto(updComment);
     }
 
     public void deleteComment(long authorId, long comId) {
-        validateUserExisted(authorId);
+        referenceLookup.validateUserExisted(authorId);
         Comment comment = validateCommentExisted(comId);
         if (comment.getAuthor().getId() != authorId) {
             log.warn("Выброшено ConflictException: удалить комментарий может только автор комментария.");
             throw new ConflictException("Удалить комментарий может только автор комментария.", "Для запрошенной операции условия не выполнены.");
         }
         commentRepository.deleteById(comId);
+        changeVersions.touch(VersionedResource.EVENT_COMMENTS, comment.getEvent().getId());
         log.info("Комментарий с id: {} удален.", comId);
     }
 
@@ -90,14 +105,27 @@ public class CommentService {
     public CommentDto findCommentByIdUser(long authorId, long comId) {
         Comment comment = validateCommentExistedByUserId(comId, authorId);
         log.info("Комментарий с id: {} найден", comment.getId());
-        return commentMapper.toCommentDto(comment);
+        return toDto(comment);
     }
 
     @Transactional(readOnly = true)
     public CommentDto findCommentByIdAdmin(long comId) {
         Comment comment = validateCommentExisted(comId);
         log.info("Комментарий с id: {} найден.", comment.getId());
-        return commentMapper.toCommentDto(comment);
+        return toDto(comment);
+    }
+
+    @Transactional(readOnly = true)
+    public ResourceVersion getPublicCommentVersion(long eventId, long comId) {
+        ChangeStamp comment = commentRepository.findStampByIdAndEventIdAndState(comId, eventId, CommentState.PUBLISHED);
+        return comment.isEmpty() ? ResourceVersion.NONE
+                : resourceVersions.of(comment, ChangeVersionId.of(VersionedResource.EVENT_COMMENTS, eventId));
+    }
+
+    @Transactional(readOnly = true)
+    public ResourceVersion getPublicCommentsVersion(long eventId) {
+        return resourceVersions.of(commentRepository.findStampByEventIdAndState(eventId, CommentState.PUBLISHED),
+                ChangeVersionId.of(VersionedResource.EVENT_COMMENTS, eventId));
     }
 
     @Transactional(readOnly = true)
@@ -114,66 +142,58 @@ public class CommentService {
                     "Для запрошенной операции условия не выполнены.");
         }
         log.info("Комментарий  с id: {} найден.", comment.getId());
-        return commentMapper.toCommentDto(comment);
+        return toDto(comment);
     }
 
     @Transactional(readOnly = true)
-    public List<CommentDto> findCommentsByAuthor(long authorId, int from, int size) {
-        validateUserExisted(authorId);
-        final Pageable pageable = PageRequest.of(from / size, size, Sort.by(Sort.Direction.DESC, "created"));
-        List<Comment> comments = commentRepository.findByAuthorId(authorId, pageable);
-        log.info("Комментарии найдены в количестве: {}.", comments.size());
-        return commentMapper.toCommentDtoList(comments);
+    public CursorPage<CommentDto> findCommentsByAuthor(long authorId, int from, int size, String cursor) {
+        referenceLookup.validateUserExisted(authorId);
+        CursorPage<CommentDto> comments = findPage(QComment.comment.author.id.eq(authorId), CREATED_ORDER, from, size, cursor);
+        log.info("Комментарии найдены в количестве: {}.", comments.content().size());
+        return comments;
     }
 
     @Transactional(readOnly = true)
-    public List<CommentDto> findCommentsByAdmin(List<Long> users,
-                                                List<CommentState> states,
-                                                List<Long> events,
-                                                LocalDateTime rangeStart,
-                                                LocalDateTime rangeEnd,
-                                                int from,
-                                                int size) {
+    public CursorPage<CommentDto> findCommentsByAdmin(List<Long> users,
+                                                      List<CommentState> states,
+                                                      List<Long> events,
+                                                      LocalDateTime rangeStart,
+                                                      LocalDateTime rangeEnd,
+                                                      int from,
+                                                      int size,
+                                                      String cursor) {
         if (rangeStart != null && rangeEnd != null && rangeEnd.isBefore(rangeStart)) {
             log.info("Выброшено ValidationException: дата start должна быть раньше даты end.");
             throw new ValidationException("Дата start должна быть раньше даты end.", "Для запрошенной операции условия не выполнены");
         }
-        final Pageable pageable = PageRequest.of(from / size, size, Sort.by(Sort.Direction.DESC, "created"));
         Predicate predicate = getPredicateForAdminSearch(users, states, events, rangeStart, rangeEnd);
 
-        List<Comment> comments = commentRepository.findAll(predicate, pageable).getContent();
-        if (comments.isEmpty()) {
+        CursorPage<CommentDto> comments = findPage(predicate, CREATED_ORDER, from, size, cursor);
+        if (comments.content().isEmpty()) {
             log.info("Комментарии по заданным параметрам не найдены.");
-            return List.of();
+            return comments;
         }
-        log.info("Запрашиваемые события найдены в количестве: {}.", comments.size());
-        return commentMapper.toCommentDtoList(comments);
+        log.info("Запрашиваемые события найдены в количестве: {}.", comments.content().size());
+        return comments;
     }
 
     @Transactional(readOnly = true)
-    public List<CommentDto> findCommentsPublic(long eventId,
-                                               int from,
-                                               int size,
-                                               CommentSort sort) {
+    public CursorPage<CommentDto> findCommentsPublic(long eventId,
+                                                     int from,
+                                                     int size,
+                                                     CommentSort sort,
+                                                     String cursor) {
         validateEventExisted(eventId);
-        final Pageable pageable = PageRequest.of(from / size, size,
-                Sort.by(Sort.Direction.DESC, "created"));
-        List<Comment> comments = commentRepository.findByEventIdAndState(eventId, CommentState.PUBLISHED, pageable);
-        List<CommentDto> commentDtoList = commentMapper.toCommentDtoList(comments);
-        if (sort == CommentSort.USEFUL) {
-            commentDtoList = commentDtoList
-                    .stream()
-                    .sorted(Comparator.comparing(CommentDto::getUseful).reversed())
-                    .toList();
-            log.info("Комментарии найдены в количестве: {}", commentDtoList.size());
-            return commentDtoList;
-        }
-        log.info("Комментарии найдены в количестве: {}", commentDtoList.size());
-        return commentDtoList;
+        QComment comment = QComment.comment;
+        // по полезности страница сортируется в БД по колонке useful и индексу (event_id, state, useful)
+        CursorPage<CommentDto> comments = findPage(comment.event.id.eq(eventId).and(comment.state.eq(CommentState.PUBLISHED)),
+                sort == CommentSort.USEFUL ? USEFUL_ORDER : CREATED_ORDER, from, size, cursor);
+        log.info("Комментарии найдены в количестве: {}", comments.content().size());
+        return comments;
     }
 
     public CommentDto addLikeToComment(long userId, long comId) {
-        User user = validateUserExisted(userId);
+        referenceLookup.validateUserExisted(userId);
         Comment comment = validateCommentExisted(comId);
         if (comment.getAuthor().getId() == userId) {
             log.warn("Выброшено ConflictException: нельзя добавить лайк своему комментарию.");
@@ -183,20 +203,21 @@ public class CommentService {
             log.warn("Выброшено ConflictException: нельзя добавить лайк неопубликованному комментарию.");
             throw new ConflictException("Нельзя добавить лайк неопубликованному комментарию.", "Для запрошенной операции условия не выполнены.");
         }
-        if (comment.getLikes().contains(user)) {
+        try {
+            commentRepository.insertLike(comId, userId);
+        } catch (DataIntegrityViolationException e) {
             log.warn("Выброшено ConflictException: лайк уже добавлен.");
             throw new ConflictException("Лайк пользователя с id: " + userId + " к комментарию с id: " + comId + " уже добавлен.",
                     "Пользователь может добавить только один лайк.");
         }
-        comment.getLikes().add(user);
-        comment.getDislikes().remove(user);
-        Comment updatedComment = commentRepository.save(comment);
-        log.info("Лайк сохранен, новое количество лайков: {}", updatedComment.getLikes().size());
-        return commentMapper.toCommentDto(updatedComment);
+        // лайк заменяет дизлайк пользователя, если он был
+        addReactions(comment, 1, -commentRepository.deleteDislike(comId, userId));
+        log.info("Лайк сохранен, новое количество лайков: {}", comment.getLikes());
+        return toDto(comment);
     }
 
     public CommentDto deleteLikeFromComment(long userId, long comId) {
-        User user = validateUserExisted(userId);
+        referenceLookup.validateUserExisted(userId);
         Comment comment = validateCommentExisted(comId);
         if (comment.getAuthor().getId() == userId) {
             log.warn("Выброшено ConflictException: нельзя удалить лайк у своего комментария.");
@@ -206,19 +227,18 @@ public class CommentService {
             log.warn("Выброшено ConflictException: нельзя удалить лайк у неопубликованного комментария.");
             throw new ConflictException("Нельзя удалить лайк у неопубликованного комментария.", "Для запрошенной операции условия не выполнены.");
         }
-        if (!comment.getLikes().contains(user)) {
+        if (commentRepository.deleteLike(comId, userId) == 0) {
             log.warn("Выброшено ConflictException: лайк с userId: {} не существует.", userId);
             throw new ConflictException("Лайк пользователя с id: " + userId + " к комментарию с id: " + comId + " отсутствует.",
                     "Пользователь не может удалить несуществующий лайк.");
         }
-        comment.getLikes().remove(user);
-        Comment updatedComment = commentRepository.save(comment);
-        log.info("Лайк удален, новое количество лайков: {}", updatedComment.getLikes().size());
-        return commentMapper.toCommentDto(updatedComment);
+        addReactions(comment, -1, 0);
+        log.info("Лайк удален, новое количество лайков: {}", comment.getLikes());
+        return toDto(comment);
     }
 
     public CommentDto addDislikeToComment(long userId, long comId) {
-        User user = validateUserExisted(userId);
+        referenceLookup.validateUserExisted(userId);
         Comment comment = validateCommentExisted(comId);
         if (comment.getAuthor().getId() == userId) {
             log.warn("Выброшено ConflictException: нельзя добавить дизлайк своему комментарию.");
@@ -228,20 +248,21 @@ public class CommentService {
             log.warn("Выброшено ConflictException: нельзя добавить дизлайк неопубликованному комментарию.");
             throw new ConflictException("Нельзя добавить дизлайк неопубликованному комментарию.", "Для запрошенной операции условия не выполнены.");
         }
-        if (comment.getDislikes().contains(user)) {
+        try {
+            commentRepository.insertDislike(comId, userId);
+        } catch (DataIntegrityViolationException e) {
             log.warn("Выброшено ConflictException: дизлайк уже добавлен.");
             throw new ConflictException("Дизлайк пользователя с id: " + userId + " к комментарию с id: " + comId + " уже добавлен.",
                     "Пользователь может добавить только один дизлайк.");
         }
-        comment.getDislikes().add(user);
-        comment.getLikes().remove(user);
-        Comment updatedComment = commentRepository.save(comment);
-        log.info("Дизлайк сохранен, новое количество дизлайков: {}", updatedComment.getDislikes().size());
-        return commentMapper.toCommentDto(updatedComment);
+        // дизлайк заменяет лайк пользователя, если он был
+        addReactions(comment, -commentRepository.deleteLike(comId, userId), 1);
+        log.info("Дизлайк сохранен, новое количество дизлайков: {}", comment.getDislikes());
+        return toDto(comment);
     }
 
     public CommentDto deleteDislikeFromComment(long userId, long comId) {
-        User user = validateUserExisted(userId);
+        referenceLookup.validateUserExisted(userId);
         Comment comment = validateCommentExisted(comId);
         if (comment.getAuthor().getId() == userId) {
             log.warn("Выброшено ConflictException: нельзя удалить дизлайк у своего комментария.");
@@ -251,15 +272,78 @@ public class CommentService {
             log.warn("Выброшено ConflictException: нельзя удалить дизлайк у неопубликованного комментария.");
             throw new ConflictException("Нельзя удалить дизлайк у неопубликованного комментария.", "Для запрошенной операции условия не выполнены.");
         }
-        if (!comment.getDislikes().contains(user)) {
+        if (commentRepository.deleteDislike(comId, userId) == 0) {
             log.warn("Выброшено ConflictException: дизлайк с userId: {} не существует.", userId);
             throw new ConflictException("Дизлайк пользователя с id: " + userId + " к комментарию с id: " + comId + " отсутствует.",
                     "Пользователь не может удалить несуществующий дизлайк.");
         }
-        comment.getDislikes().remove(user);
-        Comment updatedComment = commentRepository.save(comment);
-        log.info("Дизлайк удален, новое количество дизлайков: {}", updatedComment.getDislikes().size());
-        return commentMapper.toCommentDto(updatedComment);
+        addReactions(comment, 0, -1);
+        log.info("Дизлайк удален, новое количество дизлайков: {}", comment.getDislikes());
+        return toDto(comment);
+    }
+
+    /**
+     * Возвращает страницу комментариев от новых к старым или от полезных к бесполезным. С курсором страница
+     * выбирается условием на ключ сортировки и id последнего комментария предыдущей страницы, без пропуска строк
+     * и подсчёта общего количества.
+     */
+    private CursorPage<CommentDto> findPage(Predicate filter, String order, int from, int size, String cursor) {
+        QComment comment = QComment.comment;
+        final PageCursor after = PageCursor.decode(cursor, order);
+        final boolean byUseful = order.equals(USEFUL_ORDER);
+        final Sort sort = Sort.by(Sort.Direction.DESC, byUseful ? "useful" : "created", "id");
+        List<Comment> comments;
+        if (after == null) {
+            comments = commentRepository.findAll(filter, OffsetPageRequest.of(from, size, sort)).getContent();
+        } else {
+            Predicate afterCursor = byUseful
+                    ? comment.useful.lt(after.longKey()).or(comment.useful.eq(after.longKey()).and(comment.id.lt(after.id())))
+                    : comment.created.lt(after.dateKey()).or(comment.created.eq(after.dateKey()).and(comment.id.lt(after.id())));
+            comments = commentRepository.findBy(new BooleanBuilder(filter).and(afterCursor),
+                    query -> query.sortBy(sort).limit(size).all());
+        }
+        return new CursorPage<>(toDtos(comments), PageCursor.next(comments, size,
+                last -> PageCursor.of(order, byUseful ? last.getUseful() : last.getCreated(), last.getId())));
+    }
+
+    private CommentDto toDto(Comment comment) {
+        return toDtos(List.of(comment)).getFirst();
+    }
+
+    /**
+     * Заполняет в комментариях первых оценивших пользователей: один запрос для лайков и один для дизлайков
+     * на всю страницу, и только если у комментариев страницы есть оценки.
+     */
+    private List<CommentDto> toDtos(List<Comment> comments) {
+        List<CommentDto> dtos = commentMapper.toCommentDtoList(comments);
+        List<Long> liked = comments.stream().filter(comment -> comment.getLikes() > 0).map(Comment::getId).toList();
+        List<Long> disliked = comments.stream().filter(comment -> comment.getDislikes() > 0).map(Comment::getId).toList();
+        Map<Long, List<UserShortDto>> likes = liked.isEmpty() ? Map.of()
+                : groupByComment(commentRepository.findFirstLikes(liked, REACTIONS_PREVIEW_SIZE));
+        Map<Long, List<UserShortDto>> dislikes = disliked.isEmpty() ? Map.of()
+                : groupByComment(commentRepository.findFirstDislikes(disliked, REACTIONS_PREVIEW_SIZE));
+        for (CommentDto dto : dtos) {
+            dto.setLikes(likes.getOrDefault(dto.getId(), List.of()));
+            dto.setDislikes(dislikes.getOrDefault(dto.getId(), List.of()));
+        }
+        return dtos;
+    }
+
+    private static Map<Long, List<UserShortDto>> groupByComment(List<CommentReactionView> reactions) {
+        return reactions.stream().collect(Collectors.groupingBy(CommentReactionView::getCommentId,
+                Collectors.mapping(reaction -> new UserShortDto(reaction.getUserId(), reaction.getUserName()),
+                        Collectors.toList())));
+    }
+
+    /**
+     * Меняет счётчики оценок комментария одним UPDATE в БД и в загруженной сущности.
+     */
+    private void addReactions(Comment comment, long likes, long dislikes) {
+        commentRepository.addReactions(comment.getId(), likes, dislikes);
+        changeVersions.touch(VersionedResource.EVENT_COMMENTS, comment.getEvent().getId());
+        comment.setLikes(comment.getLikes() + likes);
+        comment.setDislikes(comment.getDislikes() + dislikes);
+        comment.setUseful(comment.getUseful() + likes - dislikes);
     }
 
     private Predicate getPredicateForAdminSearch(List<Long> users,
@@ -284,10 +368,6 @@ public class CommentService {
         return predicate;
     }
 
-    private User validateUserExisted(long userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id: " + userId + " не найден.", "Искомый объект не был найден."));
-    }
 
     private Event validateEventExisted(long eventId) {
         return eventRepository.findById(eventId)
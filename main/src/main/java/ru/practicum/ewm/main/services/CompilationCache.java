@@ -0,0 +1,191 @@
+package ru.practicum.ewm.main.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.main.constants.Constants;
+import ru.practicum.ewm.main.dto.responses.CompilationDto;
+import ru.practicum.ewm.main.dto.responses.EventShortDto;
+import ru.practicum.ewm.main.mapper.EventMapper;
+import ru.practicum.ewm.main.model.QEvent;
+import ru.practicum.ewm.main.outbox.CompilationChanged;
+import ru.practicum.ewm.main.outbox.DomainEvent;
+import ru.practicum.ewm.main.outbox.DomainEventConsumer;
+import ru.practicum.ewm.main.outbox.EventChanged;
+import ru.practicum.ewm.main.outbox.EventPublished;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+import ru.practicum.ewm.stats.client.exception.NotAvailableStatServerException;
+import ru.practicum.ewm.stats.dto.ViewStats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Готовые {@link CompilationDto} публичных запросов подборок: страницы по (pinned, from, size) и подборки по id.
+ * <p>
+ * Подборки меняет только администратор, поэтому {@link CompilationService} сбрасывает кэш при их изменении,
+ * а изменения событий, входящих в закэшированные подборки, приходят доменными событиями из outbox на каждый
+ * экземпляр приложения. Просмотры и число
+ * подтверждённых заявок меняются постоянно, поэтому события закэшированных подборок периодически
+ * перечитываются одним запросом к БД и одним запросом к stats-server, а не при каждом обращении.
+ */
+@Component
+@Slf4j
+public class CompilationCache implements DomainEventConsumer {
+    private final EventRepository eventRepository;
+    private final EventMapper eventMapper;
+    private final StatClient client;
+    private final NearCache<PageKey, List<CompilationDto>> pages;
+    private final NearCache<Long, CompilationDto> compilations;
+
+    public CompilationCache(EventRepository eventRepository,
+                            EventMapper eventMapper,
+                            StatClient client,
+                            @Value("${ewm.compilations.cache.max-size:1000}") int maxSize,
+                            @Value("${ewm.compilations.cache.ttl:PT10M}") Duration ttl,
+                            MeterRegistry meterRegistry) {
+        this.eventRepository = eventRepository;
+        this.eventMapper = eventMapper;
+        this.client = client;
+        this.pages = new NearCache<>("compilation-pages", maxSize, ttl, meterRegistry);
+        this.compilations = new NearCache<>("compilations", maxSize, ttl, meterRegistry);
+    }
+
+    public List<CompilationDto> getPage(Boolean pinned, int from, int size, Supplier<List<CompilationDto>> loader) {
+        return pages.get(new PageKey(pinned, from, size), key -> Optional.of(List.copyOf(loader.get()))).orElseThrow();
+    }
+
+    public CompilationDto getById(long compId, Supplier<CompilationDto> loader) {
+        return compilations.get(compId, key -> Optional.of(loader.get())).orElseThrow();
+    }
+
+    /**
+     * Сбрасывает подборку и все страницы подборок: изменённая, новая или удалённая подборка может оказаться
+     * на любой странице.
+     */
+    public void evictCompilation(long compId) {
+        evict(() -> {
+            compilations.invalidate(compId);
+            pages.invalidateAll();
+        });
+    }
+
+    @Override
+    public boolean isBroadcast() {
+        return true;
+    }
+
+    @Override
+    public void accept(DomainEvent event) {
+        switch (event) {
+            case EventPublished published -> evictEvent(published.eventId());
+            case EventChanged changed -> evictEvent(changed.eventId());
+            case CompilationChanged changed -> evictCompilation(changed.compilationId());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает подборки и страницы, в которые входит событие.
+     */
+    public void evictEvent(long eventId) {
+        evict(() -> {
+            compilations.invalidateIf(compilation -> containsEvent(compilation, eventId));
+            pages.invalidateIf(page -> page.stream().anyMatch(compilation -> containsEvent(compilation, eventId)));
+        });
+    }
+
+    /**
+     * Перечитывает события закэшированных подборок вместе с просмотрами.
+     */
+    @Scheduled(fixedDelayString = "${ewm.compilations.cache.refresh-delay:PT30S}")
+    public void refresh() {
+        NearCache.Snapshot<PageKey, List<CompilationDto>> pagesSnapshot = pages.snapshot();
+        NearCache.Snapshot<Long, CompilationDto> compilationsSnapshot = compilations.snapshot();
+        Set<Long> eventIds = Stream.concat(
+                        pagesSnapshot.values().values().stream().flatMap(Collection::stream),
+                        compilationsSnapshot.values().values().stream())
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .map(EventShortDto::getId)
+                .collect(Collectors.toSet());
+        if (eventIds.isEmpty())
+            return;
+        Map<Long, EventShortDto> events;
+        try {
+            events = findEvents(eventIds);
+        } catch (NotAvailableStatServerException e) {
+            log.warn("События подборок не обновлены: {}", e.getMessage());
+            return;
+        }
+        pages.replace(pagesSnapshot, pagesSnapshot.values().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().stream()
+                        .map(compilation -> withEvents(compilation, events))
+                        .toList())));
+        compilations.replace(compilationsSnapshot, compilationsSnapshot.values().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> withEvents(entry.getValue(), events))));
+        log.debug("Обновлены события закэшированных подборок: {}.", eventIds.size());
+    }
+
+    private Map<Long, EventShortDto> findEvents(Set<Long> eventIds) {
+        List<String> uris = eventIds.stream()
+                .map(id -> "/events/" + id)
+                .toList();
+        Map<String, Long> hits = client.getStats(Constants.VIEWS_START.format(Constants.DTF),
+                        LocalDateTime.now().format(Constants.DTF), uris, false)
+                .stream()
+                .collect(Collectors.toMap(ViewStats::getUri, ViewStats::getHits, Long::sum));
+        Map<Long, EventShortDto> events = new HashMap<>();
+        eventRepository.findShortViews(QEvent.event.id.in(eventIds), Pageable.unpaged()).forEach(view -> {
+            EventShortDto event = eventMapper.toEventShortDto(view);
+            event.setViews(hits.getOrDefault("/events/" + view.id(), 0L));
+            events.put(view.id(), event);
+        });
+        return events;
+    }
+
+    private static CompilationDto withEvents(CompilationDto compilation, Map<Long, EventShortDto> events) {
+        return new CompilationDto(compilation.getId(), compilation.getTitle(), compilation.isPinned(),
+                compilation.getEvents().stream()
+                        .map(event -> events.getOrDefault(event.getId(), event))
+                        .collect(Collectors.toSet()));
+    }
+
+    private static boolean containsEvent(CompilationDto compilation, long eventId) {
+        return compilation.getEvents().stream().anyMatch(event -> event.getId() == eventId);
+    }
+
+    /**
+     * Сбрасывает записи сразу и повторно после завершения транзакции: до коммита параллельный запрос ещё может
+     * прочитать из БД и закэшировать старые данные.
+     */
+    private static void evict(Runnable invalidate) {
+        invalidate.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate.run();
+                }
+            });
+        }
+    }
+
+    private record PageKey(Boolean pinned, int from, int size) {
+    }
+}
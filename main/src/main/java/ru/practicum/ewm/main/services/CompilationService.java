@@ -10,11 +10,17 @@ import ru.practicum.ewm.main.constants.Constants;
 import ru.practicum.ewm.main.dto.responses.CompilationDto;
 import ru.practicum.ewm.main.dto.newRequests.NewCompilation;
 import ru.practicum.ewm.main.dto.updateRequests.UpdateCompilationAdminRequest;
+import ru.practicum.ewm.main.enums.VersionedResource;
 import ru.practicum.ewm.main.exceptions.ConflictException;
 import ru.practicum.ewm.main.exceptions.NotFoundException;
 import ru.practicum.ewm.main.mapper.CompilationMapper;
+import ru.practicum.ewm.main.model.ChangeVersionId;
 import ru.practicum.ewm.main.model.Compilation;
 import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.outbox.CompilationChanged;
+import ru.practicum.ewm.main.outbox.DomainEvents;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.ChangeStamp;
 import ru.practicum.ewm.main.repository.CompilationRepository;
 import ru.practicum.ewm.main.repository.EventRepository;
 import ru.practicum.ewm.stats.client.StatClient;
@@ -36,6 +42,11 @@ public class CompilationService {
     private final EventRepository eventRepository;
     private final CompilationMapper compilationMapper;
     private final StatClient client;
+    private final CompilationCache compilationCache;
+    private final CategoryRepository categoryRepository;
+    private final ResourceVersions resourceVersions;
+    private final ChangeVersions changeVersions;
+    private final DomainEvents domainEvents;
 
     public CompilationDto createCompilation(NewCompilation newCompilation) {
         validateCompilationsTitle(newCompilation.getTitle());
@@ -45,6 +56,9 @@ public class CompilationService {
             log.info("Добавлены просмотры при создании новой подборки.");
         }
         Compilation savedComp = compilationRepository.save(compilation);
+        changeVersions.touch(VersionedResource.COMPILATIONS);
+        compilationCache.evictCompilation(savedComp.getId());
+        domainEvents.publish(new CompilationChanged(savedComp.getId()));
         log.info("Новая подборка сохранена, id: {}", savedComp.getId());
         return compilationMapper.toCompilationDto(compilation);
     }
@@ -52,6 +66,9 @@ public class CompilationService {
     public void deleteCompilationById(long compId) {
         validateCompilationExisted(compId);
         compilationRepository.deleteById(compId);
+        changeVersions.touch(VersionedResource.COMPILATIONS);
+        compilationCache.evictCompilation(compId);
+        domainEvents.publish(new CompilationChanged(compId));
         log.info("Подборка с id: {} удалена.", compId);
     }
 
@@ -65,22 +82,56 @@ public class CompilationService {
         if (!compilation.getEvents().isEmpty()) {
             compilation.setEvents(getSetEventsWithViewsByEvents(compilation.getEvents()));
         }
+        compilation.setUpdatedOn(LocalDateTime.now());
         Compilation updComp = compilationRepository.save(compilationMapper.updateAdminCompilation(request, compilation));
+        changeVersions.touch(VersionedResource.COMPILATIONS);
+        compilationCache.evictCompilation(compId);
+        domainEvents.publish(new CompilationChanged(compId));
         log.info("Подборка с id: {} обновлена.", compId);
         return compilationMapper.toCompilationDto(updComp);
     }
 
+    /**
+     * Версия публичного списка подборок: меняется при изменении подборок, их событий и категорий событий.
+     * {@link CompilationCache} на других экземплярах сбрасывается после коммита, и до сброса экземпляр может
+     * отдать прежние данные под новой версией; в версию входит интервал свежести просмотров, поэтому такой
+     * ответ устаревает вместе с интервалом.
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getPublicCompilationsVersion() {
+        return resourceVersions.withViews(compilationRepository.findStamp().with(categoryRepository.findStamp()),
+                ChangeVersionId.of(VersionedResource.COMPILATIONS), ChangeVersionId.of(VersionedResource.EVENTS),
+                ChangeVersionId.of(VersionedResource.CATEGORIES));
+    }
+
+    @Transactional(readOnly = true)
+    public ResourceVersion getPublicCompilationVersion(long compId) {
+        ChangeStamp compilation = compilationRepository.findStampById(compId);
+        if (compilation.isEmpty())
+            return ResourceVersion.NONE;
+        return resourceVersions.withViews(compilation.with(categoryRepository.findStamp()),
+                ChangeVersionId.of(VersionedResource.COMPILATIONS), ChangeVersionId.of(VersionedResource.EVENTS),
+                ChangeVersionId.of(VersionedResource.CATEGORIES));
+    }
+
     @Transactional(readOnly = true)
     public List<CompilationDto> findPublicCompilations(Boolean pinned, int from, int size) {
-        Pageable pageable = PageRequest.of(from / size, size);
-        List<Compilation> compilations;
-        if (pinned != null)
-            compilations = compilationRepository.findByPinned(pinned, pageable);
-        else
-            compilations = compilationRepository.findAll(pageable).getContent();
+        return compilationCache.getPage(pinned, from, size, () -> loadPublicCompilations(pinned, from, size));
+    }
 
-        if (compilations.isEmpty())
+    @Transactional(readOnly = true)
+    public CompilationDto findPublicCompilationById(long compId) {
+        return compilationCache.getById(compId, () -> loadPublicCompilationById(compId));
+    }
+
+    private List<CompilationDto> loadPublicCompilations(Boolean pinned, int from, int size) {
+        Pageable pageable = PageRequest.of(from / size, size);
+        List<Long> ids = compilationRepository.findPageIds(pinned, pageable);
+        if (ids.isEmpty())
             return List.of();
+        List<Compilation> compilations = compilationRepository.findByIdIn(ids).stream()
+                .sorted(Comparator.comparing(compilation -> ids.indexOf(compilation.getId())))
+                .toList();
         for (Compilation compilation : compilations) {
             if (compilation.getEvents() != null && !compilation.getEvents().isEmpty()) {
                 compilation.setEvents(getSetEventsWithViewsByEvents(compilation.getEvents()));
@@ -90,8 +141,7 @@ public class CompilationService {
         return compilationMapper.toCompilationDtoList(compilations);
     }
 
-    @Transactional(readOnly = true)
-    public CompilationDto findPublicCompilationById(long compId) {
+    private CompilationDto loadPublicCompilationById(long compId) {
         Compilation compilation = validateCompilationExisted(compId);
         if (!compilation.getEvents().isEmpty()) {
             compilation.setEvents(getSetEventsWithViewsByEvents(compilation.getEvents()));
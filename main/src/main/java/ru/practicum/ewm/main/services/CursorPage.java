@@ -0,0 +1,21 @@
+package ru.practicum.ewm.main.services;
+
+import jakarta.servlet.http.HttpServletResponse;
+import ru.practicum.ewm.main.constants.Constants;
+
+import java.util.List;
+
+/**
+ * Страница списка и курсор следующей страницы ({@code null}, если страница последняя).
+ */
+public record CursorPage<T>(List<T> content, String nextCursor) {
+
+    /**
+     * Передаёт курсор следующей страницы в заголовке ответа и возвращает элементы страницы.
+     */
+    public List<T> writeNextCursor(HttpServletResponse response) {
+        if (nextCursor != null)
+            response.setHeader(Constants.NEXT_CURSOR_HEADER, nextCursor);
+        return content;
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.ewm.main.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.enums.VersionedResource;
+import ru.practicum.ewm.main.mapper.EventMapper;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.EventCard;
+import ru.practicum.ewm.main.outbox.DomainEvent;
+import ru.practicum.ewm.main.outbox.DomainEventConsumer;
+import ru.practicum.ewm.main.outbox.EventChanged;
+import ru.practicum.ewm.main.outbox.EventPublished;
+import ru.practicum.ewm.main.outbox.RequestCanceled;
+import ru.practicum.ewm.main.outbox.RequestConfirmed;
+import ru.practicum.ewm.main.repository.EventCardRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Обновляет карточки событий, из которых читается публичный список событий.
+ * <p>
+ * Карточка создаётся при публикации события и перезаписывается при изменении события администратором.
+ * Число подтверждённых заявок переносится из событий после подтверждения и отмены заявок. Эти изменения
+ * приходят доменными событиями из outbox, после коммита запроса; карточка каждый раз пересчитывается
+ * по текущему состоянию события, поэтому повторная доставка безопасна. Просмотры обновляются при
+ * обновлении из stats-server в {@link EventViewsRefresher}, название категории - при её изменении.
+ * Комментарии в карточку не входят: в {@code EventShortDto} нет их числа.
+ * <p>
+ * Каждое изменение карточек, кроме просмотров, увеличивает версию событий {@link ChangeVersions}: ETag списка
+ * событий меняется, когда меняются карточки, а не только сами события.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EventCards implements DomainEventConsumer {
+    private final EventCardRepository eventCardRepository;
+    private final EventRepository eventRepository;
+    private final EventMapper eventMapper;
+    private final ChangeVersions changeVersions;
+
+    @Override
+    public void accept(DomainEvent event) {
+        switch (event) {
+            case EventPublished published -> eventRepository.findById(published.eventId()).ifPresent(this::save);
+            case EventChanged changed -> eventRepository.findById(changed.eventId()).ifPresent(this::save);
+            case RequestConfirmed confirmed -> refreshConfirmedRequests(confirmed.eventId());
+            case RequestCanceled canceled -> refreshConfirmedRequests(canceled.eventId());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Сохраняет карточку опубликованного события или удаляет карточку события, снятого с публикации.
+     */
+    public void save(Event event) {
+        if (event.getState() == EventsState.PUBLISHED) {
+            EventCard card = eventMapper.toEventCard(event);
+            // просмотры переносит только EventViewsRefresher, изменение события их не сбрасывает
+            eventCardRepository.findById(event.getId()).ifPresent(existing -> card.setViews(existing.getViews()));
+            eventCardRepository.save(card);
+        } else
+            eventCardRepository.deleteById(event.getId());
+        changeVersions.touch(VersionedResource.EVENTS);
+    }
+
+    /**
+     * Удаляет карточки завершённых событий, см. {@link EventLifecycle}.
+     */
+    public void delete(Collection<Long> eventIds) {
+        eventCardRepository.deleteAllByIdInBatch(eventIds);
+        changeVersions.touch(VersionedResource.EVENTS);
+    }
+
+    public void refreshConfirmedRequests(long eventId) {
+        refreshConfirmedRequests(List.of(eventId));
+    }
+
+    public void refreshConfirmedRequests(Collection<Long> eventIds) {
+        eventCardRepository.refreshConfirmedRequests(eventIds);
+        changeVersions.touch(VersionedResource.EVENTS);
+    }
+
+    public void syncConfirmedRequests() {
+        int synced = eventCardRepository.syncConfirmedRequests();
+        changeVersions.touch(VersionedResource.EVENTS);
+        if (synced > 0)
+            log.info("Исправлено число подтверждённых заявок в карточках событий: {}.", synced);
+    }
+
+    public void renameCategory(int catId, String name) {
+        eventCardRepository.renameCategory(catId, name);
+        changeVersions.touch(VersionedResource.EVENTS);
+    }
+
+    /**
+     * Создаёт недостающие карточки при запуске, например, для событий, опубликованных до появления карточек.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createMissing() {
+        int created = eventCardRepository.createMissing();
+        changeVersions.touch(VersionedResource.EVENTS);
+        log.info("Созданы карточки опубликованных событий: {}.", created);
+    }
+}
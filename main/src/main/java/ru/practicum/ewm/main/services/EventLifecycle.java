@@ -0,0 +1,81 @@
+package ru.practicum.ewm.main.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.search.EventTextIndex;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Периодически переводит опубликованные события, дата которых прошла, в состояние COMPLETED.
+ * <p>
+ * Карточки завершённых событий удаляются, и таблица event_cards вместе с её индексами, из которых читается публичный
+ * список, содержит только предстоящие события; текстовый индекс и распределитель мест тоже их забывают.
+ * Сами события остаются в events: на них ссылаются заявки, комментарии и подборки, и они по-прежнему доступны по id.
+ * <p>
+ * События обрабатываются пакетами по {@code ewm.events.lifecycle.batch-size}, каждый пакет в своей транзакции,
+ * не больше {@code ewm.events.lifecycle.max-batches} пакетов за запуск; остаток завершается при следующем запуске.
+ */
+@Component
+@ConditionalOnProperty(name = "ewm.events.lifecycle.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class EventLifecycle {
+    private final EventRepository eventRepository;
+    private final EventCards eventCards;
+    private final EventTextIndex eventTextIndex;
+    private final TicketAllocator ticketAllocator;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public EventLifecycle(EventRepository eventRepository,
+                          EventCards eventCards,
+                          EventTextIndex eventTextIndex,
+                          TicketAllocator ticketAllocator,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${ewm.events.lifecycle.batch-size:500}") int batchSize,
+                          @Value("${ewm.events.lifecycle.max-batches:20}") int maxBatches) {
+        this.eventRepository = eventRepository;
+        this.eventCards = eventCards;
+        this.eventTextIndex = eventTextIndex;
+        this.ticketAllocator = ticketAllocator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(fixedDelayString = "${ewm.events.lifecycle.delay:PT5M}",
+            initialDelayString = "${ewm.events.lifecycle.delay:PT5M}")
+    public void completePastEvents() {
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        int completed = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Long> ids = transactionTemplate.execute(status -> completeBatch(now));
+            completed += ids.size();
+            if (ids.size() < batchSize)
+                break;
+        }
+        if (completed > 0)
+            log.info("Завершено прошедших событий: {} за {} мс.", completed, System.currentTimeMillis() - started);
+    }
+
+    private List<Long> completeBatch(LocalDateTime now) {
+        List<Long> ids = eventRepository.findPublishedIdsByEventDateBefore(now, Limit.of(batchSize));
+        if (ids.isEmpty())
+            return ids;
+        eventRepository.completeEvents(ids, now);
+        eventCards.delete(ids);
+        eventTextIndex.remove(ids);
+        ids.forEach(ticketAllocator::evict);
+        return ids;
+    }
+}
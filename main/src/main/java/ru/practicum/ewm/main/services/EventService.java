@@ -5,11 +5,14 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import com.querydsl.core.types.Predicate;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.querydsl.QSort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
+import ru.practicum.ewm.main.config.HitExecutor;
+import ru.practicum.ewm.main.config.LookupExecutor;
 import ru.practicum.ewm.main.constants.Constants;
 import ru.practicum.ewm.main.dto.newRequests.NewEventDto;
 import ru.practicum.ewm.main.dto.responses.EventFullDto;
@@ -20,19 +23,32 @@ import ru.practicum.ewm.main.enums.CommentState;
 import ru.practicum.ewm.main.enums.EventsSort;
 import ru.practicum.ewm.main.enums.EventsState;
 import ru.practicum.ewm.main.enums.StateActionAdmin;
+import ru.practicum.ewm.main.enums.VersionedResource;
 import ru.practicum.ewm.main.exceptions.*;
 import ru.practicum.ewm.main.mapper.EventMapper;
 import ru.practicum.ewm.main.model.*;
+import ru.practicum.ewm.main.outbox.DomainEvents;
+import ru.practicum.ewm.main.outbox.EventChanged;
+import ru.practicum.ewm.main.outbox.EventPublished;
 import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.EventCardRepository;
+import ru.practicum.ewm.main.repository.ChangeStamp;
 import ru.practicum.ewm.main.repository.CommentRepository;
+import ru.practicum.ewm.main.repository.EventCommentsCount;
 import ru.practicum.ewm.main.repository.EventRepository;
-import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.main.repository.EventGeo;
+import ru.practicum.ewm.main.repository.EventSearch;
+import ru.practicum.ewm.main.repository.EventShortView;
+import ru.practicum.ewm.main.repository.OffsetPageRequest;
+import ru.practicum.ewm.main.search.EventTextIndex;
 import ru.practicum.ewm.stats.client.StatClient;
 import ru.practicum.ewm.stats.dto.EndpointHitNewRequest;
 import ru.practicum.ewm.stats.dto.ViewStats;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,54 +56,78 @@ import java.util.stream.Collectors;
 @Slf4j
 @Transactional
 public class EventService {
+    // порядки сортировки списков, по которым строятся курсоры страниц
+    private static final String ID_ORDER = "id";
+    private static final String CREATED_ORDER = "created";
+    private static final String EVENT_DATE_ORDER = "eventDate";
+    private static final String VIEWS_ORDER = "views";
+    private static final String RELEVANCE_ORDER = "relevance";
+    private static final String DISTANCE_ORDER = "distance";
+    // связи, которые страница событий загружает тем же запросом, см. EventRepository
+    private static final List<String> EVENT_GRAPH = List.of("category", "initiator");
+
     private final EventRepository eventRepository;
-    private final UserRepository userRepository;
-    private final CategoryRepository categoryRepository;
+    private final ReferenceLookup referenceLookup;
     private final CommentRepository commentRepository;
 
     private final StatClient client;
     private final EventMapper eventMapper;
+    private final LookupExecutor lookupExecutor;
+    private final HitExecutor hitExecutor;
+    private final EventTextIndex eventTextIndex;
+    private final TicketAllocator ticketAllocator;
+    private final CategoryRepository categoryRepository;
+    private final ResourceVersions resourceVersions;
+    private final ChangeVersions changeVersions;
+    private final DomainEvents domainEvents;
+    private final EventCardRepository eventCardRepository;
 
     @Transactional(readOnly = true)
-    public Collection<EventShortDto> findEventsByUserId(long userId, int from, int size) {
-        validateUserExisted(userId);
+    public CursorPage<EventShortDto> findEventsByUserId(long userId, int from, int size, String cursor) {
+        referenceLookup.validateUserExisted(userId);
 
-        final PageRequest pageable = PageRequest.of(from / size, size);
-        log.info("Поиск событий пользователя с id:{} c номера страницы {} и c количеством элементов на странице {}.", userId, from, size);
-        List<Event> events = eventRepository.findByInitiatorIdOrderByCreatedOnDesc(userId, pageable);
+        QEvent event = QEvent.event;
+        final PageCursor after = PageCursor.decode(cursor, CREATED_ORDER);
+        BooleanBuilder predicate = new BooleanBuilder(event.initiator.id.eq(userId));
+        if (after != null)
+            predicate.and(event.createdOn.lt(after.dateKey())
+                    .or(event.createdOn.eq(after.dateKey()).and(event.id.lt(after.id()))));
+        log.info("Поиск событий пользователя с id:{} c {} элемента и c количеством элементов на странице {}.", userId, from, size);
+        List<EventShortView> events = findShortPage(predicate, Sort.by(Sort.Direction.DESC, "createdOn", "id"),
+                from, size, after);
 
         if (events.isEmpty()) {
             log.debug("События для пользователя с id: {} не найдены.", userId);
-            return Collections.emptyList();
+            return new CursorPage<>(List.of(), null);
         }
 
-        Map<Long, Long> views = getViewsByUris(events, true);
-        if (views.isEmpty())
-            return eventMapper.toEventShortDtoList(events);
-        return events.stream()
-                .map(event -> {
-                    EventShortDto eventShortDto = eventMapper.toEventShortDto(event);
-                    eventShortDto.setViews(views.getOrDefault(event.getId(), 0L));
-                    return eventShortDto;
-                })
-                .toList();
+        String nextCursor = PageCursor.next(events, size,
+                last -> PageCursor.of(CREATED_ORDER, last.createdOn(), last.id()));
+        return new CursorPage<>(toEventShortDtoList(events), nextCursor);
     }
 
     public EventFullDto createEvent(long userId, NewEventDto newEvent) {
         validateEventDate(newEvent.getEventDate());
-        final User user = validateUserExisted(userId);
-        final Category category = validateCategoryExisted(newEvent.getCategory());
+        final User user = referenceLookup.validateUserExisted(userId);
+        final Category category = referenceLookup.validateCategoryExisted(newEvent.getCategory());
         Event savedEvent = eventRepository.save(eventMapper.toEvent(newEvent, category, user));
+        changeVersions.touch(VersionedResource.EVENT, savedEvent.getId());
+        // строка версии комментариев создаётся вместе с событием, а не первыми параллельными комментариями
+        changeVersions.touch(VersionedResource.EVENT_COMMENTS, savedEvent.getId());
+        eventTextIndex.update(savedEvent);
         return eventMapper.toEventFullDto(savedEvent);
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public EventFullDto findEventByIdAndUserId(long eventId, long userId) {
-        validateUserExisted(userId);
+        // запрос к stats-server выполняется параллельно с чтением из БД
+        CompletableFuture<Long> views = CompletableFuture.supplyAsync(
+                () -> getEventsViews(eventId, Constants.VIEWS_START, true), lookupExecutor);
+        referenceLookup.validateUserExisted(userId);
         Event event = validateEventExistedByUserId(eventId, userId);
-        event.setViews(getEventsViews(eventId, event.getCreatedOn(), true));
         if (event.isAllowComments())
             event.setCountOfComments(commentRepository.countByEventIdAndState(eventId, CommentState.PUBLISHED));
+        event.setViews(join(views));
         return eventMapper.toEventFullDto(event);
     }
 
@@ -95,7 +135,7 @@ public class EventService {
         Event event = validateEventExisted(eventId);
         Category category = null;
         if (request.getCategory() != null)
-            category = validateCategoryExisted(request.getCategory());
+            category = referenceLookup.validateCategoryExisted(request.getCategory());
         Event updEventForSave = eventMapper.updateAdminEvent(request, event, category);
 
         if (updEventForSave.getEventDate() != null && updEventForSave.getPublishedOn() != null) {
@@ -110,7 +150,7 @@ public class EventService {
             throw new ConflictException("Опубликовать можно только события с EventsState.PENDING.", "Для запрошенной операции условия не выполнены.");
 
         }
-        if (event.getState() == EventsState.PUBLISHED && request.getStateAction() == StateActionAdmin.REJECT_EVENT) {
+        if (EventsState.VISIBLE.contains(event.getState()) && request.getStateAction() == StateActionAdmin.REJECT_EVENT) {
             log.warn("Выброшено исключение ConflictException: невозможно отклонить опубликованное событие.");
             throw new ConflictException("Невозможно отклонить опубликованное событие.", "Для запрошенной операции условия не выполнены.");
 
@@ -125,6 +165,11 @@ public class EventService {
             }
         }
         Event updatedEvent = eventRepository.save(updEventForSave);
+        changeVersions.touch(VersionedResource.EVENT, eventId);
+        eventTextIndex.update(updatedEvent);
+        ticketAllocator.evict(eventId);
+        domainEvents.publish(request.getStateAction() == StateActionAdmin.PUBLISH_EVENT
+                ? new EventPublished(eventId) : new EventChanged(eventId));
         updatedEvent.setViews(getEventsViews(eventId, event.getCreatedOn(), true));
         if (updatedEvent.isAllowComments())
             updatedEvent.setCountOfComments(commentRepository.countByEventIdAndState(eventId, CommentState.PUBLISHED));
@@ -133,12 +178,12 @@ public class EventService {
     }
 
     public EventFullDto updateEventByUser(UpdateEventUserRequest request, long eventId, long userId) {
-        validateUserExisted(userId);
+        referenceLookup.validateUserExisted(userId);
         Category category = null;
         if (request.getCategory() != null)
-            category = validateCategoryExisted(request.getCategory());
+            category = referenceLookup.validateCategoryExisted(request.getCategory());
         Event event = validateEventExistedByUserId(eventId, userId);
-        if (event.getState() == EventsState.PUBLISHED) {
+        if (EventsState.VISIBLE.contains(event.getState())) {
             log.warn("Выброшено исключение ConflictException: невозможно обновить опубликованное событие.");
             throw new ConflictException("Невозможно обновить опубликованное событие.", "Для запрошенной операции условия не выполнены.");
         }
@@ -151,6 +196,9 @@ public class EventService {
             }
         }
         Event updEvent = eventRepository.save(eventMapper.updateUserEvent(request, event, category));
+        changeVersions.touch(VersionedResource.EVENT, eventId);
+        eventTextIndex.update(updEvent);
+        domainEvents.publish(new EventChanged(eventId));
         updEvent.setViews(getEventsViews(eventId, event.getCreatedOn(), true));
         if (updEvent.isAllowComments())
             updEvent.setCountOfComments(commentRepository.countByEventIdAndState(eventId, CommentState.PUBLISHED));
@@ -159,84 +207,158 @@ public class EventService {
     }
 
     @Transactional(readOnly = true)
-    public List<EventFullDto> findEventsByAdmin(
+    public CursorPage<EventFullDto> findEventsByAdmin(
             List<Long> users,
             List<EventsState> states,
             List<Integer> categories,
             LocalDateTime rangeStart,
             LocalDateTime rangeEnd,
             int from,
-            int size) {
+            int size,
+            String cursor) {
         validateRangeStartAndRangeEnd(rangeStart, rangeEnd);
-        final Pageable pageable = PageRequest.of(from / size, size);
-        Predicate predicate = getPredicateForAdminSearch(users, states, categories, rangeStart, rangeEnd);
+        final PageCursor after = PageCursor.decode(cursor, ID_ORDER);
+        BooleanBuilder predicate = getPredicateForAdminSearch(users, states, categories, rangeStart, rangeEnd);
+        if (after != null)
+            predicate.and(QEvent.event.id.gt(after.id()));
 
-        List<Event> events = eventRepository.findAll(predicate, pageable).getContent();
+        List<Event> events = findPage(predicate, Sort.by("id"), from, size, after);
         if (events.isEmpty()) {
             log.info("События по  заданным параметрам не найдены.");
-            return List.of();
+            return new CursorPage<>(List.of(), null);
         }
         Map<Long, Long> views = getViewsByUris(events, true);
-        events.forEach(event -> {
-            event.setViews(views.getOrDefault(event.getId(), 0L));
-            if (event.isAllowComments())
-                event.setCountOfComments(commentRepository.countByEventIdAndState(event.getId(), CommentState.PUBLISHED));
-        });
+        events.forEach(event -> event.setViews(views.getOrDefault(event.getId(), 0L)));
+        setCountOfComments(events);
         log.info("Запрашиваемые события найдены в количестве: {}.", events.size());
-        return eventMapper.toEventFullDtoList(events);
+        return new CursorPage<>(eventMapper.toEventFullDtoList(events),
+                PageCursor.next(events, size, last -> PageCursor.of(ID_ORDER, last.getId(), last.getId())));
     }
 
-    public List<EventShortDto> getPublicEvents(
+    @Transactional(readOnly = true)
+    public CursorPage<EventShortDto> getPublicEvents(
             String text,
             List<Integer> categories,
             Boolean paid,
             LocalDateTime rangeStart,
             LocalDateTime rangeEnd,
             Boolean onlyAvailable,
+            GeoCircle near,
             EventsSort sort,
             int from,
             int size,
+            String cursor,
             HttpServletRequest request) {
         validateRangeStartAndRangeEnd(rangeStart, rangeEnd);
-        final Pageable pageable = PageRequest.of(from / size, size);
-        Predicate predicate = getPredicateForPublicSearch(text, categories, paid, rangeStart, rangeEnd, onlyAvailable);
-        List<Event> events = eventRepository.findAll(predicate, pageable).getContent();
-        if (events.isEmpty()) {
+        if (sort == EventsSort.DISTANCE && near == null) {
+            log.info("Выброшено ValidationException: сортировка по расстоянию без параметров lat, lon и radius.");
+            throw new ValidationException("Для сортировки по расстоянию нужны параметры lat, lon и radius.",
+                    "Для запрошенной операции условия не выполнены");
+        }
+        final List<String> terms = EventSearch.terms(text);
+        // если текстовый индекс построен, слова ищутся в нём, а БД применяет только остальные фильтры;
+        // запрос из одних служебных слов и слишком широкий запрос индекс возвращает БД, и слова ищутся в ней
+        final Map<Long, Double> textHits = terms.isEmpty() || !eventTextIndex.isReady() ? null : eventTextIndex.search(text);
+        if (textHits != null && textHits.isEmpty()) {
             log.info("События по заданным параметрам не найдены.");
-            return List.of();
+            return new CursorPage<>(List.of(), null);
         }
-        Map<Long, Long> views = getViewsByUris(events, true);
-        events.forEach(event -> {
-            event.setViews(views.getOrDefault(event.getId(), 0L));
-            saveHit(request.getRemoteAddr(), request.getRequestURI() + "/" + event.getId());
-            if (event.isAllowComments())
-                event.setCountOfComments(commentRepository.countByEventIdAndState(event.getId(), CommentState.PUBLISHED));
-        });
-        if (sort == EventsSort.VIEWS) {
-            events = events.stream().sorted(Comparator.comparing(Event::getViews).reversed()).toList();
+        // рядом с точкой события по умолчанию упорядочены по расстоянию
+        final String order = (sort == EventsSort.DISTANCE || sort == null) && near != null ? DISTANCE_ORDER
+                : sort == EventsSort.RELEVANCE && !terms.isEmpty() ? RELEVANCE_ORDER
+                : sort == EventsSort.EVENT_DATE ? EVENT_DATE_ORDER
+                : sort == EventsSort.VIEWS ? VIEWS_ORDER
+                : ID_ORDER;
+        final PageCursor after = PageCursor.decode(cursor, order);
+        BooleanBuilder predicate = getPredicateForPublicSearch(terms, textHits, categories, paid, rangeStart, rangeEnd,
+                onlyAvailable, near);
+        final List<EventCard> events;
+        final String nextCursor;
+        if (order.equals(RELEVANCE_ORDER) || order.equals(DISTANCE_ORDER)) {
+            // у оценки релевантности и расстояния до точки нет устойчивого ключа для условия "после курсора",
+            // поэтому курсор хранит смещение
+            final long offset = after == null ? from : after.longKey();
+            QEventCard card = QEventCard.eventCard;
+            if (order.equals(DISTANCE_ORDER))
+                events = eventCardRepository.findPage(predicate, OffsetPageRequest.of(offset, size, new QSort(
+                        EventGeo.distance(card, near.lat(), near.lon()).asc(), card.id.asc())));
+            else
+                events = textHits != null
+                        ? findPageByRelevance(predicate, textHits, offset, size)
+                        : eventCardRepository.findPage(predicate, OffsetPageRequest.of(offset, size, new QSort(
+                        EventSearch.rank(card.event, terms).desc(), card.eventDate.asc(), card.id.asc())));
+            nextCursor = PageCursor.next(events, size, last -> PageCursor.of(order, offset + size, last.getId()));
+        } else {
+            if (after != null)
+                predicate.and(getPredicateAfterCursor(order, after));
+            events = eventCardRepository.findPage(predicate,
+                    OffsetPageRequest.of(after == null ? from : 0, size, getSortForPublicSearch(order)));
+            nextCursor = PageCursor.next(events, size, last -> PageCursor.of(order, switch (order) {
+                case EVENT_DATE_ORDER -> last.getEventDate();
+                case VIEWS_ORDER -> last.getViews();
+                default -> last.getId();
+            }, last.getId()));
         }
-        if (sort == EventsSort.EVENT_DATE) {
-            events = events.stream().sorted(Comparator.comparing(Event::getEventDate)).toList();
+        if (events.isEmpty()) {
+            log.info("События по заданным параметрам не найдены.");
+            return new CursorPage<>(List.of(), null);
         }
+        // просмотры сохраняются вне read-only транзакции и не задерживают ответ, как и для события по id
+        String ip = request.getRemoteAddr();
+        String uri = request.getRequestURI();
+        List<Long> ids = events.stream().map(EventCard::getId).toList();
+        hitExecutor.send(ids.stream().map(id -> hit(ip, uri + "/" + id)).toList());
         log.info("Запрашиваемые события найдены в количестве:{}.", events.size());
-        return eventMapper.toEventShortDtoList(events);
+        // просмотры берутся из карточек, которые обновляет EventViewsRefresher, без запроса к stats-server
+        return new CursorPage<>(events.stream().map(eventMapper::toEventShortDto).toList(), nextCursor);
+    }
+
+    /**
+     * Версия публичного списка событий: меняется при изменении любого события или категории и после обновления
+     * карточек, из которых читается список, см. {@link EventCards}.
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getPublicEventsVersion() {
+        return resourceVersions.withViews(eventRepository.findStamp().with(categoryRepository.findStamp()),
+                ChangeVersionId.of(VersionedResource.EVENTS), ChangeVersionId.of(VersionedResource.CATEGORIES));
+    }
+
+    /**
+     * Версия опубликованного события вместе с категорией и опубликованными комментариями, число которых
+     * входит в ответ. Категории меняет только администратор, поэтому в версию входит версия всех категорий.
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getPublicEventVersion(long eventId) {
+        ChangeStamp event = eventRepository.findStampByIdAndStateIn(eventId, EventsState.VISIBLE);
+        if (event.isEmpty())
+            return ResourceVersion.NONE;
+        return resourceVersions.withViews(event.with(commentRepository.findStampByEventIdAndState(eventId, CommentState.PUBLISHED)),
+                ChangeVersionId.of(VersionedResource.EVENT, eventId), ChangeVersionId.of(VersionedResource.CATEGORIES),
+                ChangeVersionId.of(VersionedResource.EVENT_COMMENTS, eventId));
     }
 
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public EventFullDto getPublicEventById(long eventId, HttpServletRequest request) {
+        // запрос к stats-server выполняется параллельно с чтением из БД
+        CompletableFuture<Long> views = CompletableFuture.supplyAsync(
+                () -> getEventsViews(eventId, Constants.VIEWS_START, true), lookupExecutor);
         Event event = validateEventExisted(eventId);
-        if (event.getState() != EventsState.PUBLISHED) {
+        // прошедшее событие остаётся доступным по id
+        if (!EventsState.VISIBLE.contains(event.getState())) {
             log.warn("Выброшено NotFoundException: искомый объект не опубликован.");
             throw new NotFoundException("Событие с id: " + eventId + " не было найдено.", "Искомый объект не опубликован.");
         }
-        event.setViews(getEventsViews(eventId, event.getPublishedOn(), true));
-        saveHit(request.getRemoteAddr(), request.getRequestURI());
+        // просмотр отправляется в фоне и не задерживает ответ: если stats-server недоступен,
+        // хит попадает в буфер StatClient и отправляется позже
+        hitExecutor.send(List.of(hit(request.getRemoteAddr(), request.getRequestURI())));
         if (event.isAllowComments())
             event.setCountOfComments(commentRepository.countByEventIdAndState(eventId, CommentState.PUBLISHED));
+        event.setViews(join(views));
         log.info("Запрашиваемое событие с id: {} найдено.", event.getId());
         return eventMapper.toEventFullDto(event);
     }
 
-    private Predicate getPredicateForAdminSearch(List<Long> users,
+    private BooleanBuilder getPredicateForAdminSearch(List<Long> users,
                                                  List<EventsState> states,
                                                  List<Integer> categories,
                                                  LocalDateTime rangeStart,
@@ -258,24 +380,25 @@ public class EventService {
         return predicate;
     }
 
-    private Predicate getPredicateForPublicSearch(String text,
+    private BooleanBuilder getPredicateForPublicSearch(List<String> terms,
+                                                  Map<Long, Double> textHits,
                                                   List<Integer> categories,
                                                   Boolean paid,
                                                   LocalDateTime rangeStart,
                                                   LocalDateTime rangeEnd,
-                                                  Boolean onlyAvailable) {
-        QEvent event = QEvent.event;
+                                                  Boolean onlyAvailable,
+                                                  GeoCircle near) {
+        // карточки есть только у опубликованных событий
+        QEventCard event = QEventCard.eventCard;
         BooleanBuilder predicate = new BooleanBuilder();
-        predicate.and(event.state.eq(EventsState.PUBLISHED));
 
         // проверка запрашиваемых параметров
-        if (StringUtils.hasText(text)) {
-            String searchText = text.toLowerCase();
-            predicate.and(event.annotation.toLowerCase().contains(searchText))
-                    .or(event.description.toLowerCase().contains(searchText));
-        }
+        if (textHits != null)
+            predicate.and(event.id.in(textHits.keySet()));
+        else if (!terms.isEmpty())
+            predicate.and(EventSearch.matches(event.event, terms));
         if (categories != null && !categories.isEmpty())
-            predicate.and(event.category.id.in(categories));
+            predicate.and(event.categoryId.in(categories));
         if (paid != null)
             predicate.and(event.paid.eq(paid));
         if (rangeStart != null)
@@ -285,30 +408,96 @@ public class EventService {
         if (rangeStart == null && rangeEnd == null)
             predicate.and(event.eventDate.goe(LocalDateTime.now()));
         if (onlyAvailable != null && onlyAvailable)
-            predicate.and(event.participantLimit.eq(0L))
-                    .or(event.participantLimit.gt(event.confirmedRequests));
+            predicate.and(event.participantLimit.eq(0L)
+                    .or(event.participantLimit.gt(event.confirmedRequests)));
+        if (near != null)
+            predicate.and(EventGeo.within(event, near.lat(), near.lon(), near.radius()));
         return predicate;
     }
 
-    private void saveHit(String ip, String uri) {
-        EndpointHitNewRequest newRequest = EndpointHitNewRequest.builder()
+    /**
+     * Возвращает страницу событий. Без курсора пропускается from событий, с курсором условие "после курсора" уже
+     * добавлено в predicate, и страница читается с начала выборки без подсчёта общего количества событий.
+     */
+    private List<Event> findPage(Predicate predicate, Sort sort, int from, int size, PageCursor after) {
+        if (after == null)
+            return eventRepository.findAll(predicate, OffsetPageRequest.of(from, size, sort)).getContent();
+        return eventRepository.findBy(predicate, query -> query.sortBy(sort).limit(size).project(EVENT_GRAPH).all());
+    }
+
+    /**
+     * Заполняет число опубликованных комментариев событий одним запросом для всей страницы.
+     */
+    private void setCountOfComments(List<Event> events) {
+        List<Long> ids = events.stream()
+                .filter(Event::isAllowComments)
+                .map(Event::getId)
+                .toList();
+        if (ids.isEmpty())
+            return;
+        Map<Long, Long> counts = commentRepository.countByEventIdInAndState(ids, CommentState.PUBLISHED).stream()
+                .collect(Collectors.toMap(EventCommentsCount::eventId, EventCommentsCount::count));
+        events.stream()
+                .filter(Event::isAllowComments)
+                .forEach(event -> event.setCountOfComments(counts.getOrDefault(event.getId(), 0L)));
+    }
+
+    /**
+     * Возвращает страницу событий для списков, где нужны только поля EventShortDto.
+     */
+    private List<EventShortView> findShortPage(Predicate predicate, Sort sort, int from, int size, PageCursor after) {
+        return eventRepository.findShortViews(predicate, OffsetPageRequest.of(after == null ? from : 0, size, sort));
+    }
+
+    private List<EventShortDto> toEventShortDtoList(List<EventShortView> events) {
+        LocalDateTime start = events.stream().map(EventShortView::createdOn).min(Comparator.naturalOrder())
+                .orElse(Constants.VIEWS_START);
+        Map<Long, Long> views = getViewsByUris(events.stream().map(EventShortView::id).toList(), start, true);
+        return events.stream()
+                .map(event -> {
+                    EventShortDto eventShortDto = eventMapper.toEventShortDto(event);
+                    eventShortDto.setViews(views.getOrDefault(event.id(), 0L));
+                    return eventShortDto;
+                })
+                .toList();
+    }
+
+    private List<EventCard> findPageByRelevance(Predicate predicate, Map<Long, Double> scores, long offset, int size) {
+        return eventCardRepository.findPage(predicate, Pageable.unpaged()).stream()
+                .sorted(Comparator.comparing((EventCard event) -> scores.get(event.getId())).reversed()
+                        .thenComparing(EventCard::getId))
+                .skip(offset)
+                .limit(size)
+                .toList();
+    }
+
+    private Sort getSortForPublicSearch(String order) {
+        return switch (order) {
+            case EVENT_DATE_ORDER -> Sort.by("eventDate", "id");
+            // сортировка по просмотрам идёт по колонке views, которую обновляет EventViewsRefresher
+            case VIEWS_ORDER -> Sort.by(Sort.Order.desc("views"), Sort.Order.asc("id"));
+            default -> Sort.by("id");
+        };
+    }
+
+    private Predicate getPredicateAfterCursor(String order, PageCursor after) {
+        QEventCard event = QEventCard.eventCard;
+        return switch (order) {
+            case EVENT_DATE_ORDER -> event.eventDate.gt(after.dateKey())
+                    .or(event.eventDate.eq(after.dateKey()).and(event.id.gt(after.id())));
+            case VIEWS_ORDER -> event.views.lt(after.longKey())
+                    .or(event.views.eq(after.longKey()).and(event.id.gt(after.id())));
+            default -> event.id.gt(after.id());
+        };
+    }
+
+    private EndpointHitNewRequest hit(String ip, String uri) {
+        return EndpointHitNewRequest.builder()
                 .app("ewm-main-service")
                 .uri(uri)
                 .ip(ip)
                 .timestamp(LocalDateTime.now())
                 .build();
-        log.info("Отправка EndpointHitNewRequest в client.");
-        client.createHit(newRequest);
-    }
-
-    private User validateUserExisted(long userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id: " + userId + " не найден.", "Искомый объект не был найден."));
-    }
-
-    private Category validateCategoryExisted(int catId) {
-        return categoryRepository.findById(catId)
-                .orElseThrow(() -> new NotFoundException("Категория с id: " + catId + " не найдена.", "Искомый объект не был найден."));
     }
 
     private Event validateEventExistedByUserId(long eventId, long userId) {
@@ -338,21 +527,25 @@ public class EventService {
     }
 
     private Map<Long, Long> getViewsByUris(List<Event> events, boolean uniqueIp) {
-        List<String> uris = events
-                .stream()
-                .map(event -> "/events/" + event.getId())
-                .toList();
         final LocalDateTime start;
         Event eventWithEarliestDate = events.stream().min(Comparator.comparing(Event::getCreatedOn)).orElse(null);
         if (eventWithEarliestDate == null)
             start = LocalDateTime.of(2000, 1, 1, 0, 0);
         else
             start = eventWithEarliestDate.getCreatedOn();
+        return getViewsByUris(events.stream().map(Event::getId).toList(), start, uniqueIp);
+    }
+
+    private Map<Long, Long> getViewsByUris(List<Long> eventIds, LocalDateTime start, boolean uniqueIp) {
+        List<String> uris = eventIds
+                .stream()
+                .map(id -> "/events/" + id)
+                .toList();
         final LocalDateTime end = LocalDateTime.now();
         List<ViewStats> views = client.getStats(start.format(Constants.DTF), end.format(Constants.DTF), uris, uniqueIp);
         if (views.isEmpty()) {
-            return events.stream()
-                    .collect(Collectors.toMap(Event::getId, event -> 0L));
+            return eventIds.stream()
+                    .collect(Collectors.toMap(id -> id, id -> 0L));
         }
         return views.stream()
                 .collect(Collectors.toMap(
@@ -370,6 +563,16 @@ public class EventService {
                 .orElse(0L);
     }
 
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
     private Long getIdFromUriString(String uri) {
         try {
             return Long.parseLong(uri.replace("/events/", ""));
@@ -0,0 +1,139 @@
+package ru.practicum.ewm.main.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.main.constants.Constants;
+import ru.practicum.ewm.main.repository.EventCardRepository;
+import ru.practicum.ewm.main.repository.EventViews;
+import ru.practicum.ewm.stats.client.StatClient;
+import ru.practicum.ewm.stats.client.exception.NotAvailableStatServerException;
+import ru.practicum.ewm.stats.dto.ViewStats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Периодически переносит число просмотров опубликованных событий из stats-server в карточки событий,
+ * из которых читается публичный список событий. Сами события не меняются, поэтому обновление просмотров
+ * не меняет их версии.
+ * <p>
+ * Раз в {@code ewm.views.refresh-delay} обновляются только события, которые просматривали с прошлого обновления:
+ * stats-server возвращает uri, на которые пришли просмотры за этот интервал. Интервал начинается раньше на
+ * {@code ewm.views.hit-lag}, чтобы учесть просмотры, доставленные с задержкой. Просмотры, пришедшие ещё позже,
+ * например, из буфера StatClient после долгой недоступности stats-server, переносятся полным обходом карточек
+ * раз в {@code ewm.views.full-refresh-delay} и при старте приложения.
+ */
+@Component
+@Slf4j
+public class EventViewsRefresher {
+    // uri передаются в строке запроса GET /stats, поэтому пакет небольшой
+    private static final int BATCH_SIZE = 100;
+    private static final Pattern EVENT_URI = Pattern.compile("/events/(\\d+)");
+
+    private final EventCardRepository eventCardRepository;
+    private final StatClient client;
+    private final Duration hitLag;
+    // начало интервала, просмотры за который ещё не перенесены
+    private volatile LocalDateTime since;
+
+    public EventViewsRefresher(EventCardRepository eventCardRepository,
+                               StatClient client,
+                               @Value("${ewm.views.hit-lag:PT10M}") Duration hitLag) {
+        this.eventCardRepository = eventCardRepository;
+        this.client = client;
+        this.hitLag = hitLag;
+        // более ранние просмотры переносит полный обход при старте
+        this.since = LocalDateTime.now();
+    }
+
+    /**
+     * Обновляет просмотры событий, которые просматривали с прошлого обновления.
+     */
+    @Scheduled(fixedDelayString = "${ewm.views.refresh-delay:PT1M}")
+    public void refresh() {
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        int updated = 0;
+        List<Long> eventIds;
+        try {
+            eventIds = client.getStats(since.minus(hitLag).format(Constants.DTF), now.format(Constants.DTF), null, false)
+                    .stream()
+                    .map(stats -> eventId(stats.getUri()))
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toList();
+            for (int from = 0; from < eventIds.size(); from += BATCH_SIZE) {
+                List<Long> ids = eventIds.subList(from, Math.min(from + BATCH_SIZE, eventIds.size()));
+                updated += refreshBatch(eventCardRepository.findViewsByIdIn(ids));
+            }
+        } catch (NotAvailableStatServerException e) {
+            log.warn("Просмотры событий не обновлены: {}", e.getMessage());
+            return;
+        }
+        since = now;
+        log.debug("Просмотры обновлены у {} из {} просмотренных событий за {} мс.", updated, eventIds.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Обходит все карточки и обновляет просмотры тех, у которых они изменились.
+     */
+    @Scheduled(fixedDelayString = "${ewm.views.full-refresh-delay:PT6H}")
+    public void refreshAll() {
+        long started = System.currentTimeMillis();
+        int checked = 0;
+        int updated = 0;
+        long afterId = 0;
+        try {
+            List<EventViews> batch;
+            do {
+                batch = eventCardRepository.findViewsAfterId(afterId, Limit.of(BATCH_SIZE));
+                if (batch.isEmpty())
+                    break;
+                updated += refreshBatch(batch);
+                checked += batch.size();
+                afterId = batch.getLast().id();
+            } while (batch.size() == BATCH_SIZE);
+        } catch (NotAvailableStatServerException e) {
+            log.warn("Просмотры событий не обновлены: {}", e.getMessage());
+            return;
+        }
+        log.info("Просмотры обновлены у {} из {} событий за {} мс.", updated, checked,
+                System.currentTimeMillis() - started);
+    }
+
+    private int refreshBatch(List<EventViews> batch) {
+        if (batch.isEmpty())
+            return 0;
+        List<String> uris = batch.stream()
+                .map(event -> "/events/" + event.id())
+                .toList();
+        Map<String, Long> hits = client.getStats(Constants.VIEWS_START.format(Constants.DTF),
+                        LocalDateTime.now().format(Constants.DTF), uris, true)
+                .stream()
+                .collect(Collectors.toMap(ViewStats::getUri, ViewStats::getHits, Long::sum));
+        List<EventViews> changed = new ArrayList<>();
+        for (EventViews event : batch) {
+            long views = hits.getOrDefault("/events/" + event.id(), 0L);
+            if (views != event.views())
+                changed.add(new EventViews(event.id(), views));
+        }
+        eventCardRepository.updateViews(changed);
+        return changed.size();
+    }
+
+    private static Long eventId(String uri) {
+        Matcher matcher = EVENT_URI.matcher(uri);
+        return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
+}
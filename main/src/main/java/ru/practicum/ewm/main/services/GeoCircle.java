@@ -0,0 +1,22 @@
+package ru.practicum.ewm.main.services;
+
+import ru.practicum.ewm.main.exceptions.ValidationException;
+
+/**
+ * Круг поиска событий рядом с точкой: координаты центра в градусах и радиус в километрах.
+ */
+public record GeoCircle(double lat, double lon, double radius) {
+    /**
+     * Собирает круг из параметров запроса.
+     *
+     * @return {@code null}, если ни один параметр не передан
+     */
+    public static GeoCircle of(Double lat, Double lon, Double radius) {
+        if (lat == null && lon == null && radius == null)
+            return null;
+        if (lat == null || lon == null || radius == null)
+            throw new ValidationException("Параметры lat, lon и radius должны передаваться вместе.",
+                    "Для запрошенной операции условия не выполнены");
+        return new GeoCircle(lat, lon, radius);
+    }
+}
@@ -0,0 +1,175 @@
+package ru.practicum.ewm.main.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Кэш в памяти приложения с ограничением размера и временем жизни записей. При переполнении вытесняется
+ * запись, к которой дольше всего не обращались. Отсутствующие в источнике значения не кэшируются.
+ * <p>
+ * Попадания и промахи считаются в метрике {@code ewm.cache.gets} с тегами {@code cache} и {@code result},
+ * размер - в метрике {@code ewm.cache.size}. Записи защищены {@link ReentrantLock}, а не {@code synchronized}:
+ * виртуальный поток, ожидающий блокировку, не закрепляется за платформенным. Загрузка выполняется без блокировки.
+ */
+public class NearCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final ReentrantLock lock = new ReentrantLock();
+    // увеличивается при каждой инвалидации, чтобы значение, прочитанное до неё, не попало в кэш после
+    private long generation;
+
+    public NearCache(String name, int maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > NearCache.this.maxSize;
+            }
+        };
+        this.hits = Counter.builder("ewm.cache.gets")
+                .description("Количество обращений к кэшу")
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ewm.cache.gets")
+                .description("Количество обращений к кэшу")
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("ewm.cache.size", this, NearCache::size)
+                .description("Количество записей в кэше")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает значение из кэша, а при его отсутствии загружает через loader и кэширует найденное значение.
+     */
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        long loadGeneration;
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                hits.increment();
+                return Optional.of(entry.value());
+            }
+            if (entry != null)
+                entries.remove(key);
+            loadGeneration = generation;
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        Optional<V> value = loader.apply(key);
+        value.ifPresent(v -> {
+            lock.lock();
+            try {
+                if (loadGeneration == generation)
+                    entries.put(key, new Entry<>(v, System.nanoTime() + ttlNanos));
+            } finally {
+                lock.unlock();
+            }
+        });
+        return value;
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            generation++;
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateIf(Predicate<V> predicate) {
+        lock.lock();
+        try {
+            generation++;
+            entries.values().removeIf(entry -> predicate.test(entry.value()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает текущие значения кэша для пересчёта через {@link #replace(Snapshot, Map)}.
+     */
+    public Snapshot<K, V> snapshot() {
+        lock.lock();
+        try {
+            Map<K, V> values = new LinkedHashMap<>();
+            long now = System.nanoTime();
+            entries.forEach((key, entry) -> {
+                if (entry.expiresAt() - now > 0)
+                    values.put(key, entry.value());
+            });
+            return new Snapshot<>(generation, values);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Заменяет значения, пересчитанные по снимку, не продлевая время жизни записей. Если после снимка кэш
+     * инвалидировали, пересчитанные значения могут быть устаревшими и не применяются.
+     */
+    public void replace(Snapshot<K, V> snapshot, Map<K, V> values) {
+        lock.lock();
+        try {
+            if (snapshot.generation() != generation)
+                return;
+            values.forEach((key, value) -> entries.computeIfPresent(key, (k, entry) -> new Entry<>(value, entry.expiresAt())));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Доля попаданий среди всех обращений к кэшу.
+     */
+    public double hitRate() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    public record Snapshot<K, V>(long generation, Map<K, V> values) {
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
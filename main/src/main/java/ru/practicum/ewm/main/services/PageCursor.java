@@ -0,0 +1,79 @@
+package ru.practicum.ewm.main.services;
+
+import ru.practicum.ewm.main.exceptions.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Курсор для постраничного вывода по ключу сортировки (keyset pagination).
+ * <p>
+ * Хранит порядок сортировки списка, значение ключа сортировки и id последнего элемента страницы.
+ * Следующая страница выбирается условием "после (ключ, id)" по индексу, поэтому её стоимость не зависит от того,
+ * сколько элементов уже просмотрено. Клиенту курсор передаётся в непрозрачном виде.
+ */
+public record PageCursor(String order, String key, long id) {
+    private static final String SEPARATOR = "|";
+
+    public static PageCursor of(String order, Object key, long id) {
+        return new PageCursor(order, String.valueOf(key), id);
+    }
+
+    /**
+     * Разбирает курсор, полученный от клиента.
+     *
+     * @param order порядок сортировки запрошенного списка, курсор от другого порядка не принимается
+     * @return {@code null}, если курсор не передан
+     */
+    public static PageCursor decode(String cursor, String order) {
+        if (cursor == null || cursor.isBlank())
+            return null;
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARATOR, -1);
+            if (parts.length == 3 && parts[0].equals(order))
+                return new PageCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            // некорректный курсор обрабатывается ниже
+        }
+        throw invalidCursor();
+    }
+
+    /**
+     * Возвращает курсор следующей страницы или {@code null}, если страница неполная и дальше элементов нет.
+     */
+    public static <T> String next(List<T> page, int size, Function<T, PageCursor> cursor) {
+        if (page.size() < size)
+            return null;
+        return cursor.apply(page.getLast()).encode();
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((order + SEPARATOR + key + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long longKey() {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw invalidCursor();
+        }
+    }
+
+    public LocalDateTime dateKey() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw invalidCursor();
+        }
+    }
+
+    private static ValidationException invalidCursor() {
+        return new ValidationException("Некорректное значение cursor.", "Для запрошенной операции условия не выполнены");
+    }
+}
@@ -0,0 +1,93 @@
+package ru.practicum.ewm.main.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.main.exceptions.NotFoundException;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+
+import java.time.Duration;
+
+/**
+ * Проверка существования пользователей и категорий, на которые ссылаются события, заявки и комментарии.
+ * <p>
+ * Категории почти не меняются, пользователи - редко, поэтому найденные значения кэшируются, и повторная проверка
+ * не обращается к БД. Возвращаются новые отсоединённые экземпляры сущностей: их достаточно, чтобы сохранить ссылку
+ * на пользователя или категорию и заполнить DTO, а изменения одного запроса не попадают в кэш.
+ * Сервисы, которые меняют или удаляют пользователей и категории, сбрасывают их из кэша.
+ */
+@Component
+public class ReferenceLookup {
+    private final UserRepository userRepository;
+    private final CategoryRepository categoryRepository;
+    private final NearCache<Long, UserRef> users;
+    private final NearCache<Integer, CategoryRef> categories;
+
+    public ReferenceLookup(UserRepository userRepository,
+                           CategoryRepository categoryRepository,
+                           @Value("${ewm.cache.max-size:10000}") int maxSize,
+                           @Value("${ewm.cache.ttl:PT10M}") Duration ttl,
+                           MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.categoryRepository = categoryRepository;
+        this.users = new NearCache<>("users", maxSize, ttl, meterRegistry);
+        this.categories = new NearCache<>("categories", maxSize, ttl, meterRegistry);
+    }
+
+    public User validateUserExisted(long userId) {
+        UserRef user = users.get(userId, id -> userRepository.findById(id)
+                        .map(found -> new UserRef(found.getId(), found.getEmail(), found.getName())))
+                .orElseThrow(() -> new NotFoundException("Пользователь с id: " + userId + " не найден.", "Искомый объект не был найден."));
+        return new User(user.id(), user.email(), user.name());
+    }
+
+    public Category validateCategoryExisted(int catId) {
+        CategoryRef category = categories.get(catId, id -> categoryRepository.findById(id)
+                        .map(found -> new CategoryRef(found.getId(), found.getName())))
+                .orElseThrow(() -> new NotFoundException("Категория с id: " + catId + " не найдена.", "Искомый объект не был найден."));
+        return new Category(category.id(), category.name());
+    }
+
+    public void evictUser(long userId) {
+        evict(() -> users.invalidate(userId));
+    }
+
+    public void evictCategory(int catId) {
+        evict(() -> categories.invalidate(catId));
+    }
+
+    public double userHitRate() {
+        return users.hitRate();
+    }
+
+    public double categoryHitRate() {
+        return categories.hitRate();
+    }
+
+    /**
+     * Сбрасывает запись сразу и повторно после завершения транзакции: до коммита параллельный запрос ещё может
+     * прочитать из БД и закэшировать старое значение.
+     */
+    private static void evict(Runnable invalidate) {
+        invalidate.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate.run();
+                }
+            });
+        }
+    }
+
+    private record UserRef(long id, String email, String name) {
+    }
+
+    private record CategoryRef(int id, String name) {
+    }
+}
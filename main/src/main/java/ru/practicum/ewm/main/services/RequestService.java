@@ -9,18 +9,20 @@ import ru.practicum.ewm.main.dto.responses.EventRequestStatusUpdateResult;
 import ru.practicum.ewm.main.dto.responses.ParticipationRequestDto;
 import ru.practicum.ewm.main.enums.EventsState;
 import ru.practicum.ewm.main.enums.RequestStatus;
+import ru.practicum.ewm.main.enums.VersionedResource;
 import ru.practicum.ewm.main.exceptions.ConflictException;
 import ru.practicum.ewm.main.exceptions.NotFoundException;
 import ru.practicum.ewm.main.mapper.RequestMapper;
 import ru.practicum.ewm.main.model.Event;
 import ru.practicum.ewm.main.model.Request;
 import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.outbox.DomainEvents;
+import ru.practicum.ewm.main.outbox.RequestCanceled;
+import ru.practicum.ewm.main.outbox.RequestConfirmed;
 import ru.practicum.ewm.main.repository.EventRepository;
 import ru.practicum.ewm.main.repository.RequestRepository;
-import ru.practicum.ewm.main.repository.UserRepository;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -30,18 +32,21 @@ import java.util.List;
 @Transactional
 public class RequestService {
     private final EventRepository eventRepository;
-    private final UserRepository userRepository;
+    private final ReferenceLookup referenceLookup;
     private final RequestRepository requestRepository;
     private final RequestMapper requestMapper;
+    private final TicketAllocator ticketAllocator;
+    private final DomainEvents domainEvents;
+    private final ChangeVersions changeVersions;
 
     @Transactional(readOnly = true)
     public List<ParticipationRequestDto> findUsersRequests(long userId) {
-        validateUserExisted(userId);
+        referenceLookup.validateUserExisted(userId);
         return requestMapper.toParticipationRequestDtoList(requestRepository.findByRequesterId(userId));
     }
 
     public ParticipationRequestDto create(long userId, long eventId) {
-        User requester = validateUserExisted(userId);
+        User requester = referenceLookup.validateUserExisted(userId);
         Event event = validateEventExisted(eventId);
         if (requestRepository.findByEventIdAndRequesterId(eventId, userId).isPresent()) {
             log.warn("Выброшено ConflictException: заявка на участие уже сохранена.");
@@ -58,11 +63,8 @@ public class RequestService {
             throw new ConflictException("Невозможно сохранить запрос.", "Нельзя участвовать в неопубликованном событии.");
         }
 
-        long countConfirmedRequests = event.getConfirmedRequests();
-        if (event.getParticipantLimit() != 0 && (event.getParticipantLimit() < ++countConfirmedRequests)) {
-            log.warn("Выброшено ConflictException: достигнут лимит запросов на участие .");
-            throw new ConflictException("Невозможно сохранить запрос.", "Достигнут лимит запросов на участие .");
-        }
+        if (event.getParticipantLimit() != 0 && event.getParticipantLimit() <= event.getConfirmedRequests())
+            throw participantLimitReached();
 
         Request newRequest = Request.builder()
                 .created(LocalDateTime.now())
@@ -70,19 +72,21 @@ public class RequestService {
                 .requester(requester)
                 .build();
         if (event.getParticipantLimit() == 0 || !event.isRequestModeration()) {
+            if (!reserveSeat(event))
+                throw participantLimitReached();
             newRequest.setStatus(RequestStatus.CONFIRMED);
-            event.setConfirmedRequests(countConfirmedRequests + 1);
-            eventRepository.save(event);
         } else
             newRequest.setStatus(RequestStatus.PENDING);
 
         Request savedRequest = requestRepository.save(newRequest);
+        if (savedRequest.getStatus() == RequestStatus.CONFIRMED)
+            domainEvents.publish(new RequestConfirmed(eventId, List.of(savedRequest.getId())));
         log.info("Запрос на участие успешно сохранен.");
         return requestMapper.toParticipationRequestDto(savedRequest);
     }
 
     public ParticipationRequestDto cancelRequest(long userId, long requestId) {
-        validateUserExisted(userId);
+        referenceLookup.validateUserExisted(userId);
         Request request = requestRepository.findById(requestId)
                 .orElseThrow(() -> new NotFoundException("Запрос на участие с id: " + requestId + " не найден.",
                         "Искомый объект не был найден."));
@@ -94,10 +98,8 @@ public class RequestService {
         request.setStatus(RequestStatus.CANCELED);
         Request updRequest = requestRepository.save(request);
         if (oldStatus == RequestStatus.CONFIRMED) {
-            Event event = request.getEvent();
-            long newConfirmedRequests = event.getConfirmedRequests() - 1;
-            event.setConfirmedRequests(newConfirmedRequests);
-            eventRepository.save(event);
+            freeSeat(request.getEvent());
+            domainEvents.publish(new RequestCanceled(request.getEvent().getId(), requestId));
         }
         log.info("Запрос на участие успешно отменен.");
         return requestMapper.toParticipationRequestDto(updRequest);
@@ -105,7 +107,7 @@ public class RequestService {
 
     @Transactional(readOnly = true)
     public List<ParticipationRequestDto> findRequests(long eventId, long userId) {
-        validateUserExisted(userId);
+        referenceLookup.validateUserExisted(userId);
         validateEventExistedByUserId(eventId, userId);
         List<Request> requestList = requestRepository.findAllByEventId(eventId);
         if (requestList.isEmpty())
@@ -116,57 +118,76 @@ public class RequestService {
     public EventRequestStatusUpdateResult updateRequestsStatus(long eventId,
                                                                long userId,
                                                                EventRequestStatusUpdateRequest request) {
-        validateUserExisted(userId);
+        referenceLookup.validateUserExisted(userId);
         Event event = validateEventExistedByUserId(eventId, userId);
         List<Request> requestsToUpdate = requestRepository.findAllByIdInAndEventId(request.getRequestIds(), eventId);
         if (event.getParticipantLimit() == 0 || !event.isRequestModeration()) {
             log.warn("Выброшено ConflictException: подтверждение заявок не требуется.");
             throw new ConflictException("Подтверждение заявок не требуется.", "Некорректный запрос.");
         }
-        List<Request> confirmedRequests = new ArrayList<>();
-        List<Request> rejectedRequests = new ArrayList<>();
-
-        if (request.getStatus() == RequestStatus.REJECTED) {
-            requestsToUpdate.forEach(req -> {
-                if (req.getStatus() == RequestStatus.PENDING) {
-                    req.setStatus(RequestStatus.REJECTED);
-                    requestRepository.save(req);
-                    rejectedRequests.add(req);
-                } else {
-                    log.warn("Выброшено ConflictException: невозможно обновить статус.");
-                    throw new ConflictException("Выброшено ConflictException: невозможно обновить статус.", "Некорректный запрос.");
-                }
-            });
+        // как и прежде, другие статусы ничего не меняют, а id, не найденные среди заявок события, пропускаются
+        List<Long> ids = requestsToUpdate.stream().map(Request::getId).toList();
+        if (ids.isEmpty() || request.getStatus() != RequestStatus.CONFIRMED && request.getStatus() != RequestStatus.REJECTED)
+            return new EventRequestStatusUpdateResult(List.of(), List.of());
+        // весь набор проверяется до изменений, статусы меняются пакетными UPDATE, число запросов не зависит от размера набора
+        if (requestsToUpdate.stream().anyMatch(req -> req.getStatus() != RequestStatus.PENDING)) {
+            log.warn("Выброшено ConflictException: невозможно обновить статус.");
+            throw new ConflictException("Выброшено ConflictException: невозможно обновить статус.", "Некорректный запрос.");
+        }
+        // места под все заявки занимаются одним условным UPDATE: либо все подтверждаются, либо ни одна
+        if (request.getStatus() == RequestStatus.CONFIRMED && eventRepository.addConfirmedRequests(eventId, ids.size()) == 0) {
+            log.warn("Выброшено ConflictException: Достигнут лимит по заявкам на данное событие..");
+            throw new ConflictException("Достигнут лимит по заявкам на данное событие.", "Для запрошенной операции условия не выполнены.");
+        }
+        if (request.getStatus() == RequestStatus.CONFIRMED)
+            changeVersions.touch(VersionedResource.EVENT, eventId);
+        // заявку могли отменить параллельно с проверкой выше
+        if (requestRepository.updatePendingStatus(ids, request.getStatus()) != ids.size()) {
+            log.warn("Выброшено ConflictException: невозможно обновить статус.");
+            throw new ConflictException("Выброшено ConflictException: невозможно обновить статус.", "Некорректный запрос.");
         }
         if (request.getStatus() == RequestStatus.CONFIRMED) {
-            requestsToUpdate.forEach(req -> {
-                if (req.getStatus() == RequestStatus.PENDING) {
-                    long count = event.getConfirmedRequests();
-                    if (count == event.getParticipantLimit()) {
-                        log.warn("Выброшено ConflictException: Достигнут лимит по заявкам на данное событие..");
-                        throw new ConflictException("Достигнут лимит по заявкам на данное событие.", "Для запрошенной операции условия не выполнены.");
-                    }
-                    req.setStatus(RequestStatus.CONFIRMED);
-                    requestRepository.save(req);
-                    confirmedRequests.add(req);
-                    event.setConfirmedRequests(++count);
-                } else {
-                    log.warn("Выброшено  ConflictException: невозможно обновить статус.");
-                    throw new ConflictException("Выброшено ConflictException: невозможно обновить статус.", "Некорректный запрос.");
-                }
-            });
-            eventRepository.save(event);
+            domainEvents.publish(new RequestConfirmed(eventId, ids));
+            int rejected = requestRepository.rejectPendingIfLimitReached(eventId);
+            if (rejected > 0)
+                log.info("Лимит участников исчерпан, отклонено заявок: {}.", rejected);
         }
+        log.info("Статус заявок на участие успешно обновлен.");
+
+        // сущности отсоединены после пакетного UPDATE, статус в них меняется только для ответа
+        requestsToUpdate.forEach(req -> req.setStatus(request.getStatus()));
+        List<Request> confirmedRequests = request.getStatus() == RequestStatus.CONFIRMED ? requestsToUpdate : List.of();
+        List<Request> rejectedRequests = request.getStatus() == RequestStatus.REJECTED ? requestsToUpdate : List.of();
         return new EventRequestStatusUpdateResult(
                 requestMapper.toParticipationRequestDtoList(confirmedRequests),
                 requestMapper.toParticipationRequestDtoList(rejectedRequests));
     }
 
-    private User validateUserExisted(long userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь с id: " + userId + " не найден.", "Искомый объект не был найден."));
+    private boolean reserveSeat(Event event) {
+        if (ticketAllocator.isActive(event))
+            return ticketAllocator.tryAcquire(event);
+        // место занимается условным UPDATE, поэтому параллельные заявки не превысят лимит
+        if (eventRepository.addConfirmedRequests(event.getId(), 1) == 0)
+            return false;
+        changeVersions.touch(VersionedResource.EVENT, event.getId());
+        return true;
+    }
+
+    private void freeSeat(Event event) {
+        if (ticketAllocator.isActive(event))
+            ticketAllocator.release(event);
+        else {
+            eventRepository.addConfirmedRequests(event.getId(), -1);
+            changeVersions.touch(VersionedResource.EVENT, event.getId());
+        }
     }
 
+    private ConflictException participantLimitReached() {
+        log.warn("Выброшено ConflictException: достигнут лимит запросов на участие .");
+        return new ConflictException("Невозможно сохранить запрос.", "Достигнут лимит запросов на участие .");
+    }
+
+
     private Event validateEventExistedByUserId(long eventId, long userId) {
         return eventRepository.findByIdAndInitiatorId(eventId, userId)
                 .orElseThrow(() -> new NotFoundException("Событие с id: " + eventId +
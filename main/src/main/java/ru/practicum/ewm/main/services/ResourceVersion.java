@@ -0,0 +1,22 @@
+package ru.practicum.ewm.main.services;
+
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Валидаторы публичного ответа для условного GET.
+ *
+ * @param etag         слабый ETag или null, если ресурс не найден и ошибку вернёт обычный путь обработки запроса
+ * @param lastModified время изменения в миллисекундах или -1, если оно неизвестно
+ */
+public record ResourceVersion(String etag, long lastModified) {
+    public static final ResourceVersion NONE = new ResourceVersion(null, -1);
+
+    /**
+     * Сравнивает версию с заголовками If-None-Match и If-Modified-Since и выставляет ETag и Last-Modified ответа.
+     *
+     * @return true, если у клиента актуальная версия и ответ уже помечен как 304 Not Modified
+     */
+    public boolean isNotModified(WebRequest request) {
+        return etag != null && request.checkNotModified(etag, lastModified);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.ewm.main.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import ru.practicum.ewm.main.model.ChangeVersionId;
+import ru.practicum.ewm.main.repository.ChangeStamp;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Строит версии публичных ответов. ETag строится из версий данных {@link ChangeVersions}, которые растут
+ * в порядке коммитов. Last-Modified берётся из сводки {@link ChangeStamp} по строкам ответа; время изменения
+ * не упорядочено по коммитам, поэтому клиент, который прислал и If-None-Match, и If-Modified-Since,
+ * проверяется только по ETag.
+ * <p>
+ * Просмотры хранятся в stats-server и не отражаются в сводках, поэтому версия ответа с просмотрами включает ещё
+ * номер интервала {@code ewm.http.views-freshness}: такой ответ считается актуальным не дольше интервала.
+ */
+@Component
+public class ResourceVersions {
+    private final ChangeVersions changeVersions;
+    private final long viewsFreshness;
+
+    public ResourceVersions(ChangeVersions changeVersions,
+                            @Value("${ewm.http.views-freshness:PT1M}") Duration viewsFreshness) {
+        this.changeVersions = changeVersions;
+        this.viewsFreshness = viewsFreshness.toMillis();
+    }
+
+    public ResourceVersion of(ChangeStamp stamp, ChangeVersionId... ids) {
+        return build(stamp, ids, -1);
+    }
+
+    public ResourceVersion withViews(ChangeStamp stamp, ChangeVersionId... ids) {
+        long now = System.currentTimeMillis();
+        return build(stamp, ids, now - now % viewsFreshness);
+    }
+
+    private ResourceVersion build(ChangeStamp stamp, ChangeVersionId[] ids, long viewsSince) {
+        Map<ChangeVersionId, Long> versions = changeVersions.current(Arrays.asList(ids));
+        String tag = Arrays.stream(ids)
+                .map(id -> id.getResource() + "/" + id.getScope() + ":" + versions.get(id))
+                .collect(Collectors.joining(";", stamp.count() + ":" + Objects.toString(stamp.lastModified(), "") + ";",
+                        ";" + viewsSince));
+        String etag = "W/\"" + DigestUtils.md5DigestAsHex(tag.getBytes(StandardCharsets.UTF_8)) + "\"";
+        return new ResourceVersion(etag, Math.max(viewsSince, millis(stamp.lastModified())));
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time == null ? -1 : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,333 @@
+package ru.practicum.ewm.main.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.main.enums.RequestStatus;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.RequestRepository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Распределение мест на популярные события без премодерации заявок.
+ * <p>
+ * Без распределителя каждая подтверждённая заявка меняет confirmed_requests в строке события, и все заявки
+ * на событие ждут блокировку этой строки. Распределитель хранит свободные места события в памяти, разбитыми
+ * на несколько счётчиков (полос), и выдаёт их через compare-and-set без блокировок. Начальное число мест
+ * считается по подтверждённым заявкам в БД.
+ * <p>
+ * Источник истины - сами заявки в статусе CONFIRMED, они сохраняются в транзакции запроса. Колонка
+ * confirmed_requests пересчитывается по ним пакетно, одним запросом для всех изменившихся событий. Пересчёт
+ * идемпотентен, поэтому после перезапуска приложения счётчики сверяются с заявками, и ни одно место
+ * не учитывается дважды.
+ * <p>
+ * Места, занятые или возвращённые незавершёнными транзакциями, не видны в БД, поэтому места события
+ * пересчитываются по заявкам только тогда, когда таких транзакций нет: после изменения события места
+ * перестают выдаваться, новые заявки ждут завершения начатых транзакций, и места считаются заново.
+ * <p>
+ * Места хранятся в памяти одного экземпляра приложения, поэтому распределитель можно включать, только если
+ * main-service запущен в одном экземпляре: каждый экземпляр выдал бы все места события. Включается настройкой
+ * {@code ewm.requests.allocator.enabled}.
+ */
+@Component
+@Slf4j
+public class TicketAllocator {
+    // 8 значений long занимают кэш-линию, поэтому соседние полосы не делят одну линию между ядрами
+    private static final int PADDING = 8;
+    private static final int FLUSH_BATCH_SIZE = 500;
+    private static final long DRAIN_PAUSE_NANOS = 100_000;
+    private static final int SEED_LOCKS = 64;
+
+    private final EventRepository eventRepository;
+    private final RequestRepository requestRepository;
+    private final EventCards eventCards;
+    private final boolean enabled;
+    private final int stripes;
+
+    private final Map<Long, Seats> seats = new ConcurrentHashMap<>();
+    // события, у которых confirmed_requests нужно пересчитать
+    private final Set<Long> dirtyEvents = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock[] seedLocks = new ReentrantLock[SEED_LOCKS];
+
+    public TicketAllocator(EventRepository eventRepository,
+                           RequestRepository requestRepository,
+                           EventCards eventCards,
+                           @Value("${ewm.requests.allocator.enabled:false}") boolean enabled,
+                           @Value("${ewm.requests.allocator.stripes:8}") int stripes) {
+        this.eventRepository = eventRepository;
+        this.requestRepository = requestRepository;
+        this.eventCards = eventCards;
+        this.enabled = enabled;
+        this.stripes = stripes;
+        for (int i = 0; i < SEED_LOCKS; i++)
+            seedLocks[i] = new ReentrantLock();
+    }
+
+    /**
+     * Проверяет, распределяются ли места события через распределитель.
+     */
+    public boolean isActive(Event event) {
+        return enabled && event.getParticipantLimit() > 0 && !event.isRequestModeration();
+    }
+
+    /**
+     * Занимает место на событии. Если текущая транзакция откатится, место возвращается.
+     *
+     * @return {@code false}, если свободных мест нет
+     */
+    public boolean tryAcquire(Event event) {
+        long eventId = event.getId();
+        Lease lease = enter(event);
+        if (!lease.seats().tryAcquire()) {
+            leave(eventId, lease);
+            return false;
+        }
+        afterCompletion(committed -> {
+            if (committed)
+                dirtyEvents.add(eventId);
+            else
+                lease.seats().release();
+            leave(eventId, lease);
+        });
+        return true;
+    }
+
+    /**
+     * Возвращает место после коммита транзакции, в которой подтверждённая заявка отменена.
+     */
+    public void release(Event event) {
+        long eventId = event.getId();
+        Lease lease = enter(event);
+        afterCompletion(committed -> {
+            if (committed) {
+                lease.seats().release();
+                dirtyEvents.add(eventId);
+            }
+            leave(eventId, lease);
+        });
+    }
+
+    /**
+     * Сбрасывает места события после коммита текущей транзакции, например, при изменении лимита участников.
+     * Места будут посчитаны по БД заново, когда завершатся транзакции, которые уже заняли или вернули место.
+     */
+    public void evict(long eventId) {
+        afterCompletion(committed -> {
+            Seats eventSeats = seats.get(eventId);
+            if (eventSeats != null && eventSeats.drain())
+                seats.remove(eventId, eventSeats);
+        });
+    }
+
+    /**
+     * Пересчитывает confirmed_requests у событий, на которые выданы или возвращены места.
+     */
+    @Scheduled(fixedDelayString = "${ewm.requests.allocator.flush-delay:PT1S}")
+    @PreDestroy
+    public void flush() {
+        List<Long> eventIds = new ArrayList<>();
+        for (Iterator<Long> iterator = dirtyEvents.iterator(); iterator.hasNext() && eventIds.size() < FLUSH_BATCH_SIZE; ) {
+            eventIds.add(iterator.next());
+            iterator.remove();
+        }
+        if (eventIds.isEmpty())
+            return;
+        try {
+            eventRepository.reconcileConfirmedRequests(eventIds);
+            eventCards.refreshConfirmedRequests(eventIds);
+        } catch (RuntimeException e) {
+            dirtyEvents.addAll(eventIds);
+            log.warn("Число подтверждённых заявок не сохранено: {}", e.getMessage());
+            return;
+        }
+        log.debug("Сохранено число подтверждённых заявок у {} событий.", eventIds.size());
+        if (!dirtyEvents.isEmpty())
+            flush();
+    }
+
+    /**
+     * Сверяет confirmed_requests событий без премодерации с подтверждёнными заявками, например, если приложение
+     * остановилось, не сохранив счётчики.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        if (!enabled)
+            return;
+        int reconciled = eventRepository.reconcileUnmoderatedConfirmedRequests();
+        log.info("Сверено число подтверждённых заявок, исправлено событий: {}.", reconciled);
+        eventCards.syncConfirmedRequests();
+    }
+
+    /**
+     * Учитывает текущую транзакцию в местах события, при необходимости посчитав их по БД. Пока места события
+     * сбрасываются, ждёт завершения транзакций, которые уже заняли или вернули место.
+     */
+    private Lease enter(Event event) {
+        long eventId = event.getId();
+        while (true) {
+            Seats eventSeats = seats.get(eventId);
+            if (eventSeats == null)
+                eventSeats = seed(event);
+            int stripe = eventSeats.enter();
+            if (stripe >= 0)
+                return new Lease(eventSeats, stripe);
+            LockSupport.parkNanos(DRAIN_PAUSE_NANOS);
+        }
+    }
+
+    private void leave(long eventId, Lease lease) {
+        if (lease.seats().leave(lease.stripe()))
+            seats.remove(eventId, lease.seats());
+    }
+
+    /**
+     * Считает места события по подтверждённым заявкам. Места считаются под блокировкой, чтобы подсчёт,
+     * начатый до сброса мест, не заменил более поздний. Лимит участников читается из БД: сущность вызывающей
+     * транзакции могла быть загружена до изменения лимита, после которого места сброшены.
+     */
+    private Seats seed(Event event) {
+        ReentrantLock lock = seedLocks[(int) Math.floorMod(event.getId(), (long) seedLocks.length)];
+        lock.lock();
+        try {
+            Seats eventSeats = seats.get(event.getId());
+            if (eventSeats != null)
+                return eventSeats;
+            Long limit = eventRepository.findParticipantLimitById(event.getId()).orElse(null);
+            long available;
+            if (limit == null)
+                available = 0;
+            else if (limit == 0)
+                // лимит сняли после загрузки события вызывающей транзакцией
+                available = Long.MAX_VALUE;
+            else
+                available = Math.max(0, limit - requestRepository.countByEventIdAndStatus(event.getId(), RequestStatus.CONFIRMED));
+            eventSeats = new Seats(available, stripes);
+            seats.put(event.getId(), eventSeats);
+            return eventSeats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+
+    /**
+     * Места события и полоса, в которой учтена транзакция.
+     */
+    private record Lease(Seats seats, int stripe) {
+    }
+
+    /**
+     * Свободные места события, разбитые на полосы. Поток начинает с случайной полосы и переходит к следующей,
+     * если в ней мест нет, так что параллельные заявки редко конкурируют за один счётчик.
+     * <p>
+     * Незавершённые транзакции, которые заняли или вернули место, тоже считаются по полосам. После
+     * {@link #drain()} новые транзакции не принимаются, а последняя завершившаяся сообщает, что места
+     * можно пересчитать.
+     */
+    private static final class Seats {
+        // признак сброса мест в счётчиках незавершённых транзакций
+        private static final long DRAINING = 1L << 62;
+
+        private final AtomicLongArray permits;
+        private final AtomicLongArray open;
+        private final int stripes;
+
+        private Seats(long available, int stripes) {
+            this.permits = new AtomicLongArray(stripes * PADDING);
+            this.open = new AtomicLongArray(stripes * PADDING);
+            this.stripes = stripes;
+            for (int i = 0; i < stripes; i++)
+                permits.set(i * PADDING, available / stripes + (i < available % stripes ? 1 : 0));
+        }
+
+        private boolean tryAcquire() {
+            int start = ThreadLocalRandom.current().nextInt(stripes);
+            for (int i = 0; i < stripes; i++) {
+                int index = (start + i) % stripes * PADDING;
+                long available;
+                while ((available = permits.get(index)) > 0) {
+                    if (permits.compareAndSet(index, available, available - 1))
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        private void release() {
+            permits.incrementAndGet(ThreadLocalRandom.current().nextInt(stripes) * PADDING);
+        }
+
+        /**
+         * Учитывает транзакцию, которая займёт или вернёт место.
+         *
+         * @return полоса, в которой учтена транзакция; -1, если места сбрасываются
+         */
+        private int enter() {
+            int stripe = ThreadLocalRandom.current().nextInt(stripes);
+            int index = stripe * PADDING;
+            long value;
+            do {
+                value = open.get(index);
+                if ((value & DRAINING) != 0)
+                    return -1;
+            } while (!open.compareAndSet(index, value, value + 1));
+            return stripe;
+        }
+
+        /**
+         * @return {@code true}, если места сбрасываются и это была последняя незавершённая транзакция
+         */
+        private boolean leave(int stripe) {
+            return open.decrementAndGet(stripe * PADDING) == DRAINING && isDrained();
+        }
+
+        /**
+         * Перестаёт принимать новые транзакции.
+         *
+         * @return {@code true}, если незавершённых транзакций нет и места можно пересчитать сразу
+         */
+        private boolean drain() {
+            for (int i = 0; i < stripes; i++)
+                open.getAndUpdate(i * PADDING, value -> value | DRAINING);
+            return isDrained();
+        }
+
+        private boolean isDrained() {
+            for (int i = 0; i < stripes; i++) {
+                if (open.get(i * PADDING) != DRAINING)
+                    return false;
+            }
+            return true;
+        }
+    }
+}
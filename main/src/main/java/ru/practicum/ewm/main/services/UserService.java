@@ -3,7 +3,7 @@ package ru.practicum.ewm.main.services;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import ru.practicum.ewm.main.dto.newRequests.NewUserRequest;
@@ -12,9 +12,9 @@ import ru.practicum.ewm.main.exceptions.DuplicatedDataException;
 import ru.practicum.ewm.main.exceptions.NotFoundException;
 import ru.practicum.ewm.main.mapper.UserMapper;
 import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.OffsetPageRequest;
 import ru.practicum.ewm.main.repository.UserRepository;
 
-import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -22,19 +22,28 @@ import java.util.List;
 @Slf4j
 @Transactional
 public class UserService {
+    private static final String ID_ORDER = "id";
+
     private final UserRepository repository;
     private final UserMapper mapper;
+    private final ReferenceLookup referenceLookup;
 
     @Transactional(readOnly = true)
-    public Collection<UserDto> findUsers(List<Long> ids, int from, int size) {
-        final PageRequest pageable = PageRequest.of(from / size, size, Sort.by("id").ascending());
+    public CursorPage<UserDto> findUsers(List<Long> ids, int from, int size, String cursor) {
+        // с курсором выборка начинается после последнего пользователя предыдущей страницы, from не учитывается
+        final PageCursor after = PageCursor.decode(cursor, ID_ORDER);
+        final long afterId = after == null ? 0 : after.id();
+        final Pageable pageable = OffsetPageRequest.of(after == null ? from : 0, size, Sort.by("id").ascending());
+        final List<User> users;
         if (ids == null || ids.isEmpty()) {
-            log.info("Поиск пользователей c номера страницы {} и c количеством элементов на странице {}.", from, size);
-            return mapper.toUserDtoList(repository.findAll(pageable).getContent());
+            log.info("Поиск пользователей c {} элемента и c количеством элементов на странице {}.", from, size);
+            users = repository.findByIdGreaterThan(afterId, pageable);
         } else {
-            log.info("Поиск пользователей c учетом списка ids c номера страницы {} и c количеством элементов на странице {}.", from, size);
-            return mapper.toUserDtoList(repository.findByIdIn(ids, pageable));
+            log.info("Поиск пользователей c учетом списка ids c {} элемента и c количеством элементов на странице {}.", from, size);
+            users = repository.findByIdInAndIdGreaterThan(ids, afterId, pageable);
         }
+        return new CursorPage<>(mapper.toUserDtoList(users),
+                PageCursor.next(users, size, user -> PageCursor.of(ID_ORDER, user.getId(), user.getId())));
     }
 
     public UserDto create(NewUserRequest newUser) {
@@ -51,6 +60,7 @@ public class UserService {
         repository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id: " + userId + " не найден.", "Искомый объект не был найден."));
         repository.deleteById(userId);
+        referenceLookup.evictUser(userId);
         log.info("Пользователь с id {} удален.", userId);
     }
 }
@@ -1,8 +1,4 @@
-DROP TABLE IF EXISTS compilations CASCADE;
-DROP TABLE IF EXISTS requests CASCADE;
-DROP TABLE IF EXISTS events CASCADE;
-DROP TABLE IF EXISTS categories CASCADE;
-DROP TABLE IF EXISTS users CASCADE;
+-- схема, которую до появления миграций создавал Hibernate (ddl-auto: create-drop)
 
 CREATE TABLE IF NOT EXISTS users (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -12,7 +8,8 @@ CREATE TABLE IF NOT EXISTS users (
 
 CREATE TABLE IF NOT EXISTS categories (
     id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    name VARCHAR(50) NOT NULL UNIQUE
+    name VARCHAR(50) NOT NULL UNIQUE,
+    updated_on TIMESTAMP NOT NULL
 );
 
 CREATE TABLE IF NOT EXISTS events (
@@ -25,16 +22,39 @@ CREATE TABLE IF NOT EXISTS events (
     event_date TIMESTAMP NOT NULL,
     published_on TIMESTAMP,
     initiator_id BIGINT NOT NULL REFERENCES users(id),
-    lat FLOAT NOT NULL,
-    lon FLOAT NOT NULL,
-    state VARCHAR(32) NOT NULL,
+    lat REAL NOT NULL,
+    lon REAL NOT NULL,
+    state VARCHAR(255) NOT NULL,
     paid BOOLEAN NOT NULL,
     allow_comments BOOLEAN NOT NULL,
     request_moderation BOOLEAN NOT NULL,
     participant_limit BIGINT NOT NULL,
-    confirmed_requests BIGINT NOT NULL
+    confirmed_requests BIGINT NOT NULL,
+    updated_on TIMESTAMP NOT NULL
 );
 
+CREATE INDEX IF NOT EXISTS events_updated_on_idx ON events (updated_on);
+
+CREATE TABLE IF NOT EXISTS event_cards (
+    event_id BIGINT PRIMARY KEY REFERENCES events(id) ON DELETE CASCADE,
+    category_id INT NOT NULL,
+    category_name VARCHAR(50) NOT NULL,
+    title VARCHAR(120) NOT NULL,
+    annotation VARCHAR(2000) NOT NULL,
+    event_date TIMESTAMP NOT NULL,
+    created_on TIMESTAMP NOT NULL,
+    initiator_id BIGINT NOT NULL,
+    initiator_name VARCHAR(250) NOT NULL,
+    paid BOOLEAN NOT NULL,
+    participant_limit BIGINT NOT NULL,
+    confirmed_requests BIGINT NOT NULL,
+    views BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS event_cards_event_date_idx ON event_cards (event_date, event_id);
+CREATE INDEX IF NOT EXISTS event_cards_views_idx ON event_cards (views, event_id);
+CREATE INDEX IF NOT EXISTS event_cards_category_event_date_idx ON event_cards (category_id, event_date);
+
 CREATE TABLE IF NOT EXISTS requests (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     created TIMESTAMP NOT NULL,
@@ -45,8 +65,9 @@ CREATE TABLE IF NOT EXISTS requests (
 
 CREATE TABLE IF NOT EXISTS compilations (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    title VARCHAR(50) NOT NULL UNIQUE,
-    pinned BOOLEAN NOT NULL
+    title VARCHAR(120) NOT NULL UNIQUE,
+    pinned BOOLEAN NOT NULL,
+    updated_on TIMESTAMP NOT NULL
 );
 
 CREATE TABLE IF NOT EXISTS compilation_events (
@@ -61,9 +82,15 @@ CREATE TABLE IF NOT EXISTS comments (
     author_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
     text VARCHAR(2000) NOT NULL,
     created_on TIMESTAMP NOT NULL,
-    state VARCHAR(30) NOT NULL
+    state VARCHAR(255) NOT NULL,
+    likes BIGINT NOT NULL DEFAULT 0,
+    dislikes BIGINT NOT NULL DEFAULT 0,
+    useful BIGINT NOT NULL DEFAULT 0,
+    updated_on TIMESTAMP NOT NULL
 );
 
+CREATE INDEX IF NOT EXISTS comments_event_state_useful_idx ON comments (event_id, state, useful);
+
 CREATE TABLE IF NOT EXISTS comments_likes (
     comment_id BIGINT NOT NULL REFERENCES comments(id) ON DELETE CASCADE,
     user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
@@ -74,4 +101,4 @@ CREATE TABLE IF NOT EXISTS comments_dislikes (
     comment_id BIGINT NOT NULL REFERENCES comments(id) ON DELETE CASCADE,
     user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
     PRIMARY KEY (comment_id, user_id)
-);
\ No newline at end of file
+);
@@ -0,0 +1,24 @@
+-- индексы под запросы репозиториев; публичный список событий читается из event_cards и индексов
+-- на events для него не требуется. Планы запросов без индексов и с ними выводит QueryIndexesBenchmark
+
+-- поиск событий администратором по статусам и датам
+CREATE INDEX IF NOT EXISTS events_state_event_date_idx ON events (state, event_date);
+-- события пользователя от новых к старым
+CREATE INDEX IF NOT EXISTS events_initiator_created_on_idx ON events (initiator_id, created_on, id);
+-- проверка перед удалением категории и внешний ключ
+CREATE INDEX IF NOT EXISTS events_category_idx ON events (category_id);
+
+-- повторная заявка пользователя на событие
+CREATE INDEX IF NOT EXISTS requests_event_requester_idx ON requests (event_id, requester_id);
+-- подсчёт и отклонение заявок события по статусу
+CREATE INDEX IF NOT EXISTS requests_event_status_idx ON requests (event_id, status);
+-- заявки пользователя
+CREATE INDEX IF NOT EXISTS requests_requester_idx ON requests (requester_id);
+
+-- опубликованные комментарии события от новых к старым
+CREATE INDEX IF NOT EXISTS comments_event_state_created_on_idx ON comments (event_id, state, created_on, id);
+-- комментарии автора от новых к старым
+CREATE INDEX IF NOT EXISTS comments_author_created_on_idx ON comments (author_id, created_on, id);
+
+-- подборки, в которые входит событие
+CREATE INDEX IF NOT EXISTS compilation_events_event_idx ON compilation_events (event_id);
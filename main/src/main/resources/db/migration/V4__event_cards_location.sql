@@ -0,0 +1,12 @@
+-- координаты событий в карточках для поиска в радиусе от точки
+ALTER TABLE event_cards ADD COLUMN IF NOT EXISTS lat REAL;
+ALTER TABLE event_cards ADD COLUMN IF NOT EXISTS lon REAL;
+
+UPDATE event_cards c
+SET lat = (SELECT e.lat FROM events e WHERE e.id = c.event_id),
+    lon = (SELECT e.lon FROM events e WHERE e.id = c.event_id);
+
+ALTER TABLE event_cards ALTER COLUMN lat SET NOT NULL;
+ALTER TABLE event_cards ALTER COLUMN lon SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS event_cards_lat_lon_idx ON event_cards (lat, lon);
@@ -0,0 +1,8 @@
+-- доменные события, ожидающие доставки потребителям (transactional outbox)
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type VARCHAR(50) NOT NULL,
+    payload VARCHAR(1000) NOT NULL,
+    created_on TIMESTAMP NOT NULL,
+    attempts INT NOT NULL
+);
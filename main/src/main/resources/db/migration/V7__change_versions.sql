@@ -0,0 +1,20 @@
+-- версии данных для ETag публичных ответов, увеличиваются перед коммитом изменивших их транзакций.
+-- Версии событий, категорий и комментариев события хранятся по строке на сущность (scope - id), версия набора -
+-- в 16 строках-полосах (scope - номер полосы) и читается как их сумма
+CREATE TABLE IF NOT EXISTS change_versions (
+    resource VARCHAR(20) NOT NULL,
+    scope BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (resource, scope)
+);
+INSERT INTO change_versions (resource, scope, version)
+SELECT r.resource, s.scope, 0
+FROM (VALUES ('EVENTS'), ('CATEGORIES'), ('COMPILATIONS')) AS r (resource)
+CROSS JOIN (VALUES (0), (1), (2), (3), (4), (5), (6), (7), (8), (9), (10), (11), (12), (13), (14), (15)) AS s (scope);
+-- строки версий существующих сущностей, новые создают транзакции, создавшие сущности
+INSERT INTO change_versions (resource, scope, version)
+SELECT 'EVENT', id, 0 FROM events;
+INSERT INTO change_versions (resource, scope, version)
+SELECT 'EVENT_COMMENTS', id, 0 FROM events;
+INSERT INTO change_versions (resource, scope, version)
+SELECT 'CATEGORY', id, 0 FROM categories;
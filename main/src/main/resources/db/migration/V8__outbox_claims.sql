@@ -0,0 +1,9 @@
+-- захват событий outbox экземпляром приложения и события, доставка которых прекращена
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS status VARCHAR(20) NOT NULL DEFAULT 'PENDING';
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS claimed_by VARCHAR(36);
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP;
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS last_error VARCHAR(1000);
+
+CREATE INDEX IF NOT EXISTS outbox_events_status_id_idx ON outbox_events (status, id);
+-- чтение недавних событий для потребителей на каждом экземпляре и удаление доставленных по сроку хранения
+CREATE INDEX IF NOT EXISTS outbox_events_created_on_idx ON outbox_events (created_on);
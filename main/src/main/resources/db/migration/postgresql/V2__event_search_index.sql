@@ -0,0 +1,2 @@
+-- выражение индекса совпадает с fts_match из EventSearchFunctionContributor
+CREATE INDEX IF NOT EXISTS events_fts_idx ON events USING GIN (to_tsvector('russian', annotation || ' ' || description));
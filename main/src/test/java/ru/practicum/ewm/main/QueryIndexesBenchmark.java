@@ -0,0 +1,177 @@
+package ru.practicum.ewm.main;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.practicum.ewm.main.config.SchemaMigrator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение планов и времени запросов эндпоинтов без индексов миграции V3__query_indexes и с ними.
+ * БД заполняется {@code benchmark.events} событиями (по умолчанию 1 000 000), таким же числом заявок и комментариев;
+ * SQL запросов повторяет запросы репозиториев. Для каждого запроса выводится индекс из плана и среднее время.
+ * <p>
+ * По умолчанию используется файловая БД H2 в target. H2 сам индексирует колонки внешних ключей, поэтому в ней разница видна
+ * только для составных индексов и сортировки; PostgreSQL колонки внешних ключей не индексирует, и без V3 запросы
+ * читают таблицы целиком. Запуск на пустой БД PostgreSQL, которая после теста будет очищена:
+ * {@code -Dbenchmark.url=jdbc:postgresql://localhost:5432/ewm_benchmark -Dbenchmark.username=... -Dbenchmark.password=...}.
+ * Не входит в обычный прогон тестов, запуск:
+ * {@code mvn test -pl main -Dtest=QueryIndexesBenchmark}.
+ */
+class QueryIndexesBenchmark {
+    private static final int EVENTS = Integer.getInteger("benchmark.events", 1_000_000);
+    private static final String URL = System.getProperty("benchmark.url", "jdbc:h2:./target/query-indexes-benchmark");
+    private static final boolean POSTGRESQL = URL.startsWith("jdbc:postgresql:");
+    private static final int USERS = 10_000;
+    private static final int CATEGORIES = 100;
+    private static final int ITERATIONS = 20;
+    private static final Pattern CREATED_INDEX = Pattern.compile("CREATE INDEX IF NOT EXISTS (\\w+) ON");
+    // H2 пишет в плане /* PUBLIC.INDEX_NAME */, PostgreSQL - Index Scan using index_name или Seq Scan on table
+    private static final Pattern PLAN_INDEX = Pattern.compile("/\\* PUBLIC\\.(\\w+)|Scan(?: Backward)? using (\\w+)|(Seq Scan)");
+
+    // эндпоинт -> запрос репозитория
+    private static final Map<String, String> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("GET /users/{id}/events", """
+                SELECT id FROM events WHERE initiator_id = 42 ORDER BY created_on DESC, id DESC LIMIT 10""");
+        QUERIES.put("GET /admin/events?states&range", """
+                SELECT id FROM events WHERE state IN ('PENDING') AND event_date BETWEEN ? AND ?
+                ORDER BY id LIMIT 10""");
+        QUERIES.put("DELETE /admin/categories/{id}", """
+                SELECT id FROM events WHERE category_id = 7 LIMIT 1""");
+        QUERIES.put("POST /users/{id}/requests", """
+                SELECT id FROM requests WHERE event_id = 4242 AND requester_id = 42""");
+        QUERIES.put("GET /users/{id}/requests", """
+                SELECT id FROM requests WHERE requester_id = 42""");
+        QUERIES.put("request limit check", """
+                SELECT count(*) FROM requests WHERE event_id = 4242 AND status = 'CONFIRMED'""");
+        QUERIES.put("GET /events/{id}/comments", """
+                SELECT id FROM comments WHERE event_id = 4242 AND state = 'PUBLISHED'
+                ORDER BY created_on DESC, id DESC LIMIT 10""");
+        QUERIES.put("GET /users/{id}/comments", """
+                SELECT id FROM comments WHERE author_id = 42 ORDER BY created_on DESC, id DESC LIMIT 10""");
+    }
+
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void fillDatabase() {
+        // одно соединение на весь тест, чтобы во время запроса не входило открытие соединения
+        dataSource = new SingleConnectionDataSource(URL,
+                System.getProperty("benchmark.username", "u"), System.getProperty("benchmark.password", ""), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new SchemaMigrator(dataSource).migrate();
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("""
+                INSERT INTO users (email, name)
+                SELECT 'user' || x || '@email.com', 'user' || x FROM %s""".formatted(series(USERS)));
+        jdbcTemplate.update("""
+                INSERT INTO categories (name, updated_on)
+                SELECT 'category' || x, ? FROM %s""".formatted(series(CATEGORIES)), now);
+        jdbcTemplate.update("""
+                INSERT INTO events (category_id, title, annotation, description, created_on, event_date, initiator_id,
+                                    lat, lon, state, paid, allow_comments, request_moderation, participant_limit,
+                                    confirmed_requests, updated_on)
+                SELECT MOD(x, %d) + 1, 'title', 'annotation', 'description', %s, %s, MOD(x, %d) + 1,
+                       0, 0, CASE WHEN MOD(x, 10) = 0 THEN 'PENDING' ELSE 'PUBLISHED' END, false, true, true, 0,
+                       0, ?
+                FROM %s""".formatted(CATEGORIES, minutes("?", "-x"), minutes("?", "x"), USERS, series(EVENTS)),
+                now, now, now);
+        jdbcTemplate.update("""
+                INSERT INTO requests (created, event_id, requester_id, status)
+                SELECT ?, MOD(x * 7, %d) + 1, MOD(x, %d) + 1, CASE WHEN MOD(x, 3) = 0 THEN 'CONFIRMED' ELSE 'PENDING' END
+                FROM %s""".formatted(EVENTS, USERS, series(EVENTS)), now);
+        jdbcTemplate.update("""
+                INSERT INTO comments (event_id, author_id, text, created_on, state, likes, dislikes, useful, updated_on)
+                SELECT MOD(x * 13, %d) + 1, MOD(x, %d) + 1, 'comment', %s, 'PUBLISHED', 0, 0, 0, ?
+                FROM %s""".formatted(EVENTS, USERS, minutes("?", "-x"), series(EVENTS)), now, now);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    static void dropDatabase() {
+        jdbcTemplate.execute(POSTGRESQL ? "DROP SCHEMA public CASCADE; CREATE SCHEMA public" : "DROP ALL OBJECTS DELETE FILES");
+        dataSource.destroy();
+    }
+
+    @Test
+    void compareWithAndWithoutIndexes() throws IOException {
+        String script = new ClassPathResource("db/migration/V3__query_indexes.sql")
+                .getContentAsString(StandardCharsets.UTF_8);
+        List<String> indexes = new ArrayList<>();
+        Matcher matcher = CREATED_INDEX.matcher(script);
+        while (matcher.find())
+            indexes.add(matcher.group(1));
+
+        indexes.forEach(index -> jdbcTemplate.execute("DROP INDEX " + index));
+        Map<String, Result> before = measure();
+        jdbcTemplate.execute(script);
+        jdbcTemplate.execute("ANALYZE");
+        Map<String, Result> after = measure();
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-32s %-38s %10s %-38s %10s", "endpoint", "plan before", "ms", "plan after", "ms"));
+        QUERIES.keySet().forEach(endpoint -> report.add(String.format("%-32s %-38s %10.2f %-38s %10.2f", endpoint,
+                before.get(endpoint).index(), before.get(endpoint).millis(),
+                after.get(endpoint).index(), after.get(endpoint).millis())));
+        System.out.printf("events: %d, %s%n", EVENTS, POSTGRESQL ? "PostgreSQL" : "H2");
+        report.forEach(System.out::println);
+        assertThat(report).hasSize(QUERIES.size() + 1);
+    }
+
+    private Map<String, Result> measure() {
+        Map<String, Result> results = new LinkedHashMap<>();
+        // параметры нужны только запросу администратора
+        Object[] range = {LocalDateTime.now().plusDays(10), LocalDateTime.now().plusDays(11)};
+        QUERIES.forEach((endpoint, sql) -> {
+            Object[] args = sql.contains("?") ? range : new Object[0];
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+            // прогрев
+            jdbcTemplate.queryForList(sql, args);
+            long started = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++)
+                jdbcTemplate.queryForList(sql, args);
+            results.put(endpoint, new Result(planIndex(plan), (System.nanoTime() - started) / 1e6 / ITERATIONS));
+        });
+        return results;
+    }
+
+    private static String planIndex(String plan) {
+        Matcher matcher = PLAN_INDEX.matcher(plan);
+        if (!matcher.find())
+            return "?";
+        for (int group = 1; group <= matcher.groupCount(); group++) {
+            if (matcher.group(group) != null)
+                return matcher.group(group);
+        }
+        return "?";
+    }
+
+    private static String series(int count) {
+        return POSTGRESQL ? "generate_series(1, " + count + ") AS s(x)" : "SYSTEM_RANGE(1, " + count + ")";
+    }
+
+    private static String minutes(String timestamp, String count) {
+        return POSTGRESQL ? "CAST(" + timestamp + " AS TIMESTAMP) + (" + count + ") * INTERVAL '1 minute'"
+                : "DATEADD('MINUTE', " + count + ", CAST(" + timestamp + " AS TIMESTAMP))";
+    }
+
+    private record Result(String index, double millis) {
+    }
+}
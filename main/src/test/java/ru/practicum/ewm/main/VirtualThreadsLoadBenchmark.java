@@ -0,0 +1,169 @@
+package ru.practicum.ewm.main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочный тест GET /events/{id} на платформенных и виртуальных потоках Tomcat.
+ * stats-server заменён заглушкой с задержкой ответа, поэтому время запроса в основном уходит на ожидание I/O.
+ * Не входит в обычный прогон тестов, запуск:
+ * {@code mvn test -pl main -Dtest=VirtualThreadsLoadBenchmark}.
+ * <p>
+ * Параметры переопределяются системными свойствами {@code benchmark.requests}, {@code benchmark.stats-latency-ms},
+ * {@code benchmark.tomcat-threads} и {@code benchmark.db-pool-size}.
+ */
+class VirtualThreadsLoadBenchmark {
+    private static final int CONCURRENT_REQUESTS = Integer.getInteger("benchmark.requests", 1000);
+    private static final int STATS_LATENCY_MS = Integer.getInteger("benchmark.stats-latency-ms", 100);
+    private static final int TOMCAT_MAX_THREADS = Integer.getInteger("benchmark.tomcat-threads", 200);
+    private static final int DB_POOL_SIZE = Integer.getInteger("benchmark.db-pool-size", 100);
+
+    private static HttpServer statsServer;
+    private static ExecutorService statsExecutor;
+
+    @BeforeAll
+    static void startStatsServer() throws IOException {
+        statsServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        statsServer.createContext("/hit", exchange -> respond(exchange, 201, null));
+        statsServer.createContext("/stats", exchange -> respond(exchange, 200, "[]"));
+        statsExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        statsServer.setExecutor(statsExecutor);
+        statsServer.start();
+    }
+
+    @AfterAll
+    static void stopStatsServer() {
+        statsServer.stop(0);
+        statsExecutor.shutdownNow();
+    }
+
+    @Test
+    void compareThreadModels() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-10s %10s %12s %10s %10s %8s", "threads", "requests", "requests/s", "p50, ms",
+                "p99, ms", "errors"));
+        for (boolean virtual : new boolean[]{false, true})
+            report.add(run(virtual));
+        report.forEach(System.out::println);
+        assertThat(report).hasSize(3);
+    }
+
+    private String run(boolean virtual) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(EwmMainServer.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--server.tomcat.threads.max=" + TOMCAT_MAX_THREADS,
+                        "--spring.datasource.hikari.maximum-pool-size=" + DB_POOL_SIZE,
+                        "--spring.jpa.show-sql=false",
+                        "--stats-server.url=http://localhost:" + statsServer.getAddress().getPort(),
+                        "--stats-server.http.max-connections=" + CONCURRENT_REQUESTS,
+                        "--stats-server.http.max-connections-per-route=" + CONCURRENT_REQUESTS,
+                        "--stats-server.spill.enabled=false",
+                        "--logging.level.root=WARN")) {
+            long eventId = createPublishedEvent(context);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/events/" + eventId);
+
+            try (HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build()) {
+                // прогрев
+                send(client, uri, 100);
+                long started = System.nanoTime();
+                long[] latencies = send(client, uri, CONCURRENT_REQUESTS);
+                double seconds = (System.nanoTime() - started) / 1e9;
+                long errors = Arrays.stream(latencies).filter(latency -> latency < 0).count();
+                long[] succeeded = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+                return String.format("%-10s %10d %12.0f %10.1f %10.1f %8d", virtual ? "virtual" : "platform",
+                        CONCURRENT_REQUESTS, succeeded.length / seconds,
+                        percentile(succeeded, 0.5), percentile(succeeded, 0.99), errors);
+            }
+        }
+    }
+
+    private long[] send(HttpClient client, URI uri, int count) {
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            futures.add(client.sendAsync(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, e) -> e == null && response.statusCode() == 200 ? System.nanoTime() - start : -1L));
+        }
+        return futures.stream().mapToLong(CompletableFuture::join).toArray();
+    }
+
+    private long createPublishedEvent(ConfigurableApplicationContext context) {
+        User user = context.getBean(UserRepository.class).save(new User(0L, "load@email.com", "loadUser"));
+        Category category = context.getBean(CategoryRepository.class).save(new Category(0, "loadCategory"));
+        return context.getBean(EventRepository.class).save(Event.builder()
+                        .category(category)
+                        .title("eventTitle")
+                        .annotation("eventAnnotation")
+                        .description("eventDescription")
+                        .createdOn(LocalDateTime.now().minusDays(1))
+                        .eventDate(LocalDateTime.now().plusDays(1))
+                        .publishedOn(LocalDateTime.now().minusHours(1))
+                        .initiator(user)
+                        .location(new Location(45, 45))
+                        .state(EventsState.PUBLISHED)
+                        .build())
+                .getId();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0)
+            return 0;
+        return sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)] / 1e6;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        try {
+            Thread.sleep(STATS_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.ewm.main.config;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.client.StatClient;
+import ru.practicum.ewm.stats.dto.EndpointHitNewRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class HitExecutorTest {
+    @Test
+    void hitsAreSpilledWhenQueueIsFull() throws InterruptedException {
+        StatClient client = mock(StatClient.class);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch slowStats = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            slowStats.await();
+            return null;
+        }).when(client).createHit(any());
+
+        try (HitExecutor executor = new HitExecutor(client, 1, 1, false)) {
+            // первый просмотр занимает поток, второй ждёт в очереди, для третьего места нет
+            executor.send(List.of(hit("/events/1")));
+            started.await();
+            executor.send(List.of(hit("/events/2")));
+            executor.send(List.of(hit("/events/3")));
+
+            verify(client).spillHit(argThat(hit -> hit.getUri().equals("/events/3")));
+            slowStats.countDown();
+            verify(client, timeout(1000)).createHit(argThat(hit -> hit.getUri().equals("/events/2")));
+        }
+    }
+
+    private EndpointHitNewRequest hit(String uri) {
+        return EndpointHitNewRequest.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("127.0.0.1")
+                .timestamp(LocalDateTime.of(2026, 1, 1, 0, 0))
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+package ru.practicum.ewm.main.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.main.dto.newRequests.NewUserRequest;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.exceptions.NotFoundException;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.EventCardRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.main.services.EventCards;
+import ru.practicum.ewm.main.services.EventService;
+import ru.practicum.ewm.main.services.UserService;
+import ru.practicum.ewm.stats.client.StatClient;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Основная БД - общая БД H2 тестов, реплика - отдельная БД H2 с той же схемой, в которую изменения
+ * основной БД не копируются. Так по данным видно, из какой БД выполнено чтение.
+ */
+@SpringBootTest(properties = {
+        "ewm.db.replicas.enabled=true",
+        "ewm.db.replicas.urls=" + ReplicaRoutingTest.REPLICA_URL,
+        "ewm.db.replicas.max-lag=PT10S",
+        // отставание реплики задаётся в тесте
+        "ewm.db.replicas.lag-query=SELECT COALESCE(MAX(seconds), 0) FROM replica_lag"})
+class ReplicaRoutingTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+    private static JdbcTemplate replica;
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private EventCards eventCards;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private EventCardRepository eventCardRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ReplicaDataSource replicaDataSource;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @MockBean
+    private StatClient statClient;
+
+    @BeforeAll
+    static void createReplica() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(REPLICA_URL, "u", "");
+        new SchemaMigrator(dataSource).migrate();
+        replica = new JdbcTemplate(dataSource);
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_lag (seconds INT)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventCardRepository.deleteAll();
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+        replica.update("DELETE FROM replica_lag");
+        replicaDataSource.checkLag();
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplica() {
+        userService.create(new NewUserRequest("email@email.com", "userName"));
+
+        // запись и чтение в read-write транзакции идут в основную БД
+        assertThat(countUsers(false)).isEqualTo(1);
+        // read-only транзакции сервисов и репозиториев читают реплику
+        assertThat(countUsers(true)).isZero();
+        assertThat(userService.findUsers(null, 0, 10, null).content()).isEmpty();
+        assertThat(userRepository.count()).isZero();
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        userService.create(new NewUserRequest("email@email.com", "userName"));
+        replica.update("INSERT INTO replica_lag (seconds) VALUES (60)");
+
+        replicaDataSource.checkLag();
+        assertThat(countUsers(true)).isEqualTo(1);
+
+        replica.update("DELETE FROM replica_lag");
+        replicaDataSource.checkLag();
+        assertThat(countUsers(true)).isZero();
+    }
+
+    @Test
+    void publicEventsAreReadFromReplica() {
+        User user = userRepository.save(new User(0L, "email@email.com", "userName"));
+        Category category = categoryRepository.save(new Category(0, "Концерты"));
+        Event event = eventRepository.save(Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation("eventAnnotation")
+                .description("eventDescription")
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(3))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .initiator(user)
+                .location(new Location(45, 45))
+                .state(EventsState.PUBLISHED)
+                .build());
+        eventCards.save(event);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events");
+
+        // событие есть только в основной БД
+        assertThat(eventService.getPublicEvents(null, null, null, null, null, null, null, null, 0, 10, null, request)
+                .content()).isEmpty();
+        assertThatThrownBy(() -> eventService.getPublicEventById(event.getId(), request))
+                .isInstanceOf(NotFoundException.class);
+
+        replica.update("INSERT INTO replica_lag (seconds) VALUES (60)");
+        replicaDataSource.checkLag();
+        assertThat(eventService.getPublicEvents(null, null, null, null, null, null, null, null, 0, 10, null, request)
+                .content()).hasSize(1);
+        assertThat(eventService.getPublicEventById(event.getId(), request).getId()).isEqualTo(event.getId());
+    }
+
+    private Integer countUsers(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT count(*) FROM users", Integer.class));
+    }
+}
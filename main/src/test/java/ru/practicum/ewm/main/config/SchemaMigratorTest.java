@@ -0,0 +1,64 @@
+package ru.practicum.ewm.main.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Миграции на отдельной БД H2, не связанной с БД контекста Spring в других тестах.
+ */
+class SchemaMigratorTest {
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private SchemaMigrator migrator;
+
+    @BeforeEach
+    void setup() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:migrations;DB_CLOSE_DELAY=-1", "u", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        migrator = new SchemaMigrator(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void appliesCommonAndVendorMigrationsOnce() {
+        migrator.migrate();
+
+        // скрипт полнотекстового индекса есть только для PostgreSQL
+        assertThat(jdbcTemplate.queryForList("SELECT version FROM schema_migrations ORDER BY version", Integer.class))
+                .containsExactly(1, 3, 4, 5, 7, 8);
+        assertThat(indexes("EVENTS")).contains("EVENTS_INITIATOR_CREATED_ON_IDX", "EVENTS_STATE_EVENT_DATE_IDX")
+                .doesNotContain("EVENTS_STATE_VIEWS_IDX");
+        assertThat(indexes("REQUESTS")).contains("REQUESTS_EVENT_REQUESTER_IDX", "REQUESTS_REQUESTER_IDX");
+        assertThat(indexes("EVENT_CARDS")).contains("EVENT_CARDS_LAT_LON_IDX");
+
+        migrator.migrate();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM schema_migrations", Integer.class)).isEqualTo(6);
+    }
+
+    @Test
+    void changedMigrationStopsStartup() {
+        migrator.migrate();
+        jdbcTemplate.update("UPDATE schema_migrations SET checksum = checksum + 1 WHERE version = 3");
+
+        assertThatThrownBy(migrator::migrate)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("V3__query_indexes.sql");
+    }
+
+    private List<String> indexes(String table) {
+        return jdbcTemplate.queryForList(
+                "SELECT index_name FROM information_schema.indexes WHERE table_name = ?", String.class, table);
+    }
+}
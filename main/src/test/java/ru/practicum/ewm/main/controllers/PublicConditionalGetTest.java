@@ -0,0 +1,245 @@
+package ru.practicum.ewm.main.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.main.dto.newRequests.NewComment;
+import ru.practicum.ewm.main.dto.newRequests.NewCategoryDto;
+import ru.practicum.ewm.main.dto.updateRequests.UpdateEventAdminRequest;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Compilation;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.CommentRepository;
+import ru.practicum.ewm.main.repository.CompilationRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.RequestRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.main.services.CategoryService;
+import ru.practicum.ewm.main.services.CommentService;
+import ru.practicum.ewm.main.services.EventService;
+import ru.practicum.ewm.main.services.RequestService;
+import ru.practicum.ewm.stats.client.StatClient;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Тест не транзакционный: версии наборов данных увеличиваются при коммите изменивших их транзакций. Интервал
+ * свежести просмотров больше времени теста, чтобы версия не менялась между запросами.
+ */
+@SpringBootTest(properties = "ewm.http.views-freshness=PT1H")
+@AutoConfigureMockMvc
+class PublicConditionalGetTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private CommentService commentService;
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private RequestRepository requestRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private CompilationRepository compilationRepository;
+    @MockBean
+    private StatClient statClient;
+
+    private User user;
+    private Category category;
+    private Event event;
+
+    @BeforeEach
+    void setup() {
+        user = userRepository.save(new User(0L, "email@email.com", "userName"));
+        category = categoryRepository.save(new Category(0, "Концерты"));
+        event = eventRepository.save(Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation("eventAnnotation")
+                .description("eventDescription")
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(3))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .initiator(user)
+                .location(new Location(45, 45))
+                .state(EventsState.PUBLISHED)
+                .allowComments(true)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        compilationRepository.deleteAll();
+        commentRepository.deleteAll();
+        requestRepository.deleteAll();
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void notModifiedEventDoesNotCallStats() throws Exception {
+        String etag = etag("/events/" + event.getId());
+        String eventsTag = etag("/events");
+        verify(statClient, atLeastOnce()).getStats(any(), any(), anyList(), anyBoolean());
+        clearInvocations(statClient);
+
+        mockMvc.perform(get("/events/" + event.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mockMvc.perform(get("/events").header(HttpHeaders.IF_NONE_MATCH, eventsTag))
+                .andExpect(status().isNotModified());
+        verifyNoInteractions(statClient);
+    }
+
+    @Test
+    void changesProduceNewVersion() throws Exception {
+        String eventTag = etag("/events/" + event.getId());
+        String eventsTag = etag("/events");
+
+        eventService.updateEventByAdmin(UpdateEventAdminRequest.builder().title("Новое название").build(), event.getId());
+        assertThat(etag("/events/" + event.getId())).isNotEqualTo(eventTag);
+        assertThat(etag("/events")).isNotEqualTo(eventsTag);
+
+        // число подтверждённых заявок меняется запросом в обход сущности
+        eventTag = etag("/events/" + event.getId());
+        User participant = userRepository.save(new User(0L, "participant@email.com", "participant"));
+        requestService.create(participant.getId(), event.getId());
+        assertThat(etag("/events/" + event.getId())).isNotEqualTo(eventTag);
+
+        // в ответ входит число комментариев
+        eventTag = etag("/events/" + event.getId());
+        String commentsTag = etag("/events/" + event.getId() + "/comments");
+        commentService.createComment(user.getId(), event.getId(), new NewComment("Комментарий"));
+        assertThat(etag("/events/" + event.getId())).isNotEqualTo(eventTag);
+        assertThat(etag("/events/" + event.getId() + "/comments")).isNotEqualTo(commentsTag);
+    }
+
+    @Test
+    void changesOfOtherEventKeepVersion() throws Exception {
+        Event other = eventRepository.save(Event.builder()
+                .category(category)
+                .title("otherTitle")
+                .annotation("otherAnnotation")
+                .description("otherDescription")
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(3))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .initiator(user)
+                .location(new Location(45, 45))
+                .state(EventsState.PUBLISHED)
+                .allowComments(true)
+                .build());
+        String eventTag = etag("/events/" + event.getId());
+        String commentsTag = etag("/events/" + event.getId() + "/comments");
+        String eventsTag = etag("/events");
+
+        User participant = userRepository.save(new User(0L, "participant@email.com", "participant"));
+        requestService.create(participant.getId(), other.getId());
+        commentService.createComment(user.getId(), other.getId(), new NewComment("Комментарий"));
+
+        assertThat(etag("/events/" + event.getId())).isEqualTo(eventTag);
+        assertThat(etag("/events/" + event.getId() + "/comments")).isEqualTo(commentsTag);
+        // число подтверждённых заявок другого события входит в список
+        assertThat(etag("/events")).isNotEqualTo(eventsTag);
+    }
+
+    @Test
+    void categoryAndCompilationVersions() throws Exception {
+        Compilation compilation = compilationRepository.save(Compilation.builder()
+                .title("Подборка")
+                .events(Set.of(event))
+                .build());
+        String categoryTag = etag("/categories/" + category.getId());
+        String categoriesTag = etag("/categories");
+        String compilationTag = etag("/compilations/" + compilation.getId());
+        mockMvc.perform(get("/categories").header(HttpHeaders.IF_NONE_MATCH, categoriesTag))
+                .andExpect(status().isNotModified());
+
+        // категория входит в события подборки
+        categoryService.updateCat(category.getId(), new NewCategoryDto("Выставки"));
+        assertThat(etag("/categories/" + category.getId())).isNotEqualTo(categoryTag);
+        assertThat(etag("/categories")).isNotEqualTo(categoriesTag);
+        assertThat(etag("/compilations/" + compilation.getId())).isNotEqualTo(compilationTag);
+    }
+
+    @Test
+    void versionChangesOnCommit() throws Exception {
+        String categoriesTag = etag("/categories");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            categoryService.updateCat(category.getId(), new NewCategoryDto("Выставки"));
+            status.setRollbackOnly();
+        });
+        assertThat(etag("/categories")).isEqualTo(categoriesTag);
+
+        transaction.executeWithoutResult(status -> {
+            categoryService.updateCat(category.getId(), new NewCategoryDto("Выставки"));
+            // версия увеличивается перед коммитом, до него другие транзакции получают прежнюю
+            assertThat(CompletableFuture.supplyAsync(() -> etagUnchecked("/categories")).join()).isEqualTo(categoriesTag);
+        });
+        assertThat(etag("/categories")).isNotEqualTo(categoriesTag);
+    }
+
+    @Test
+    void missingResourceIsNotConditional() throws Exception {
+        mockMvc.perform(get("/events/" + (event.getId() + 1)).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    private String etag(String uri) throws Exception {
+        String etag = mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("W/\"");
+        return etag;
+    }
+
+    private String etagUnchecked(String uri) {
+        try {
+            return etag(uri);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
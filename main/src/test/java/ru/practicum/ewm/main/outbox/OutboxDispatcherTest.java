@@ -0,0 +1,176 @@
+package ru.practicum.ewm.main.outbox;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import ru.practicum.ewm.main.enums.OutboxStatus;
+import ru.practicum.ewm.main.model.OutboxEvent;
+import ru.practicum.ewm.main.repository.OutboxEventRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Транзакция теста не фиксируется, поэтому после коммита диспетчер не запускается, а периодическая доставка
+ * не видит событий теста; события доставляются вызовом {@link OutboxDispatcher#dispatch()} в транзакции теста.
+ */
+@SpringBootTest(properties = "ewm.outbox.max-attempts=2")
+@Transactional
+class OutboxDispatcherTest {
+    @Autowired
+    private DomainEvents domainEvents;
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private RecordingConsumer consumer;
+    @Autowired
+    private BroadcastRecordingConsumer broadcastConsumer;
+    @Autowired
+    private EntityManager entityManager;
+    @MockBean
+    private StatClient statClient;
+
+    @BeforeEach
+    void setup() {
+        consumer.events.clear();
+        consumer.failing = false;
+        broadcastConsumer.events.clear();
+        // доставленные события других тестов хранятся в outbox до истечения срока хранения
+        outboxEventRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void eventsAreDeliveredInOrderOnce() {
+        domainEvents.publish(new EventPublished(1));
+        domainEvents.publish(new RequestConfirmed(1, List.of(10L, 11L)));
+        domainEvents.publish(new RequestCanceled(1, 20));
+
+        assertThat(outboxDispatcher.dispatch()).isEqualTo(3);
+        assertThat(consumer.events).containsExactly(
+                new EventPublished(1), new RequestConfirmed(1, List.of(10L, 11L)), new RequestCanceled(1, 20));
+        entityManager.clear();
+        assertThat(outboxEventRepository.findAll()).extracting(OutboxEvent::getStatus).containsOnly(OutboxStatus.DELIVERED);
+        assertThat(outboxDispatcher.dispatch()).isZero();
+        assertThat(consumer.events).hasSize(3);
+    }
+
+    @Test
+    void failedEventStopsDeliveryAndIsDeadAfterMaxAttempts() {
+        domainEvents.publish(new EventChanged(1));
+        domainEvents.publish(new EventChanged(2));
+        consumer.failing = true;
+
+        // первая неудача: доставка останавливается, следующее событие ждёт
+        assertThat(outboxDispatcher.dispatch()).isZero();
+        // число попыток меняется запросом в обход контекста персистентности теста
+        entityManager.clear();
+        assertThat(outboxEventRepository.findAll()).extracting(OutboxEvent::getAttempts).containsExactly(1, 0);
+        assertThat(outboxEventRepository.findAll()).extracting(OutboxEvent::getClaimedBy).containsOnlyNulls();
+
+        // вторая неудача исчерпывает попытки, доставка события прекращается; следующее тоже не доставлено
+        assertThat(outboxDispatcher.dispatch()).isEqualTo(1);
+        entityManager.clear();
+        assertThat(outboxEventRepository.findAll())
+                .extracting(OutboxEvent::getStatus, OutboxEvent::getAttempts, OutboxEvent::getLastError)
+                .containsExactly(tuple(OutboxStatus.DEAD, 2, "Потребитель недоступен."),
+                        tuple(OutboxStatus.PENDING, 1, "Потребитель недоступен."));
+
+        consumer.failing = false;
+        assertThat(outboxDispatcher.dispatch()).isEqualTo(1);
+        assertThat(consumer.events).containsExactly(new EventChanged(2));
+        entityManager.clear();
+        assertThat(outboxEventRepository.findAll()).extracting(OutboxEvent::getStatus)
+                .containsExactly(OutboxStatus.DEAD, OutboxStatus.DELIVERED);
+    }
+
+    @Test
+    void eventsClaimedByAnotherInstanceAreSkipped() {
+        domainEvents.publish(new EventChanged(1));
+        domainEvents.publish(new EventChanged(2));
+        LocalDateTime now = LocalDateTime.now();
+        long first = outboxEventRepository.findClaimableIds(now, Limit.of(1)).getFirst();
+        assertThat(outboxEventRepository.claim(List.of(first), "other", now, now.plusMinutes(1))).isEqualTo(1);
+        // закреплённое событие не закрепляется повторно, пока не истёк срок
+        assertThat(outboxEventRepository.claim(List.of(first), "another", now, now.plusMinutes(1))).isZero();
+
+        assertThat(outboxDispatcher.dispatch()).isEqualTo(1);
+        assertThat(consumer.events).containsExactly(new EventChanged(2));
+
+        // срок закрепления истёк: событие забирает этот экземпляр
+        assertThat(outboxDispatcher.dispatch()).isZero();
+        outboxEventRepository.claim(List.of(first), "other", now.plusMinutes(2), now.minusMinutes(1));
+        assertThat(outboxDispatcher.dispatch()).isEqualTo(1);
+        assertThat(consumer.events).containsExactly(new EventChanged(2), new EventChanged(1));
+    }
+
+    @Test
+    void broadcastConsumerReceivesEventsDeliveredByAnotherInstance() {
+        domainEvents.publish(new EventChanged(1));
+        domainEvents.publish(new EventChanged(2));
+        LocalDateTime now = LocalDateTime.now();
+        long first = outboxEventRepository.findClaimableIds(now, Limit.of(1)).getFirst();
+        outboxEventRepository.claim(List.of(first), "other", now, now.plusMinutes(1));
+        assertThat(outboxEventRepository.markDeliveredClaimed(first, "other")).isEqualTo(1);
+
+        assertThat(outboxDispatcher.dispatch()).isEqualTo(1);
+        assertThat(consumer.events).containsExactly(new EventChanged(2));
+        assertThat(broadcastConsumer.events).containsExactly(new EventChanged(1), new EventChanged(2));
+
+        // событие передаётся потребителю экземпляра один раз
+        assertThat(outboxDispatcher.dispatch()).isZero();
+        assertThat(broadcastConsumer.events).hasSize(2);
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        RecordingConsumer recordingConsumer() {
+            return new RecordingConsumer();
+        }
+
+        @Bean
+        BroadcastRecordingConsumer broadcastRecordingConsumer() {
+            return new BroadcastRecordingConsumer();
+        }
+    }
+
+    static class RecordingConsumer implements DomainEventConsumer {
+        private final List<DomainEvent> events = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public void accept(DomainEvent event) {
+            if (failing)
+                throw new IllegalStateException("Потребитель недоступен.");
+            events.add(event);
+        }
+    }
+
+    static class BroadcastRecordingConsumer implements DomainEventConsumer {
+        private final List<DomainEvent> events = new ArrayList<>();
+
+        @Override
+        public boolean isBroadcast() {
+            return true;
+        }
+
+        @Override
+        public void accept(DomainEvent event) {
+            events.add(event);
+        }
+    }
+}
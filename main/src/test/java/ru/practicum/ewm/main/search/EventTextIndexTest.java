@@ -0,0 +1,114 @@
+package ru.practicum.ewm.main.search;
+
+import com.querydsl.core.types.Predicate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.repository.EventRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventTextIndexTest {
+    private EventRepository eventRepository;
+    private EventTextIndex index;
+
+    @BeforeEach
+    void setup() {
+        eventRepository = mock(EventRepository.class);
+        index = new EventTextIndex(eventRepository, true, 100);
+    }
+
+    @Test
+    void stem() {
+        assertThat(RussianStemmer.stem("концертов")).isEqualTo("концерт");
+        assertThat(RussianStemmer.stem("выставками")).isEqualTo("выставк");
+        assertThat(RussianStemmer.stem("красивейшая")).isEqualTo("красив");
+        assertThat(RussianStemmer.stem("известность")).isEqualTo("известн");
+        assertThat(RussianStemmer.stem("ёлочный")).isEqualTo("елочн");
+    }
+
+    @Test
+    void rebuildIndexesOnlyPublishedEvents() {
+        when(eventRepository.findAll(any(Predicate.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(event(1, EventsState.PUBLISHED, "Концерт", "Джаз", "Оркестр"))));
+        assertThat(index.isReady()).isFalse();
+
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.search("концерты").keySet()).containsExactly(1L);
+    }
+
+    @Test
+    void searchByWordFormsAndPrefixes() {
+        index.update(event(1, EventsState.PUBLISHED, "Джазовые концерты", "Играет оркестр", "В городском парке"));
+        index.update(event(2, EventsState.PUBLISHED, "Выставка", "Плакаты", "Открытие выставки"));
+
+        // другая форма слова и начало слова
+        assertThat(index.search("концерт").keySet()).containsExactly(1L);
+        assertThat(index.search("джаз").keySet()).containsExactly(1L);
+        assertThat(index.search("выставкой").keySet()).containsExactly(2L);
+        // событие должно содержать все слова запроса
+        assertThat(index.search("джаз парк").keySet()).containsExactly(1L);
+        assertThat(index.search("джаз выставка")).isEmpty();
+        // служебные слова и знаки препинания не ищутся, такой запрос выполняется средствами БД
+        assertThat(index.search("и, в, на!")).isNull();
+    }
+
+    @Test
+    void rankByBm25WithFieldWeights() {
+        index.update(event(1, EventsState.PUBLISHED, "Вечер в клубе", "Танцы", "Будет играть джаз"));
+        index.update(event(2, EventsState.PUBLISHED, "Вечер под небом", "Джаз на крыше", "Открытая площадка"));
+        index.update(event(3, EventsState.PUBLISHED, "Джаз", "Концерт", "Большой зал"));
+        index.update(event(4, EventsState.PUBLISHED, "Лекция", "Архитектура", "История города"));
+
+        assertThat(index.search("джаз").keySet()).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void broadQueryIsLeftToDatabase() {
+        index = new EventTextIndex(eventRepository, true, 2);
+        index.update(event(1, EventsState.PUBLISHED, "Джаз", "Концерт", "Большой зал"));
+        index.update(event(2, EventsState.PUBLISHED, "Джаз на крыше", "Концерт", "Открытая площадка"));
+        assertThat(index.search("джаз").keySet()).containsExactly(1L, 2L);
+
+        index.update(event(3, EventsState.PUBLISHED, "Джаз в парке", "Концерт", "Летняя сцена"));
+        assertThat(index.search("джаз")).isNull();
+        assertThat(index.search("крыша").keySet()).containsExactly(2L);
+    }
+
+    @Test
+    void updateFollowsEventState() {
+        index.update(event(1, EventsState.PENDING, "Концерт", "Джаз", "Оркестр"));
+        assertThat(index.search("концерт")).isEmpty();
+
+        index.update(event(1, EventsState.PUBLISHED, "Концерт", "Джаз", "Оркестр"));
+        assertThat(index.search("концерт").keySet()).containsExactly(1L);
+
+        // изменённый текст заменяет старый
+        index.update(event(1, EventsState.PUBLISHED, "Лекция", "Джаз", "Оркестр"));
+        assertThat(index.search("концерт")).isEmpty();
+        assertThat(index.search("лекция").keySet()).containsExactly(1L);
+
+        index.update(event(1, EventsState.CANCELED, "Лекция", "Джаз", "Оркестр"));
+        assertThat(index.search("лекция")).isEmpty();
+    }
+
+    private static Event event(long id, EventsState state, String title, String annotation, String description) {
+        return Event.builder()
+                .id(id)
+                .state(state)
+                .title(title)
+                .annotation(annotation)
+                .description(description)
+                .build();
+    }
+}
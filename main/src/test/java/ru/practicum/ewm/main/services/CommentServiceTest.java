@@ -1,5 +1,6 @@
 package ru.practicum.ewm.main.services;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,6 +11,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import ru.practicum.ewm.main.dto.newRequests.NewComment;
 import ru.practicum.ewm.main.dto.responses.CommentDto;
 import ru.practicum.ewm.main.dto.responses.EventFullDto;
+import ru.practicum.ewm.main.dto.responses.UserShortDto;
 import ru.practicum.ewm.main.dto.updateRequests.UpdateCommentAdminRequest;
 import ru.practicum.ewm.main.dto.updateRequests.UpdateCommentUserRequest;
 import ru.practicum.ewm.main.enums.CommentSort;
@@ -26,7 +28,6 @@ import ru.practicum.ewm.main.repository.UserRepository;
 import ru.practicum.ewm.stats.client.StatClient;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
 import java.util.List;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -49,6 +50,8 @@ class CommentServiceTest {
     private EventRepository eventRepository;
     @Autowired
     private EventService eventService;
+    @Autowired
+    private EntityManager entityManager;
     @MockBean
     private StatClient statClient;
 
@@ -199,9 +202,14 @@ class CommentServiceTest {
         when(statClient.getStats(any(), any(), anyList(), anyBoolean())).thenReturn(List.of());
         EventFullDto eventWithComments = eventService.findEventByIdAndUserId(eventId, userId);
         assertThat(eventWithComments.getCountOfComments()).isEqualTo(1);
+        //оценки удаляются вместе с комментарием
+        long likedUserId = userRepository.save(new User(0L, "likedUser@email.com", "likedUserName")).getId();
+        commentService.addLikeToComment(likedUserId, commentDto.getId());
 
         commentService.deleteComment(userId, commentDto.getId());
+        entityManager.flush();
         assertTrue(commentRepository.findById(commentDto.getId()).isEmpty());
+        assertFalse(hasReaction(CommentLike.class, commentDto.getId(), likedUserId));
         eventWithComments = eventService.findEventByIdAndUserId(eventId, userId);
         assertThat(eventWithComments.getCountOfComments()).isEqualTo(0);
 
@@ -264,7 +272,7 @@ class CommentServiceTest {
     @Test
     void findCommentsByAuthor() {
         CommentDto commentDto1 = commentService.createComment(userId, eventId, new NewComment("text1"));
-        List<CommentDto> comments1 = commentService.findCommentsByAuthor(userId, 0, 10);
+        List<CommentDto> comments1 = commentService.findCommentsByAuthor(userId, 0, 10, null).content();
 
         assertNotNull(commentDto1);
         assertFalse(comments1.isEmpty());
@@ -273,26 +281,54 @@ class CommentServiceTest {
 
         //проверить выбрасываемые исключения
         long notExistUserId = 1000000L;
-        assertThrows(NotFoundException.class, () -> commentService.findCommentsByAuthor(notExistUserId, 0, 10));
+        assertThrows(NotFoundException.class, () -> commentService.findCommentsByAuthor(notExistUserId, 0, 10, null).content());
 
         //проверить параметры from, size
         CommentDto commentDto2 = commentService.createComment(userId, eventId, new NewComment("text2"));
         CommentDto commentDto3 = commentService.createComment(userId, eventId, new NewComment("text3"));
         CommentDto commentDto4 = commentService.createComment(userId, eventId, new NewComment("text4"));
 
-        List<CommentDto> comments2 = commentService.findCommentsByAuthor(userId, 2, 2);
+        List<CommentDto> comments2 = commentService.findCommentsByAuthor(userId, 2, 2, null).content();
         assertFalse(comments2.isEmpty());
         assertThat(comments2.size()).isEqualTo(2);
         assertThat(comments2.getFirst()).usingRecursiveComparison().isEqualTo(commentDto2);
         assertThat(comments2.getLast()).usingRecursiveComparison().isEqualTo(commentDto1);
 
-        List<CommentDto> comments3 = commentService.findCommentsByAuthor(userId, 0, 2);
+        List<CommentDto> comments3 = commentService.findCommentsByAuthor(userId, 0, 2, null).content();
         assertFalse(comments3.isEmpty());
         assertThat(comments3.size()).isEqualTo(2);
         assertThat(comments3.getFirst()).usingRecursiveComparison().isEqualTo(commentDto4);
         assertThat(comments3.getLast()).usingRecursiveComparison().isEqualTo(commentDto3);
     }
 
+    @Test
+    void findCommentsByAuthorWithCursor() {
+        CommentDto commentDto1 = commentService.createComment(userId, eventId, new NewComment("text1"));
+        CommentDto commentDto2 = commentService.createComment(userId, eventId, new NewComment("text2"));
+        CommentDto commentDto3 = commentService.createComment(userId, eventId, new NewComment("text3"));
+        //курсор строится по датам, прочитанным из БД, как в отдельном запросе
+        entityManager.flush();
+        entityManager.clear();
+
+        //следующая страница продолжает предыдущую
+        CursorPage<CommentDto> page1 = commentService.findCommentsByAuthor(userId, 0, 2, null);
+        assertThat(page1.content().stream().map(CommentDto::getId).toList())
+                .isEqualTo(List.of(commentDto3.getId(), commentDto2.getId()));
+        assertNotNull(page1.nextCursor());
+
+        CursorPage<CommentDto> page2 = commentService.findCommentsByAuthor(userId, 0, 2, page1.nextCursor());
+        assertThat(page2.content().stream().map(CommentDto::getId).toList()).isEqualTo(List.of(commentDto1.getId()));
+        assertNull(page2.nextCursor());
+
+        //from, не кратный size, пропускает ровно from комментариев
+        List<CommentDto> comments = commentService.findCommentsByAuthor(userId, 1, 2, null).content();
+        assertThat(comments.stream().map(CommentDto::getId).toList())
+                .isEqualTo(List.of(commentDto2.getId(), commentDto1.getId()));
+
+        //проверить выбрасываемые исключения
+        assertThrows(ValidationException.class, () -> commentService.findCommentsByAuthor(userId, 0, 2, "abc"));
+    }
+
     @Test
     void findCommentsByAdmin() {
         //создать новые объекты для проверки фильтрации комментариев
@@ -329,7 +365,7 @@ class CommentServiceTest {
                 null,
                 null,
                 null,
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments1);
         assertFalse(comments1.isEmpty());
         assertThat(comments1.size()).isEqualTo(4);
@@ -345,7 +381,7 @@ class CommentServiceTest {
                 null,
                 null,
                 null,
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments2);
         assertFalse(comments2.isEmpty());
         assertThat(comments2.size()).isEqualTo(2);
@@ -360,7 +396,7 @@ class CommentServiceTest {
                 null,
                 null,
                 null,
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments3);
         assertTrue(comments3.isEmpty());
 
@@ -371,7 +407,7 @@ class CommentServiceTest {
                 null,
                 null,
                 null,
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments4);
         assertFalse(comments4.isEmpty());
         assertThat(comments4.size()).isEqualTo(2);
@@ -385,7 +421,7 @@ class CommentServiceTest {
                 null,
                 null,
                 null,
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments5);
         assertTrue(comments5.isEmpty());
 
@@ -396,7 +432,7 @@ class CommentServiceTest {
                 List.of(eventId),
                 null,
                 null,
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments6);
         assertFalse(comments6.isEmpty());
         assertThat(comments6.size()).isEqualTo(2);
@@ -411,7 +447,7 @@ class CommentServiceTest {
                 List.of(notExistEventId),
                 null,
                 null,
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments7);
         assertTrue(comments7.isEmpty());
 
@@ -422,7 +458,7 @@ class CommentServiceTest {
                 null,
                 LocalDateTime.now().minusHours(1),
                 LocalDateTime.now().plusHours(1),
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments8);
         assertFalse(comments8.isEmpty());
         assertThat(comments8.size()).isEqualTo(4);
@@ -438,7 +474,7 @@ class CommentServiceTest {
                 null,
                 LocalDateTime.now().minusYears(2),
                 LocalDateTime.now().minusYears(1),
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments9);
         assertTrue(comments9.isEmpty());
 
@@ -449,7 +485,7 @@ class CommentServiceTest {
                 null,
                 LocalDateTime.now().plusYears(1),
                 LocalDateTime.now().plusYears(2),
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments10);
         assertTrue(comments10.isEmpty());
 
@@ -460,7 +496,7 @@ class CommentServiceTest {
                 null,
                 null,
                 null,
-                2, 2);
+                2, 2, null).content();
         assertNotNull(comments11);
         assertFalse(comments11.isEmpty());
         assertThat(comments11.size()).isEqualTo(2);
@@ -474,7 +510,7 @@ class CommentServiceTest {
                 null,
                 null,
                 null,
-                0, 2);
+                0, 2, null).content();
         assertNotNull(comments12);
         assertFalse(comments12.isEmpty());
         assertThat(comments12.size()).isEqualTo(2);
@@ -488,7 +524,7 @@ class CommentServiceTest {
                 List.of(otherEventId),
                 LocalDateTime.now().minusHours(1),
                 LocalDateTime.now().plusHours(1),
-                0, 10);
+                0, 10, null).content();
         assertNotNull(comments13);
         assertFalse(comments13.isEmpty());
         assertThat(comments13.size()).isEqualTo(1);
@@ -502,7 +538,7 @@ class CommentServiceTest {
                 null,
                 LocalDateTime.now().plusHours(1),
                 LocalDateTime.now().minusHours(1),
-                0, 10));
+                0, 10, null).content());
     }
 
     @Test
@@ -535,7 +571,7 @@ class CommentServiceTest {
         commentDto3 = commentService.updateCommentByAdmin(commentDto3.getId(), UpdateCommentAdminRequest.builder().state(CommentState.PUBLISHED).build());
 
         //проверка поиска по параметру eventId = eventId. Должен вернуть commentDto2, commentDto1
-        List<CommentDto> comments1 = commentService.findCommentsPublic(eventId, 0, 10, null);
+        List<CommentDto> comments1 = commentService.findCommentsPublic(eventId, 0, 10, null, null).content();
         assertNotNull(comments1);
         assertFalse(comments1.isEmpty());
         assertThat(comments1.size()).isEqualTo(2);
@@ -543,27 +579,27 @@ class CommentServiceTest {
         assertThat(comments1.getLast()).usingRecursiveComparison().isEqualTo(commentDto1);
 
         //проверка поиска по параметру eventId = otherEventId. Должен вернуть только commentDto3, т.к. commentDto4 не опубликован
-        List<CommentDto> comments2 = commentService.findCommentsPublic(otherEventId, 0, 10, null);
+        List<CommentDto> comments2 = commentService.findCommentsPublic(otherEventId, 0, 10, null, null).content();
         assertNotNull(comments2);
         assertFalse(comments2.isEmpty());
         assertThat(comments2.size()).isEqualTo(1);
         assertThat(comments2.getFirst()).usingRecursiveComparison().isEqualTo(commentDto3);
 
         //проверка параметров from, size
-        List<CommentDto> comments3 = commentService.findCommentsPublic(eventId, 0, 1, null);
+        List<CommentDto> comments3 = commentService.findCommentsPublic(eventId, 0, 1, null, null).content();
         assertNotNull(comments3);
         assertFalse(comments3.isEmpty());
         assertThat(comments3.size()).isEqualTo(1);
         assertThat(comments3.getFirst()).usingRecursiveComparison().isEqualTo(commentDto2);
 
-        List<CommentDto> comments4 = commentService.findCommentsPublic(eventId, 1, 1, null);
+        List<CommentDto> comments4 = commentService.findCommentsPublic(eventId, 1, 1, null, null).content();
         assertNotNull(comments4);
         assertFalse(comments4.isEmpty());
         assertThat(comments4.size()).isEqualTo(1);
         assertThat(comments4.getFirst()).usingRecursiveComparison().isEqualTo(commentDto1);
 
         //проверка параметра sort = CommentSort.COMMENT_DATE. Первым элементом должен быть commentDto2
-        List<CommentDto> comments5 = commentService.findCommentsPublic(eventId, 0, 10, CommentSort.COMMENT_DATE);
+        List<CommentDto> comments5 = commentService.findCommentsPublic(eventId, 0, 10, CommentSort.COMMENT_DATE, null).content();
         assertNotNull(comments5);
         assertFalse(comments5.isEmpty());
         assertThat(comments5.size()).isEqualTo(2);
@@ -572,7 +608,7 @@ class CommentServiceTest {
         //проверка параметра sort = CommentSort.USEFUL. Первым элементом должен быть commentDto1
         long newUserId = userRepository.save(new User(0L, "newUser@mail.com", "newUserName")).getId();
         commentDto1 = commentService.addLikeToComment(newUserId, commentDto1.getId());
-        List<CommentDto> comments6 = commentService.findCommentsPublic(eventId, 0, 10, CommentSort.USEFUL);
+        List<CommentDto> comments6 = commentService.findCommentsPublic(eventId, 0, 10, CommentSort.USEFUL, null).content();
         assertNotNull(comments6);
         assertFalse(comments6.isEmpty());
         assertThat(comments6.size()).isEqualTo(2);
@@ -580,7 +616,39 @@ class CommentServiceTest {
 
         //проверить выбрасываемые исключения
         long notExistId = 10000000;
-        assertThrows(NotFoundException.class, () -> commentService.findCommentsPublic(notExistId, 0, 10, null));
+        assertThrows(NotFoundException.class, () -> commentService.findCommentsPublic(notExistId, 0, 10, null, null).content());
+    }
+
+    @Test
+    void findCommentsPublicSortedByUseful() {
+        long otherUserId = userRepository.save(new User(0L, "otherUser@email.com", "otherName")).getId();
+        long otherUserId2 = userRepository.save(new User(0L, "otherUser2@email.com", "otherName2")).getId();
+        long comId1 = createPublishedComment("text1");
+        long comId2 = createPublishedComment("text2");
+        long comId3 = createPublishedComment("text3");
+
+        //comId2: два лайка, comId1: лайк, замененный на дизлайк, comId3: без оценок
+        commentService.addLikeToComment(otherUserId, comId2);
+        commentService.addLikeToComment(otherUserId2, comId2);
+        commentService.addLikeToComment(otherUserId, comId1);
+        commentService.addDislikeToComment(otherUserId, comId1);
+        //полезность хранится в БД
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(commentRepository.findById(comId1).orElseThrow().getUseful()).isEqualTo(-1L);
+        assertThat(commentRepository.findById(comId2).orElseThrow().getUseful()).isEqualTo(2L);
+
+        //порядок по полезности сохраняется между страницами
+        CursorPage<CommentDto> page = commentService.findCommentsPublic(eventId, 0, 2, CommentSort.USEFUL, null);
+        assertThat(page.content().stream().map(CommentDto::getId).toList()).isEqualTo(List.of(comId2, comId3));
+        assertThat(page.content().getFirst().getUseful()).isEqualTo(2L);
+
+        page = commentService.findCommentsPublic(eventId, 0, 2, CommentSort.USEFUL, page.nextCursor());
+        assertThat(page.content().stream().map(CommentDto::getId).toList()).isEqualTo(List.of(comId1));
+        assertNull(page.nextCursor());
+
+        List<CommentDto> comments = commentService.findCommentsPublic(eventId, 2, 2, CommentSort.USEFUL, null).content();
+        assertThat(comments.stream().map(CommentDto::getId).toList()).isEqualTo(List.of(comId1));
     }
 
     @Test
@@ -593,12 +661,8 @@ class CommentServiceTest {
         commentDto = commentService.addLikeToComment(otherUserId, comId);
 
         assertNotNull(commentDto);
-        assertFalse(commentDto.getLikes().isEmpty());
-        assertThat(commentDto.getLikes().size()).isEqualTo(1);
-        List<User> likes = commentDto.getLikes().stream()
-                .sorted(Comparator.comparing(User::getId))
-                .toList();
-        assertThat(likes.getFirst()).usingRecursiveComparison().isEqualTo(otherUser);
+        assertThat(commentDto.getLikesCount()).isEqualTo(1L);
+        assertTrue(hasReaction(CommentLike.class, comId, otherUserId));
         assertThat(commentDto.getUseful()).isEqualTo(1L);
 
         User otherUser2 = userRepository.save(new User(0L, "otherUser2@email.com", "otherUser2Name"));
@@ -606,18 +670,20 @@ class CommentServiceTest {
         commentDto = commentService.addLikeToComment(otherUserId2, comId);
 
         assertNotNull(commentDto);
-        assertFalse(commentDto.getLikes().isEmpty());
-        assertThat(commentDto.getLikes().size()).isEqualTo(2);
-        likes = commentDto.getLikes().stream()
-                .sorted(Comparator.comparing(User::getId))
-                .toList();
-        assertThat(likes.getFirst()).usingRecursiveComparison().isEqualTo(otherUser);
-        assertThat(likes.getLast()).usingRecursiveComparison().isEqualTo(otherUser2);
+        assertThat(commentDto.getLikesCount()).isEqualTo(2L);
+        assertThat(commentDto.getLikes().stream().map(UserShortDto::getId).toList())
+                .isEqualTo(List.of(otherUserId, otherUserId2));
+        assertTrue(hasReaction(CommentLike.class, comId, otherUserId));
+        assertTrue(hasReaction(CommentLike.class, comId, otherUserId2));
         assertThat(commentDto.getUseful()).isEqualTo(2L);
 
         //проверить изменение поля useful, если пользователь, поставивший лайк, потом ставит дизлайк
         commentDto = commentService.addDislikeToComment(otherUserId2, comId);
         assertThat(commentDto.getUseful()).isEqualTo(0L);
+        assertThat(commentDto.getLikesCount()).isEqualTo(1L);
+        assertThat(commentDto.getDislikesCount()).isEqualTo(1L);
+        assertThat(commentDto.getDislikes().getFirst().getId()).isEqualTo(otherUserId2);
+        assertFalse(hasReaction(CommentLike.class, comId, otherUserId2));
 
         //проверить выбрасываемые исключения
         //NotFoundException, если пользователь не найден
@@ -651,7 +717,8 @@ class CommentServiceTest {
         commentDto = commentService.deleteLikeFromComment(otherUserId, comId);
 
         assertNotNull(commentDto);
-        assertTrue(commentDto.getLikes().isEmpty());
+        assertThat(commentDto.getLikesCount()).isEqualTo(0L);
+        assertFalse(hasReaction(CommentLike.class, comId, otherUserId));
         assertThat(commentDto.getUseful()).isEqualTo(0L);
 
         //проверить выбрасываемые исключения
@@ -685,12 +752,8 @@ class CommentServiceTest {
         commentDto = commentService.addDislikeToComment(otherUserId, comId);
 
         assertNotNull(commentDto);
-        assertFalse(commentDto.getDislikes().isEmpty());
-        assertThat(commentDto.getDislikes().size()).isEqualTo(1);
-        List<User> dislikes = commentDto.getDislikes().stream()
-                .sorted(Comparator.comparing(User::getId))
-                .toList();
-        assertThat(dislikes.getFirst()).usingRecursiveComparison().isEqualTo(otherUser);
+        assertThat(commentDto.getDislikesCount()).isEqualTo(1L);
+        assertTrue(hasReaction(CommentDislike.class, comId, otherUserId));
         assertThat(commentDto.getUseful()).isEqualTo(-1L);
 
         User otherUser2 = userRepository.save(new User(0L, "otherUser2@email.com", "otherUser2Name"));
@@ -698,13 +761,9 @@ class CommentServiceTest {
         commentDto = commentService.addDislikeToComment(otherUserId2, comId);
 
         assertNotNull(commentDto);
-        assertFalse(commentDto.getDislikes().isEmpty());
-        assertThat(commentDto.getDislikes().size()).isEqualTo(2);
-        dislikes = commentDto.getDislikes().stream()
-                .sorted(Comparator.comparing(User::getId))
-                .toList();
-        assertThat(dislikes.getFirst()).usingRecursiveComparison().isEqualTo(otherUser);
-        assertThat(dislikes.getLast()).usingRecursiveComparison().isEqualTo(otherUser2);
+        assertThat(commentDto.getDislikesCount()).isEqualTo(2L);
+        assertTrue(hasReaction(CommentDislike.class, comId, otherUserId));
+        assertTrue(hasReaction(CommentDislike.class, comId, otherUserId2));
         assertThat(commentDto.getUseful()).isEqualTo(-2L);
 
         //проверить изменение поля useful, если пользователь, поставивший дизлайк, потом ставит лайк
@@ -743,7 +802,9 @@ class CommentServiceTest {
         commentDto = commentService.deleteDislikeFromComment(otherUserId, comId);
 
         assertNotNull(commentDto);
-        assertTrue(commentDto.getLikes().isEmpty());
+        assertThat(commentDto.getLikesCount()).isEqualTo(0L);
+        assertThat(commentDto.getDislikesCount()).isEqualTo(0L);
+        assertFalse(hasReaction(CommentDislike.class, comId, otherUserId));
         assertThat(commentDto.getUseful()).isEqualTo(0L);
 
         //проверить выбрасываемые исключения
@@ -766,4 +827,18 @@ class CommentServiceTest {
         //ConflictException, если лайк пользователя  не существует
         assertThrows(ConflictException.class, () -> commentService.deleteDislikeFromComment(otherUserId, comId));
     }
-}
\ No newline at end of file
+
+    private long createPublishedComment(String text) {
+        long comId = commentService.createComment(userId, eventId, new NewComment(text)).getId();
+        commentService.updateCommentByAdmin(comId, UpdateCommentAdminRequest.builder().state(CommentState.PUBLISHED).build());
+        return comId;
+    }
+
+    private boolean hasReaction(Class<?> reaction, long comId, long userId) {
+        return entityManager.createQuery("SELECT COUNT(r) FROM " + reaction.getSimpleName()
+                        + " r WHERE r.comment.id = :comId AND r.user.id = :userId", Long.class)
+                .setParameter("comId", comId)
+                .setParameter("userId", userId)
+                .getSingleResult() > 0;
+    }
+}
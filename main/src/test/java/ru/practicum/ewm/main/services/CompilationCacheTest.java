@@ -0,0 +1,170 @@
+package ru.practicum.ewm.main.services;
+
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.ewm.main.dto.newRequests.NewCompilation;
+import ru.practicum.ewm.main.dto.responses.CompilationDto;
+import ru.practicum.ewm.main.dto.responses.EventShortDto;
+import ru.practicum.ewm.main.dto.updateRequests.UpdateCompilationAdminRequest;
+import ru.practicum.ewm.main.dto.updateRequests.UpdateEventAdminRequest;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.exceptions.NotFoundException;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.outbox.OutboxDispatcher;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.CompilationRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+import ru.practicum.ewm.stats.dto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@Transactional
+class CompilationCacheTest {
+    @Autowired
+    private CompilationService compilationService;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private CompilationCache compilationCache;
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+    @Autowired
+    private CompilationRepository compilationRepository;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @MockBean
+    private StatClient statClient;
+
+    private Event event;
+
+    @BeforeEach
+    void setup() {
+        User user = userRepository.save(new User(0L, "email@email.com", "userName"));
+        Category category = categoryRepository.save(new Category(0, "Концерты"));
+        event = eventRepository.save(Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation("eventAnnotation")
+                .description("eventDescription")
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(3))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .initiator(user)
+                .location(new Location(45, 45))
+                .state(EventsState.PUBLISHED)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        compilationRepository.deleteAll();
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void repeatedRequestsAreServedFromCache() {
+        CompilationDto created = createCompilation("Подборка");
+        clearInvocations(statClient);
+
+        compilationService.findPublicCompilations(null, 0, 10);
+        compilationService.findPublicCompilations(null, 0, 10);
+        compilationService.findPublicCompilationById(created.getId());
+        compilationService.findPublicCompilationById(created.getId());
+
+        verify(statClient, times(2)).getStats(any(), any(), anyList(), anyBoolean());
+    }
+
+    @Test
+    void compilationChangesEvictCache() {
+        CompilationDto created = createCompilation("Подборка");
+        compilationService.findPublicCompilations(null, 0, 10);
+        compilationService.findPublicCompilationById(created.getId());
+
+        compilationService.updateCompilationByAdmin(created.getId(),
+                UpdateCompilationAdminRequest.builder().title("Новая подборка").build());
+        assertThat(compilationService.findPublicCompilationById(created.getId()).getTitle()).isEqualTo("Новая подборка");
+        assertThat(compilationService.findPublicCompilations(null, 0, 10))
+                .extracting(CompilationDto::getTitle)
+                .containsExactly("Новая подборка");
+
+        CompilationDto second = createCompilation("Вторая подборка");
+        assertThat(compilationService.findPublicCompilations(null, 0, 10)).hasSize(2);
+
+        compilationService.deleteCompilationById(second.getId());
+        assertThat(compilationService.findPublicCompilations(null, 0, 10)).hasSize(1);
+        assertThatThrownBy(() -> compilationService.findPublicCompilationById(second.getId()))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void eventChangesEvictCompilationsWithEvent() {
+        CompilationDto created = createCompilation("Подборка");
+        compilationService.findPublicCompilations(null, 0, 10);
+        compilationService.findPublicCompilationById(created.getId());
+
+        eventService.updateEventByAdmin(UpdateEventAdminRequest.builder().title("Новое название").build(), event.getId());
+        // транзакция теста не фиксируется, поэтому события из outbox доставляются вызовом диспетчера
+        outboxDispatcher.dispatch();
+
+        assertThat(eventTitle(compilationService.findPublicCompilationById(created.getId()))).isEqualTo("Новое название");
+        assertThat(eventTitle(compilationService.findPublicCompilations(null, 0, 10).getFirst())).isEqualTo("Новое название");
+    }
+
+    @Test
+    void refreshUpdatesViewsOfCachedCompilations() {
+        CompilationDto created = createCompilation("Подборка");
+        assertThat(eventViews(compilationService.findPublicCompilationById(created.getId()))).isZero();
+        assertThat(eventViews(compilationService.findPublicCompilations(null, 0, 10).getFirst())).isZero();
+
+        when(statClient.getStats(any(), any(), anyList(), anyBoolean())).thenReturn(List.of(
+                new ViewStats("ewm-main-service", "/events/" + event.getId(), 7)));
+        compilationCache.refresh();
+        clearInvocations(statClient);
+
+        assertThat(eventViews(compilationService.findPublicCompilationById(created.getId()))).isEqualTo(7);
+        assertThat(eventViews(compilationService.findPublicCompilations(null, 0, 10).getFirst())).isEqualTo(7);
+        verify(statClient, never()).getStats(any(), any(), anyList(), anyBoolean());
+    }
+
+    private CompilationDto createCompilation(String title) {
+        return compilationService.createCompilation(new NewCompilation(title, false, Set.of(event.getId())));
+    }
+
+    private static String eventTitle(CompilationDto compilation) {
+        return compilation.getEvents().iterator().next().getTitle();
+    }
+
+    private static long eventViews(CompilationDto compilation) {
+        return compilation.getEvents().stream().mapToLong(EventShortDto::getViews).sum();
+    }
+}
@@ -0,0 +1,122 @@
+package ru.practicum.ewm.main.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.ewm.main.dto.responses.CompilationDto;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Compilation;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.CompilationRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class CompilationServiceTest {
+    @Autowired
+    private CompilationService compilationService;
+    @Autowired
+    private CompilationRepository compilationRepository;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private StatClient statClient;
+
+    private List<Compilation> compilations;
+
+    @BeforeEach
+    void setup() {
+        User user = userRepository.save(new User(0L, "email@email.com", "userName"));
+        Category category = categoryRepository.save(new Category(0, "Концерты"));
+        compilations = IntStream.range(0, 5)
+                .mapToObj(i -> compilationRepository.save(Compilation.builder()
+                        .title("Подборка " + i)
+                        .pinned(i % 2 == 0)
+                        .events(IntStream.range(0, 3)
+                                .mapToObj(j -> saveEvent(category, user))
+                                .collect(Collectors.toSet()))
+                        .build()))
+                .toList();
+        compilationRepository.save(Compilation.builder().title("Пустая подборка").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        compilationRepository.deleteAll();
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void publicPageLoadsOnlyRequestedCompilations() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<CompilationDto> page = compilationService.findPublicCompilations(null, 2, 2);
+
+        assertThat(page).extracting(CompilationDto::getId)
+                .containsExactly(compilations.get(2).getId(), compilations.get(3).getId());
+        assertThat(page).allSatisfy(compilation -> assertThat(compilation.getEvents()).hasSize(3));
+        // страница id и одна выборка подборок с событиями
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityStatistics(Compilation.class.getName()).getLoadCount()).isEqualTo(2);
+    }
+
+    @Test
+    void publicPageFiltersByPinned() {
+        assertThat(compilationService.findPublicCompilations(true, 0, 10)).extracting(CompilationDto::getId)
+                .containsExactly(compilations.get(0).getId(), compilations.get(2).getId(), compilations.get(4).getId());
+
+        List<CompilationDto> notPinned = compilationService.findPublicCompilations(false, 2, 2);
+        assertThat(notPinned).hasSize(1);
+        assertThat(notPinned.getFirst().getTitle()).isEqualTo("Пустая подборка");
+        assertThat(notPinned.getFirst().getEvents()).isEmpty();
+    }
+
+    private Event saveEvent(Category category, User initiator) {
+        return eventRepository.save(Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation("eventAnnotation")
+                .description("eventDescription")
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(1))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .initiator(initiator)
+                .location(new Location(45, 45))
+                .state(EventsState.PUBLISHED)
+                .build());
+    }
+}
@@ -0,0 +1,202 @@
+package ru.practicum.ewm.main.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ru.practicum.ewm.main.dto.newRequests.NewCategoryDto;
+import ru.practicum.ewm.main.dto.responses.EventShortDto;
+import ru.practicum.ewm.main.dto.updateRequests.UpdateEventAdminRequest;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.enums.StateActionAdmin;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.outbox.OutboxDispatcher;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.EventCardRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.RequestRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+import ru.practicum.ewm.stats.dto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class EventCardsTest {
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private EventViewsRefresher eventViewsRefresher;
+    @Autowired
+    private EventCards eventCards;
+    @Autowired
+    private EventCardRepository eventCardRepository;
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private RequestRepository requestRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private StatClient statClient;
+
+    private User user;
+    private Category category;
+
+    @BeforeEach
+    void setup() {
+        user = userRepository.save(new User(0L, "email@email.com", "userName"));
+        category = categoryRepository.save(new Category(0, "Концерты"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestRepository.deleteAll();
+        eventCardRepository.deleteAll();
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void publicListIsReadFromCards() {
+        Event event = saveEvent(EventsState.PENDING);
+        assertThat(eventCardRepository.existsById(event.getId())).isFalse();
+
+        eventService.updateEventByAdmin(UpdateEventAdminRequest.builder()
+                .stateAction(StateActionAdmin.PUBLISH_EVENT)
+                .build(), event.getId());
+        // транзакция теста не фиксируется, поэтому события из outbox доставляются вызовом диспетчера
+        outboxDispatcher.dispatch();
+        assertThat(eventCardRepository.existsById(event.getId())).isTrue();
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        clearInvocations(statClient);
+
+        List<EventShortDto> events = findPublicEvents(false);
+
+        // одна выборка из таблицы карточек, просмотры не запрашиваются у stats-server
+        assertThat(events).extracting(EventShortDto::getId).containsExactly(event.getId());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        verify(statClient, never()).getStats(any(), any(), anyList(), anyBoolean());
+    }
+
+    @Test
+    void changesReachCards() {
+        Event event = saveEvent(EventsState.PUBLISHED);
+        eventCards.save(event);
+        User participant = userRepository.save(new User(0L, "participant@email.com", "participant"));
+
+        requestService.create(participant.getId(), event.getId());
+        outboxDispatcher.dispatch();
+        categoryService.updateCat(category.getId(), new NewCategoryDto("Выставки"));
+        when(statClient.getStats(any(), any(), anyList(), anyBoolean())).thenReturn(List.of(
+                new ViewStats("ewm-main-service", "/events/" + event.getId(), 9)));
+        eventViewsRefresher.refreshAll();
+        // карточки меняются запросами в обход контекста персистентности теста
+        entityManager.clear();
+
+        EventShortDto card = findPublicEvents(false).getFirst();
+        assertThat(card.getConfirmedRequests()).isEqualTo(1);
+        assertThat(card.getCategory().getName()).isEqualTo("Выставки");
+        assertThat(card.getViews()).isEqualTo(9);
+        // единственное место занято
+        assertThat(findPublicEvents(true)).isEmpty();
+        // изменение события администратором перезаписывает карточку, но не сбрасывает просмотры
+        eventService.updateEventByAdmin(UpdateEventAdminRequest.builder().title("Новое название").build(), event.getId());
+        outboxDispatcher.dispatch();
+        entityManager.clear();
+        assertThat(findPublicEvents(false).getFirst().getViews()).isEqualTo(9);
+    }
+
+    @Test
+    void refreshUpdatesOnlyEventsHitSinceLastRun() {
+        Event viewed = saveEvent(EventsState.PUBLISHED);
+        Event other = saveEvent(EventsState.PUBLISHED);
+        eventCards.save(viewed);
+        eventCards.save(other);
+        when(statClient.getStats(any(), any(), isNull(), eq(false))).thenReturn(List.of(
+                new ViewStats("ewm-main-service", "/events/" + viewed.getId(), 2),
+                new ViewStats("ewm-main-service", "/events", 1)));
+        when(statClient.getStats(any(), any(), anyList(), eq(true))).thenReturn(List.of(
+                new ViewStats("ewm-main-service", "/events/" + viewed.getId(), 3),
+                new ViewStats("ewm-main-service", "/events/" + other.getId(), 7)));
+
+        eventViewsRefresher.refresh();
+        entityManager.clear();
+
+        // полные просмотры запрашиваются только для событий, которые просматривали с прошлого обновления
+        verify(statClient).getStats(any(), any(), eq(List.of("/events/" + viewed.getId())), eq(true));
+        assertThat(eventCardRepository.findById(viewed.getId()).orElseThrow().getViews()).isEqualTo(3);
+        assertThat(eventCardRepository.findById(other.getId()).orElseThrow().getViews()).isZero();
+    }
+
+    @Test
+    void missingCardsAreCreated() {
+        Event published = saveEvent(EventsState.PUBLISHED);
+        saveEvent(EventsState.PENDING);
+
+        eventCards.createMissing();
+
+        assertThat(findPublicEvents(false)).extracting(EventShortDto::getId).containsExactly(published.getId());
+    }
+
+    private List<EventShortDto> findPublicEvents(boolean onlyAvailable) {
+        return eventService.getPublicEvents(null, null, null, null, null, onlyAvailable, null, null, 0, 10, null,
+                new MockHttpServletRequest("GET", "/events")).content();
+    }
+
+    private Event saveEvent(EventsState state) {
+        return eventRepository.save(Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation("eventAnnotation")
+                .description("eventDescription")
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(3))
+                .initiator(user)
+                .location(new Location(45, 45))
+                .state(state)
+                .participantLimit(1)
+                .requestModeration(false)
+                .build());
+    }
+}
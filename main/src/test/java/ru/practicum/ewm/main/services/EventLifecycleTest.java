@@ -0,0 +1,127 @@
+package ru.practicum.ewm.main.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ru.practicum.ewm.main.dto.updateRequests.UpdateEventUserRequest;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.exceptions.ConflictException;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.EventCard;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.EventCardRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// пакеты по одному событию, чтобы проверить ограничение числа пакетов за запуск
+@SpringBootTest(properties = {"ewm.events.lifecycle.batch-size=1", "ewm.events.lifecycle.max-batches=2"})
+@Transactional
+class EventLifecycleTest {
+    @Autowired
+    private EventLifecycle eventLifecycle;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private EventCards eventCards;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private EventCardRepository eventCardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @MockBean
+    private StatClient statClient;
+
+    private User user;
+    private Category category;
+
+    @BeforeEach
+    void setup() {
+        user = userRepository.save(new User(0L, "email@email.com", "userName"));
+        category = categoryRepository.save(new Category(0, "Концерты"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventCardRepository.deleteAll();
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void pastEventsAreCompletedInBoundedBatches() {
+        Event first = saveEvent(EventsState.PUBLISHED, LocalDateTime.now().minusDays(3));
+        Event second = saveEvent(EventsState.PUBLISHED, LocalDateTime.now().minusDays(2));
+        Event third = saveEvent(EventsState.PUBLISHED, LocalDateTime.now().minusDays(1));
+        Event upcoming = saveEvent(EventsState.PUBLISHED, LocalDateTime.now().plusDays(1));
+        Event pending = saveEvent(EventsState.PENDING, LocalDateTime.now().minusDays(1));
+
+        eventLifecycle.completePastEvents();
+        // события меняются запросами в обход контекста персистентности теста
+        entityManager.clear();
+        // за запуск обрабатываются два пакета по одному событию, начиная с самых ранних
+        assertThat(state(first)).isEqualTo(EventsState.COMPLETED);
+        assertThat(state(second)).isEqualTo(EventsState.COMPLETED);
+        assertThat(state(third)).isEqualTo(EventsState.PUBLISHED);
+
+        eventLifecycle.completePastEvents();
+        entityManager.clear();
+        assertThat(state(third)).isEqualTo(EventsState.COMPLETED);
+        assertThat(state(upcoming)).isEqualTo(EventsState.PUBLISHED);
+        assertThat(state(pending)).isEqualTo(EventsState.PENDING);
+        assertThat(eventCardRepository.findAll()).extracting(EventCard::getId).containsExactly(upcoming.getId());
+    }
+
+    @Test
+    void completedEventStaysVisibleButCannotBeChanged() {
+        Event past = saveEvent(EventsState.PUBLISHED, LocalDateTime.now().minusDays(1));
+        eventLifecycle.completePastEvents();
+        entityManager.clear();
+
+        assertThat(eventService.getPublicEventById(past.getId(), new MockHttpServletRequest("GET",
+                "/events/" + past.getId())).getState()).isEqualTo(EventsState.COMPLETED);
+        assertThatThrownBy(() -> eventService.updateEventByUser(UpdateEventUserRequest.builder().build(),
+                past.getId(), user.getId()))
+                .isInstanceOf(ConflictException.class);
+    }
+
+    private EventsState state(Event event) {
+        return eventRepository.findById(event.getId()).orElseThrow().getState();
+    }
+
+    private Event saveEvent(EventsState state, LocalDateTime eventDate) {
+        Event event = eventRepository.save(Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation("eventAnnotation")
+                .description("eventDescription")
+                .createdOn(LocalDateTime.now().minusDays(5))
+                .eventDate(eventDate)
+                .initiator(user)
+                .location(new Location(45, 45))
+                .state(state)
+                .build());
+        eventCards.save(event);
+        return event;
+    }
+}
@@ -0,0 +1,337 @@
+package ru.practicum.ewm.main.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ru.practicum.ewm.main.dto.responses.EventShortDto;
+import ru.practicum.ewm.main.enums.EventsSort;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.exceptions.ValidationException;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+import ru.practicum.ewm.stats.dto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class EventServiceTest {
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private EventCards eventCards;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private EventViewsRefresher eventViewsRefresher;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private StatClient statClient;
+
+    private User user;
+    private Category concerts;
+    private Category exhibitions;
+
+    @BeforeEach
+    void setup() {
+        user = userRepository.save(new User(0L, "email@email.com", "userName"));
+        concerts = categoryRepository.save(new Category(0, "Концерты"));
+        exhibitions = categoryRepository.save(new Category(0, "Выставки"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void searchByTextRespectsOtherFilters() {
+        Event jazz = saveEvent(concerts, "Джазовый концерт в парке", "Играет городской оркестр.", 0, 0);
+        saveEvent(exhibitions, "Выставка плакатов", "После открытия состоится концерт.", 0, 0);
+        saveEvent(concerts, "Концерт камерной музыки", "Все места заняты.", 10, 10);
+        saveEvent(concerts, "Лекция об архитектуре", "Рассказ о городе.", 0, 0);
+
+        // текст ищется только среди событий выбранной категории с доступными местами
+        List<EventShortDto> events = search("КОНЦЕРТ", List.of(concerts.getId()), true, null);
+        assertThat(ids(events)).containsExactly(jazz.getId());
+
+        // без фильтров находятся события с совпадением и в аннотации, и в описании
+        events = search("концерт", null, null, null);
+        assertThat(events).hasSize(3);
+    }
+
+    @Test
+    void searchRequiresAllWords() {
+        Event jazz = saveEvent(concerts, "Джазовый концерт в парке", "Играет городской оркестр.", 0, 0);
+        saveEvent(concerts, "Джазовый вечер", "В клубе на набережной.", 0, 0);
+
+        // слова ищутся по началу, знаки препинания игнорируются
+        List<EventShortDto> events = search("джаз, парк!", null, null, null);
+        assertThat(ids(events)).containsExactly(jazz.getId());
+
+        // запрос только из знаков препинания не фильтрует события
+        events = search("?!", null, null, null);
+        assertThat(events).hasSize(2);
+    }
+
+    @Test
+    void searchMatchesWordBeginningOnly() {
+        Event jazz = saveEvent(concerts, "Джазовый концерт", "Играет городской оркестр.", 0, 0);
+
+        // как и в PostgreSQL, слово ищется по началу, а не по любой подстроке
+        assertThat(ids(search("оркест", null, null, null))).containsExactly(jazz.getId());
+        assertThat(search("церт", null, null, null)).isEmpty();
+        assertThat(search("ркестр", null, null, null)).isEmpty();
+    }
+
+    @Test
+    void sortByRelevance() {
+        Event inDescription = saveEvent(concerts, "Вечер в клубе", "Будет играть джаз.", 0, 0);
+        Event inAnnotation = saveEvent(concerts, "Джаз на крыше", "Вечер под открытым небом.", 0, 0);
+        Event inBoth = saveEvent(concerts, "Джаз и блюз", "Только джаз всю ночь.", 0, 0);
+
+        List<EventShortDto> events = search("джаз", null, null, EventsSort.RELEVANCE);
+        assertThat(ids(events)).containsExactly(inBoth.getId(), inAnnotation.getId(), inDescription.getId());
+    }
+
+    @Test
+    void searchNearPointSortedByDistance() {
+        // центр Москвы; события в 0.5 км, 5 км и в Санкт-Петербурге
+        GeoCircle near = new GeoCircle(55.7558, 37.6173, 10);
+        Event farther = saveEventAt(55.80f, 37.60f);
+        Event nearest = saveEventAt(55.76f, 37.62f);
+        saveEventAt(59.93f, 30.33f);
+
+        CursorPage<EventShortDto> firstPage = eventService.getPublicEvents(null, null, null, null, null, null,
+                near, null, 0, 1, null, new MockHttpServletRequest("GET", "/events"));
+        CursorPage<EventShortDto> secondPage = eventService.getPublicEvents(null, null, null, null, null, null,
+                near, EventsSort.DISTANCE, 0, 1, firstPage.nextCursor(), new MockHttpServletRequest("GET", "/events"));
+
+        assertThat(ids(firstPage.content())).containsExactly(nearest.getId());
+        assertThat(ids(secondPage.content())).containsExactly(farther.getId());
+        assertThat(eventService.getPublicEvents(null, null, null, null, null, null, near, null, 0, 1,
+                secondPage.nextCursor(), new MockHttpServletRequest("GET", "/events")).content()).isEmpty();
+    }
+
+    @Test
+    void searchNearPointAcrossAntimeridian() {
+        Event acrossMeridian = saveEventAt(0, -179.95f);
+        saveEventAt(0, 179);
+
+        List<EventShortDto> events = eventService.getPublicEvents(null, null, null, null, null, null,
+                new GeoCircle(0, 179.9, 20), null, 0, 10, null, new MockHttpServletRequest("GET", "/events")).content();
+
+        assertThat(ids(events)).containsExactly(acrossMeridian.getId());
+        assertThatThrownBy(() -> GeoCircle.of(55.0, null, 10.0)).isInstanceOf(ValidationException.class);
+        assertThat(GeoCircle.of(null, null, null)).isNull();
+    }
+
+    @Test
+    void distanceSortRequiresPoint() {
+        saveEventAt(55.76f, 37.62f);
+
+        assertThatThrownBy(() -> eventService.getPublicEvents(null, null, null, null, null, null, null,
+                EventsSort.DISTANCE, 0, 10, null, new MockHttpServletRequest("GET", "/events")))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void sortByViewsAcrossPages() {
+        Event rare = saveEvent(concerts, "Концерт", "Описание", 0, 0);
+        Event popular = saveEvent(concerts, "Концерт", "Описание", 0, 0);
+        Event average = saveEvent(concerts, "Концерт", "Описание", 0, 0);
+        when(statClient.getStats(any(), any(), anyList(), anyBoolean())).thenReturn(List.of(
+                new ViewStats("ewm-main-service", "/events/" + rare.getId(), 5),
+                new ViewStats("ewm-main-service", "/events/" + popular.getId(), 50),
+                new ViewStats("ewm-main-service", "/events/" + average.getId(), 20)));
+        eventViewsRefresher.refreshAll();
+        // просмотры переносятся в карточки запросом в обход контекста персистентности теста
+        entityManager.clear();
+
+        // порядок по просмотрам сохраняется между страницами
+        List<EventShortDto> firstPage = eventService.getPublicEvents(null, null, null, null, null, null,
+                null, EventsSort.VIEWS, 0, 2, null, new MockHttpServletRequest("GET", "/events")).content();
+        assertThat(ids(firstPage)).containsExactly(popular.getId(), average.getId());
+        assertThat(firstPage.getFirst().getViews()).isEqualTo(50);
+
+        List<EventShortDto> secondPage = eventService.getPublicEvents(null, null, null, null, null, null,
+                null, EventsSort.VIEWS, 2, 2, null, new MockHttpServletRequest("GET", "/events")).content();
+        assertThat(ids(secondPage)).containsExactly(rare.getId());
+    }
+
+    @Test
+    void pageByCursor() {
+        Event first = saveEvent(concerts, "Концерт", "Описание", 0, 0);
+        Event second = saveEvent(concerts, "Концерт", "Описание", 0, 0);
+        Event third = saveEvent(concerts, "Концерт", "Описание", 0, 0);
+        // курсор строится по датам, прочитанным из БД, как в отдельном запросе
+        entityManager.flush();
+        entityManager.clear();
+
+        // следующая страница по курсору продолжает предыдущую
+        for (EventsSort sort : new EventsSort[]{null, EventsSort.EVENT_DATE, EventsSort.VIEWS}) {
+            CursorPage<EventShortDto> firstPage = eventService.getPublicEvents(null, null, null, null, null, null,
+                    null, sort, 0, 2, null, new MockHttpServletRequest("GET", "/events"));
+            assertThat(ids(firstPage.content())).containsExactly(first.getId(), second.getId());
+            assertThat(firstPage.nextCursor()).isNotNull();
+
+            CursorPage<EventShortDto> secondPage = eventService.getPublicEvents(null, null, null, null, null, null,
+                    null, sort, 0, 2, firstPage.nextCursor(), new MockHttpServletRequest("GET", "/events"));
+            assertThat(ids(secondPage.content())).containsExactly(third.getId());
+            assertThat(secondPage.nextCursor()).isNull();
+        }
+
+        // from, не кратный size, пропускает ровно from событий
+        List<EventShortDto> events = eventService.getPublicEvents(null, null, null, null, null, null,
+                null, null, 1, 2, null, new MockHttpServletRequest("GET", "/events")).content();
+        assertThat(ids(events)).containsExactly(second.getId(), third.getId());
+
+        // курсор другой сортировки не принимается
+        String cursor = eventService.getPublicEvents(null, null, null, null, null, null,
+                null, EventsSort.EVENT_DATE, 0, 1, null, new MockHttpServletRequest("GET", "/events")).nextCursor();
+        assertThatThrownBy(() -> eventService.getPublicEvents(null, null, null, null, null, null,
+                null, EventsSort.VIEWS, 0, 1, cursor, new MockHttpServletRequest("GET", "/events")))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void listQueriesDoNotLoadRelationsPerEvent() {
+        // у каждого события своя категория, у событий из общего списка ещё и свой инициатор
+        for (int i = 0; i < 7; i++) {
+            User initiator = userRepository.save(new User(0L, "initiator" + i + "@email.com", "initiator" + i));
+            saveEvent(categoryRepository.save(new Category(0, "Категория " + i)), initiator, "Концерт", "Описание");
+            saveEvent(categoryRepository.save(new Category(0, "Категория пользователя " + i)), user, "Концерт", "Описание");
+        }
+        entityManager.flush();
+        String cursor = eventService.getPublicEvents(null, null, null, null, null, null, null, null, 0, 1, null,
+                new MockHttpServletRequest("GET", "/events")).nextCursor();
+
+        // число запросов не зависит от размера страницы
+        assertSameStatementCount(size -> eventService.findEventsByUserId(user.getId(), 0, size, null));
+        assertSameStatementCount(size -> eventService.findEventsByAdmin(null, null, null, null, null, 0, size, null));
+        assertSameStatementCount(size -> eventService.getPublicEvents(null, null, null, null, null, null,
+                null, null, 0, size, null, new MockHttpServletRequest("GET", "/events")));
+        assertSameStatementCount(size -> eventService.getPublicEvents(null, null, null, null, null, null,
+                null, null, 0, size, cursor, new MockHttpServletRequest("GET", "/events")));
+    }
+
+    @Test
+    void shortListsReadProjections() {
+        Event jazz = saveEvent(concerts, "Джазовый концерт", "Описание", 0, 0);
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        EventShortDto event = eventService.getPublicEvents(null, null, null, null, null, null, null, null, 0, 10, null,
+                new MockHttpServletRequest("GET", "/events")).content().getFirst();
+        EventShortDto userEvent = eventService.findEventsByUserId(user.getId(), 0, 10, null).content().getFirst();
+
+        // события не загружаются в контекст персистентности
+        assertThat(statistics.getEntityStatistics(Event.class.getName()).getLoadCount()).isZero();
+        for (EventShortDto dto : List.of(event, userEvent)) {
+            assertThat(dto.getId()).isEqualTo(jazz.getId());
+            assertThat(dto.getAnnotation()).isEqualTo("Джазовый концерт");
+            assertThat(dto.getCategory().getName()).isEqualTo(concerts.getName());
+            assertThat(dto.getInitiator().getName()).isEqualTo(user.getName());
+        }
+    }
+
+    private void assertSameStatementCount(IntFunction<CursorPage<?>> listing) {
+        // пользователи и категории в кэше не должны зависеть от того, какие тесты выполнялись раньше
+        listing.apply(1);
+        assertThat(countStatements(() -> assertThat(listing.apply(7).content()).hasSize(7)))
+                .isEqualTo(countStatements(() -> assertThat(listing.apply(1).content()).hasSize(1)));
+    }
+
+    private long countStatements(Runnable action) {
+        // события, категории и пользователи читаются из БД, а не из контекста персистентности теста
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<EventShortDto> search(String text, List<Integer> categories, Boolean onlyAvailable, EventsSort sort) {
+        return eventService.getPublicEvents(text, categories, null, null, null, onlyAvailable, null, sort, 0, 10, null,
+                new MockHttpServletRequest("GET", "/events")).content();
+    }
+
+    private Event saveEvent(Category category, String annotation, String description, long participantLimit,
+                            long confirmedRequests) {
+        return save(eventBuilder(category, user, annotation, description)
+                .participantLimit(participantLimit)
+                .confirmedRequests(confirmedRequests)
+                .build());
+    }
+
+    private Event saveEvent(Category category, User initiator, String annotation, String description) {
+        return save(eventBuilder(category, initiator, annotation, description)
+                .allowComments(true)
+                .build());
+    }
+
+    private Event saveEventAt(float lat, float lon) {
+        return save(eventBuilder(concerts, user, "Концерт", "Описание")
+                .location(new Location(lat, lon))
+                .build());
+    }
+
+    private Event save(Event event) {
+        Event saved = eventRepository.save(event);
+        eventCards.save(saved);
+        return saved;
+    }
+
+    private Event.EventBuilder eventBuilder(Category category, User initiator, String annotation, String description) {
+        return Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation(annotation)
+                .description(description)
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(1))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .initiator(initiator)
+                .location(new Location(45, 45))
+                .state(EventsState.PUBLISHED);
+    }
+
+    private static List<Long> ids(List<EventShortDto> events) {
+        return events.stream().map(EventShortDto::getId).toList();
+    }
+}
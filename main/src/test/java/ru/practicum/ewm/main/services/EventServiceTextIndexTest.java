@@ -0,0 +1,129 @@
+package ru.practicum.ewm.main.services;
+
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ru.practicum.ewm.main.dto.responses.EventShortDto;
+import ru.practicum.ewm.main.enums.EventsSort;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.main.search.EventTextIndex;
+import ru.practicum.ewm.stats.client.StatClient;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"ewm.search.inverted-index.enabled=true", "ewm.search.inverted-index.max-hits=3"})
+@Transactional
+class EventServiceTextIndexTest {
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private EventTextIndex eventTextIndex;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private EventCards eventCards;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @MockBean
+    private StatClient statClient;
+
+    private User user;
+    private Category concerts;
+    private Category exhibitions;
+
+    @BeforeEach
+    void setup() {
+        user = userRepository.save(new User(0L, "email@email.com", "userName"));
+        concerts = categoryRepository.save(new Category(0, "Концерты"));
+        exhibitions = categoryRepository.save(new Category(0, "Выставки"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void searchInIndexRespectsOtherFilters() {
+        Event jazz = saveEvent(concerts, EventsState.PUBLISHED, "Джазовые концерты в парке", "Играет оркестр.");
+        Event evening = saveEvent(concerts, EventsState.PUBLISHED, "Вечер в клубе", "Будет играть джаз.");
+        saveEvent(exhibitions, EventsState.PUBLISHED, "Джаз на плакатах", "Выставка афиш.");
+        saveEvent(concerts, EventsState.PENDING, "Джазовый фестиваль", "Ждёт модерации.");
+        // индекс обновляется после коммита, поэтому в транзакции теста строим его заново
+        eventTextIndex.rebuild();
+
+        List<EventShortDto> events = eventService.getPublicEvents("джаз", List.of(concerts.getId()), null, null, null,
+                null, null, EventsSort.RELEVANCE, 0, 10, null, new MockHttpServletRequest("GET", "/events")).content();
+        assertThat(events.stream().map(EventShortDto::getId).toList()).containsExactly(jazz.getId(), evening.getId());
+
+        events = eventService.getPublicEvents("джаз", List.of(concerts.getId()), null, null, null,
+                null, null, EventsSort.RELEVANCE, 1, 1, null, new MockHttpServletRequest("GET", "/events")).content();
+        assertThat(events.stream().map(EventShortDto::getId).toList()).containsExactly(evening.getId());
+
+        events = eventService.getPublicEvents("фестиваль", null, null, null, null,
+                null, null, null, 0, 10, null, new MockHttpServletRequest("GET", "/events")).content();
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void broadQueryIsFilteredInDatabase() {
+        // совпадений больше max-hits, и единственное подходящее под фильтр событие - наименее релевантное
+        saveEvent(exhibitions, EventsState.PUBLISHED, "Джаз", "Джаз на плакатах.");
+        saveEvent(exhibitions, EventsState.PUBLISHED, "Джаз", "Джаз на фотографиях.");
+        saveEvent(exhibitions, EventsState.PUBLISHED, "Джаз", "Джаз в картинах.");
+        Event concert = saveEvent(concerts, EventsState.PUBLISHED, "Вечер в клубе", "Будет играть джаз.");
+        eventTextIndex.rebuild();
+
+        for (EventsSort sort : List.of(EventsSort.RELEVANCE, EventsSort.EVENT_DATE, EventsSort.VIEWS)) {
+            List<EventShortDto> events = eventService.getPublicEvents("джаз", List.of(concerts.getId()), null, null,
+                    null, null, null, sort, 0, 10, null, new MockHttpServletRequest("GET", "/events")).content();
+            assertThat(events).extracting(EventShortDto::getId).containsExactly(concert.getId());
+        }
+    }
+
+    @Test
+    void stopWordsAreSearchedInDatabase() {
+        Event event = saveEvent(concerts, EventsState.PUBLISHED, "Где послушать джаз", "Гид по клубам.");
+        eventTextIndex.rebuild();
+
+        List<EventShortDto> events = eventService.getPublicEvents("где", null, null, null, null,
+                null, null, null, 0, 10, null, new MockHttpServletRequest("GET", "/events")).content();
+        assertThat(events).extracting(EventShortDto::getId).containsExactly(event.getId());
+    }
+
+    private Event saveEvent(Category category, EventsState state, String annotation, String description) {
+        Event event = eventRepository.save(Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation(annotation)
+                .description(description)
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(1))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .initiator(user)
+                .location(new Location(45, 45))
+                .state(state)
+                .build());
+        eventCards.save(event);
+        return event;
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.ewm.main.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.ewm.main.dto.newRequests.NewCategoryDto;
+import ru.practicum.ewm.main.exceptions.NotFoundException;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class ReferenceLookupTest {
+    @Autowired
+    private ReferenceLookup referenceLookup;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private StatClient statClient;
+
+    @AfterEach
+    void tearDown() {
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void repeatedLookupDoesNotQueryDatabase() {
+        User user = userRepository.save(new User(0L, "email@email.com", "userName"));
+        referenceLookup.validateUserExisted(user.getId());
+        double hitRate = referenceLookup.userHitRate();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        User found = referenceLookup.validateUserExisted(user.getId());
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(found.getName()).isEqualTo("userName");
+        assertThat(referenceLookup.userHitRate()).isGreaterThan(hitRate);
+    }
+
+    @Test
+    void updatedAndDeletedEntriesAreEvicted() {
+        Category category = categoryRepository.save(new Category(0, "Концерты"));
+        User user = userRepository.save(new User(0L, "email@email.com", "userName"));
+        referenceLookup.validateCategoryExisted(category.getId());
+        referenceLookup.validateUserExisted(user.getId());
+
+        categoryService.updateCat(category.getId(), new NewCategoryDto("Выставки"));
+        assertThat(referenceLookup.validateCategoryExisted(category.getId()).getName()).isEqualTo("Выставки");
+
+        categoryService.deleteCat(category.getId());
+        assertThatThrownBy(() -> referenceLookup.validateCategoryExisted(category.getId()))
+                .isInstanceOf(NotFoundException.class);
+
+        userService.deleteUser(user.getId());
+        assertThatThrownBy(() -> referenceLookup.validateUserExisted(user.getId()))
+                .isInstanceOf(NotFoundException.class);
+    }
+}
@@ -0,0 +1,172 @@
+package ru.practicum.ewm.main.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.ewm.main.dto.responses.EventRequestStatusUpdateResult;
+import ru.practicum.ewm.main.dto.responses.ParticipationRequestDto;
+import ru.practicum.ewm.main.dto.updateRequests.EventRequestStatusUpdateRequest;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.enums.RequestStatus;
+import ru.practicum.ewm.main.exceptions.ConflictException;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.RequestRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Параллельные заявки на последние места события. Тест не транзакционный: каждая заявка сохраняется
+ * в своей транзакции, как при обработке отдельных HTTP-запросов.
+ */
+@SpringBootTest
+class RequestServiceConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int PARTICIPANTS = 24;
+    private static final int PARTICIPANT_LIMIT = 5;
+
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private RequestRepository requestRepository;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @MockBean
+    private StatClient statClient;
+
+    private User initiator;
+    private Category category;
+    private List<User> participants;
+
+    @BeforeEach
+    void setup() {
+        initiator = userRepository.save(new User(0L, "initiator@email.com", "initiator"));
+        category = categoryRepository.save(new Category(0, "Концерты"));
+        participants = new ArrayList<>();
+        for (int i = 0; i < PARTICIPANTS; i++)
+            participants.add(userRepository.save(new User(0L, "user" + i + "@email.com", "user" + i)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestRepository.deleteAll();
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void createDoesNotExceedParticipantLimit() throws Exception {
+        Event event = saveEvent(false);
+
+        List<Callable<ParticipationRequestDto>> tasks = participants.stream()
+                .<Callable<ParticipationRequestDto>>map(user -> () -> requestService.create(user.getId(), event.getId()))
+                .toList();
+        List<Object> results = runConcurrently(tasks);
+
+        // места получают ровно столько участников, сколько позволяет лимит, остальным отказано
+        assertThat(results).filteredOn(ParticipationRequestDto.class::isInstance).hasSize(PARTICIPANT_LIMIT);
+        assertThat(results).filteredOn(ConflictException.class::isInstance).hasSize(PARTICIPANTS - PARTICIPANT_LIMIT);
+        assertThat(requestRepository.findAllByEventId(event.getId()))
+                .filteredOn(request -> request.getStatus() == RequestStatus.CONFIRMED)
+                .hasSize(PARTICIPANT_LIMIT);
+        assertThat(eventRepository.findById(event.getId()).orElseThrow().getConfirmedRequests())
+                .isEqualTo(PARTICIPANT_LIMIT);
+    }
+
+    @Test
+    void confirmDoesNotExceedParticipantLimit() throws Exception {
+        Event event = saveEvent(true);
+        List<Long> requestIds = participants.stream()
+                .map(user -> requestService.create(user.getId(), event.getId()).getId())
+                .toList();
+
+        // инициатор подтверждает заявки пачками по две в нескольких потоках сразу
+        List<Callable<EventRequestStatusUpdateResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < requestIds.size(); i += 2) {
+            List<Long> batch = requestIds.subList(i, i + 2);
+            tasks.add(() -> requestService.updateRequestsStatus(event.getId(), initiator.getId(),
+                    new EventRequestStatusUpdateRequest(batch, RequestStatus.CONFIRMED)));
+        }
+        List<Object> results = runConcurrently(tasks);
+
+        // пачка подтверждается целиком или не подтверждается вовсе, лимит не превышен
+        int confirmedBatches = PARTICIPANT_LIMIT / 2;
+        assertThat(results).filteredOn(EventRequestStatusUpdateResult.class::isInstance).hasSize(confirmedBatches);
+        long confirmed = requestRepository.findAllByEventId(event.getId()).stream()
+                .filter(request -> request.getStatus() == RequestStatus.CONFIRMED)
+                .count();
+        assertThat(confirmed).isEqualTo(confirmedBatches * 2L);
+        assertThat(eventRepository.findById(event.getId()).orElseThrow().getConfirmedRequests()).isEqualTo(confirmed);
+    }
+
+    /**
+     * Запускает задачи одновременно и возвращает результат или исключение ConflictException каждой задачи.
+     */
+    static <T> List<Object> runConcurrently(List<Callable<T>> tasks) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Object> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(ConflictException.class);
+                    results.add(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Event saveEvent(boolean requestModeration) {
+        return eventRepository.save(Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation("eventAnnotation")
+                .description("eventDescription")
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(1))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .initiator(initiator)
+                .location(new Location(45, 45))
+                .state(EventsState.PUBLISHED)
+                .participantLimit(PARTICIPANT_LIMIT)
+                .requestModeration(requestModeration)
+                .build());
+    }
+}
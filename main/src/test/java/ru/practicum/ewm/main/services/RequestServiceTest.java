@@ -0,0 +1,187 @@
+package ru.practicum.ewm.main.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.transaction.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.ewm.main.dto.responses.EventRequestStatusUpdateResult;
+import ru.practicum.ewm.main.dto.responses.ParticipationRequestDto;
+import ru.practicum.ewm.main.dto.updateRequests.EventRequestStatusUpdateRequest;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.enums.RequestStatus;
+import ru.practicum.ewm.main.exceptions.ConflictException;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.Request;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.RequestRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class RequestServiceTest {
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private RequestRepository requestRepository;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ReferenceLookup referenceLookup;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private StatClient statClient;
+
+    private User initiator;
+    private Category category;
+
+    @BeforeEach
+    void setup() {
+        initiator = userRepository.save(new User(0L, "initiator@email.com", "initiator"));
+        category = categoryRepository.save(new Category(0, "Концерты"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestRepository.deleteAll();
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void confirmRejectsRemainingPendingWhenLimitReached() {
+        Event event = saveEvent(3);
+        List<Long> requestIds = createRequests(event, 5);
+
+        EventRequestStatusUpdateResult result = requestService.updateRequestsStatus(event.getId(), initiator.getId(),
+                new EventRequestStatusUpdateRequest(requestIds.subList(0, 3), RequestStatus.CONFIRMED));
+        assertThat(result.getConfirmedRequests()).extracting(ParticipationRequestDto::getStatus)
+                .containsOnly(RequestStatus.CONFIRMED).hasSize(3);
+
+        // после заполнения лимита оставшиеся заявки отклонены
+        assertThat(statuses(event)).containsExactly(RequestStatus.CONFIRMED, RequestStatus.CONFIRMED,
+                RequestStatus.CONFIRMED, RequestStatus.REJECTED, RequestStatus.REJECTED);
+        assertThat(eventRepository.findById(event.getId()).orElseThrow().getConfirmedRequests()).isEqualTo(3);
+    }
+
+    @Test
+    void batchWithNotPendingRequestChangesNothing() {
+        Event event = saveEvent(10);
+        List<Long> requestIds = createRequests(event, 3);
+        requestService.updateRequestsStatus(event.getId(), initiator.getId(),
+                new EventRequestStatusUpdateRequest(List.of(requestIds.getFirst()), RequestStatus.CONFIRMED));
+
+        // набор проверяется целиком до изменений, поэтому ожидающие заявки не затронуты
+        assertThatThrownBy(() -> requestService.updateRequestsStatus(event.getId(), initiator.getId(),
+                new EventRequestStatusUpdateRequest(requestIds, RequestStatus.REJECTED)))
+                .isInstanceOf(ConflictException.class);
+        assertThat(statuses(event)).containsExactly(RequestStatus.CONFIRMED, RequestStatus.PENDING,
+                RequestStatus.PENDING);
+
+        // подтверждение сверх лимита не подтверждает ни одну заявку набора
+        Event smallEvent = saveEvent(1);
+        List<Long> smallEventRequestIds = createRequests(smallEvent, 2);
+        assertThatThrownBy(() -> requestService.updateRequestsStatus(smallEvent.getId(), initiator.getId(),
+                new EventRequestStatusUpdateRequest(smallEventRequestIds, RequestStatus.CONFIRMED)))
+                .isInstanceOf(ConflictException.class);
+        assertThat(statuses(smallEvent)).containsOnly(RequestStatus.PENDING);
+    }
+
+    @Test
+    void unknownIdsAndOtherStatusesAreIgnored() {
+        Event event = saveEvent(10);
+        List<Long> requestIds = createRequests(event, 2);
+
+        EventRequestStatusUpdateResult result = requestService.updateRequestsStatus(event.getId(), initiator.getId(),
+                new EventRequestStatusUpdateRequest(List.of(requestIds.getFirst(), -1L), RequestStatus.CONFIRMED));
+        assertThat(result.getConfirmedRequests()).extracting(ParticipationRequestDto::getId)
+                .containsExactly(requestIds.getFirst());
+
+        result = requestService.updateRequestsStatus(event.getId(), initiator.getId(),
+                new EventRequestStatusUpdateRequest(List.of(requestIds.getLast()), RequestStatus.CANCELED));
+        assertThat(result.getConfirmedRequests()).isEmpty();
+        assertThat(result.getRejectedRequests()).isEmpty();
+        assertThat(statuses(event)).containsExactly(RequestStatus.CONFIRMED, RequestStatus.PENDING);
+    }
+
+    @Test
+    void statementCountDoesNotDependOnBatchSize() {
+        Event event = saveEvent(100);
+        List<Long> requestIds = createRequests(event, 20);
+        // инициатор уже проверен и закэширован предыдущими запросами, как при обычной модерации заявок
+        referenceLookup.validateUserExisted(initiator.getId());
+
+        long smallBatch = countStatements(() -> requestService.updateRequestsStatus(event.getId(), initiator.getId(),
+                new EventRequestStatusUpdateRequest(requestIds.subList(0, 2), RequestStatus.CONFIRMED)));
+        long largeBatch = countStatements(() -> requestService.updateRequestsStatus(event.getId(), initiator.getId(),
+                new EventRequestStatusUpdateRequest(requestIds.subList(2, 20), RequestStatus.CONFIRMED)));
+        assertThat(largeBatch).isEqualTo(smallBatch);
+    }
+
+    private long countStatements(Runnable action) {
+        // заявки и пользователи читаются из БД, а не из контекста персистентности теста
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<Long> createRequests(Event event, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> userRepository.save(new User(0L, "user" + i + "_" + event.getId() + "@email.com", "user" + i)))
+                .map(user -> requestService.create(user.getId(), event.getId()).getId())
+                .toList();
+    }
+
+    private List<RequestStatus> statuses(Event event) {
+        return requestRepository.findAllByEventId(event.getId()).stream()
+                .sorted((first, second) -> Long.compare(first.getId(), second.getId()))
+                .map(Request::getStatus)
+                .toList();
+    }
+
+    private Event saveEvent(long participantLimit) {
+        return eventRepository.save(Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation("eventAnnotation")
+                .description("eventDescription")
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(1))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .initiator(initiator)
+                .location(new Location(45, 45))
+                .state(EventsState.PUBLISHED)
+                .participantLimit(participantLimit)
+                .requestModeration(true)
+                .build());
+    }
+}
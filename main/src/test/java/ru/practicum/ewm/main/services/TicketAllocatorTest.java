@@ -0,0 +1,208 @@
+package ru.practicum.ewm.main.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.main.dto.responses.ParticipationRequestDto;
+import ru.practicum.ewm.main.enums.EventsState;
+import ru.practicum.ewm.main.enums.RequestStatus;
+import ru.practicum.ewm.main.exceptions.ConflictException;
+import ru.practicum.ewm.main.model.Category;
+import ru.practicum.ewm.main.model.Event;
+import ru.practicum.ewm.main.model.Location;
+import ru.practicum.ewm.main.model.Request;
+import ru.practicum.ewm.main.model.User;
+import ru.practicum.ewm.main.repository.CategoryRepository;
+import ru.practicum.ewm.main.repository.EventRepository;
+import ru.practicum.ewm.main.repository.RequestRepository;
+import ru.practicum.ewm.main.repository.UserRepository;
+import ru.practicum.ewm.stats.client.StatClient;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Заявки на события без премодерации через распределитель мест. Тест не транзакционный, так как места
+ * возвращаются и учитываются после завершения транзакций сервиса.
+ */
+@SpringBootTest(properties = {"ewm.requests.allocator.enabled=true", "ewm.requests.allocator.flush-delay=PT1H"})
+class TicketAllocatorTest {
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private TicketAllocator ticketAllocator;
+    @Autowired
+    private EventCards eventCards;
+    @Autowired
+    private RequestRepository requestRepository;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @MockBean
+    private StatClient statClient;
+
+    private User initiator;
+    private Category category;
+
+    @BeforeEach
+    void setup() {
+        initiator = userRepository.save(new User(0L, "initiator@email.com", "initiator"));
+        category = categoryRepository.save(new Category(0, "Концерты"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        requestRepository.deleteAll();
+        eventRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void createDoesNotExceedParticipantLimit() throws Exception {
+        Event event = saveEvent(5);
+        List<User> participants = saveUsers(24);
+
+        List<Callable<ParticipationRequestDto>> tasks = participants.stream()
+                .<Callable<ParticipationRequestDto>>map(user -> () -> requestService.create(user.getId(), event.getId()))
+                .toList();
+        List<Object> results = RequestServiceConcurrencyTest.runConcurrently(tasks);
+
+        assertThat(results).filteredOn(ParticipationRequestDto.class::isInstance).hasSize(5);
+        assertThat(requestRepository.countByEventIdAndStatus(event.getId(), RequestStatus.CONFIRMED)).isEqualTo(5);
+
+        // счётчик в событии обновляется пакетно
+        assertThat(confirmedRequests(event)).isZero();
+        ticketAllocator.flush();
+        assertThat(confirmedRequests(event)).isEqualTo(5);
+    }
+
+    @Test
+    void canceledRequestReturnsSeat() {
+        Event event = saveEvent(1);
+        List<User> participants = saveUsers(2);
+        ParticipationRequestDto request = requestService.create(participants.get(0).getId(), event.getId());
+        assertThatThrownBy(() -> requestService.create(participants.get(1).getId(), event.getId()))
+                .isInstanceOf(ConflictException.class);
+
+        requestService.cancelRequest(participants.get(0).getId(), request.getId());
+        assertThat(requestService.create(participants.get(1).getId(), event.getId()).getStatus())
+                .isEqualTo(RequestStatus.CONFIRMED);
+
+        ticketAllocator.flush();
+        assertThat(confirmedRequests(event)).isEqualTo(1);
+    }
+
+    @Test
+    void restartReconcilesCounterWithRequests() {
+        Event event = saveEvent(3);
+        List<User> participants = saveUsers(2);
+        participants.forEach(user -> requestService.create(user.getId(), event.getId()));
+
+        // приложение остановилось до сохранения счётчика: после запуска он сверяется с заявками,
+        // а свободные места считаются по подтверждённым заявкам
+        TicketAllocator restarted = new TicketAllocator(eventRepository, requestRepository, eventCards, true, 4);
+        restarted.reconcile();
+        assertThat(confirmedRequests(event)).isEqualTo(2);
+
+        Event stored = eventRepository.findById(event.getId()).orElseThrow();
+        assertThat(restarted.tryAcquire(stored)).isTrue();
+        assertThat(restarted.tryAcquire(stored)).isFalse();
+    }
+
+    @Test
+    void evictWaitsForOpenAcquisitions() throws Exception {
+        Event event = saveEvent(1);
+        User participant = saveUsers(1).get(0);
+        Event stored = eventRepository.findById(event.getId()).orElseThrow();
+        TicketAllocator allocator = new TicketAllocator(eventRepository, requestRepository, eventCards, true, 4);
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    assertThat(allocator.tryAcquire(stored)).isTrue();
+                    requestRepository.save(new Request(0L, LocalDateTime.now(), stored, participant,
+                            RequestStatus.CONFIRMED));
+                    acquired.countDown();
+                    try {
+                        commit.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertThat(acquired.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // место занято незакоммиченной заявкой: пересчёт по БД её бы не увидел, поэтому новая заявка ждёт
+        allocator.evict(event.getId());
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> allocator.tryAcquire(stored));
+        Thread.sleep(200);
+        assertThat(second).isNotDone();
+
+        commit.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isFalse();
+    }
+
+    @Test
+    void seatsAreSeededFromStoredLimit() {
+        Event event = saveEvent(1);
+        // сущность загружена до того, как администратор увеличил лимит
+        Event stale = eventRepository.findById(event.getId()).orElseThrow();
+        Event changed = eventRepository.findById(event.getId()).orElseThrow();
+        changed.setParticipantLimit(3);
+        eventRepository.save(changed);
+        TicketAllocator allocator = new TicketAllocator(eventRepository, requestRepository, eventCards, true, 4);
+        allocator.evict(event.getId());
+
+        assertThat(allocator.tryAcquire(stale)).isTrue();
+        assertThat(allocator.tryAcquire(stale)).isTrue();
+        assertThat(allocator.tryAcquire(stale)).isTrue();
+        assertThat(allocator.tryAcquire(stale)).isFalse();
+    }
+
+    private long confirmedRequests(Event event) {
+        return eventRepository.findById(event.getId()).orElseThrow().getConfirmedRequests();
+    }
+
+    private List<User> saveUsers(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> userRepository.save(new User(0L, "user" + i + "@email.com", "user" + i)))
+                .toList();
+    }
+
+    private Event saveEvent(long participantLimit) {
+        return eventRepository.save(Event.builder()
+                .category(category)
+                .title("eventTitle")
+                .annotation("eventAnnotation")
+                .description("eventDescription")
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .eventDate(LocalDateTime.now().plusDays(1))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .initiator(initiator)
+                .location(new Location(45, 45))
+                .state(EventsState.PUBLISHED)
+                .participantLimit(participantLimit)
+                .requestModeration(false)
+                .build());
+    }
+}
@@ -1,14 +1,19 @@
 package ru.practicum.ewm.stats.client;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.util.UriBuilder;
 import org.springframework.http.MediaType;
 import org.springframework.web.client.RestClientException;
 import ru.practicum.ewm.stats.client.exception.NotAvailableStatServerException;
+import ru.practicum.ewm.stats.client.spill.HitSpillBuffer;
+import ru.practicum.ewm.stats.client.transport.StatClientTransports;
 import ru.practicum.ewm.stats.dto.EndpointHitNewRequest;
 import ru.practicum.ewm.stats.dto.ViewStats;
 
@@ -17,29 +22,75 @@ import java.util.List;
 
 @Service
 @Slf4j
-public class StatClient {
+public class StatClient implements DisposableBean {
+    private final ClientHttpRequestFactory requestFactory;
     private final RestClient rest;
+    private final HitSpillBuffer spillBuffer;
+    private final long retryDelayNanos;
+    // stats-server не ответил на последнюю отправку, до unavailableUntil новые просмотры не отправляются
+    private volatile boolean unavailable;
+    private volatile long unavailableUntil;
 
-    public StatClient(@Value("${stats-server.url}") String statsServerUrl) {
-        this.rest = RestClient.builder().baseUrl(statsServerUrl).build();
+    public StatClient(StatClientProperties properties, HitSpillBuffer spillBuffer) {
+        this.requestFactory = StatClientTransports.create(properties.getHttp());
+        this.rest = RestClient.builder()
+                .baseUrl(properties.getUrl())
+                .requestFactory(requestFactory)
+                .build();
+        this.spillBuffer = spillBuffer;
+        this.retryDelayNanos = properties.getSpill().getRetryDelay().toNanos();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (requestFactory instanceof DisposableBean disposable)
+            disposable.destroy();
     }
 
     public void createHit(EndpointHitNewRequest endpointHitNewRequest) {
         log.info("Вызов метода StatClient.createHit().");
+        if (spillBuffer.isEnabled() && unavailable && System.nanoTime() - unavailableUntil < 0) {
+            // stat-server только что не ответил, просмотр сразу сохраняется в буфер без ожидания таймаута
+            spillBuffer.append(endpointHitNewRequest);
+            log.info("Просмотр добавлен в буфер недоставленных просмотров.");
+            return;
+        }
+        // новые просмотры отправляются сразу, даже если буфер ещё выгружается: stat-server учитывает
+        // просмотры по их времени, а не по порядку получения
         try {
-            rest.post()
-                    .uri("/hit")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(endpointHitNewRequest)
-                    .retrieve()
-                    .toBodilessEntity();
+            sendHit(endpointHitNewRequest);
         } catch (RestClientException e) {
             log.warn("Выброшено исключение RestClientException.");
-            throw new NotAvailableStatServerException("Ошибка при получении статистики:" + e.getMessage());
+            if (!spillBuffer.isEnabled())
+                throw new NotAvailableStatServerException("Ошибка при получении статистики:" + e.getMessage());
+            markUnavailable();
+            spillBuffer.append(endpointHitNewRequest);
+            log.warn("stat-server недоступен, просмотр сохранен в буфер недоставленных просмотров.");
+            return;
         }
+        unavailable = false;
         log.info("Просмотр отправлен в stat-server.");
     }
 
+    /**
+     * Сохраняет просмотр в буфер недоставленных просмотров без попытки отправки, например, когда очередь
+     * отправки переполнена. Просмотр будет отправлен вместе с остальными просмотрами из буфера.
+     */
+    public void spillHit(EndpointHitNewRequest endpointHitNewRequest) {
+        if (!spillBuffer.isEnabled())
+            throw new NotAvailableStatServerException("Буфер недоставленных просмотров отключен.");
+        spillBuffer.append(endpointHitNewRequest);
+    }
+
+    @Scheduled(fixedDelayString = "${stats-server.spill.replay-delay:PT10S}")
+    public void replaySpilledHits() {
+        if (!spillBuffer.isEnabled() || spillBuffer.isEmpty())
+            return;
+        int replayed = spillBuffer.replay(this::deliverSpilledHit);
+        if (replayed > 0)
+            log.info("Из буфера в stat-server отправлено просмотров: {}.", replayed);
+    }
+
     public List<ViewStats> getStats(String start, String end, List<String> uris, Boolean unique) {
         log.info("Вызов метода StatClient.getStats.");
         List<ViewStats> viewStats;
@@ -58,6 +109,36 @@ public class StatClient {
         return viewStats;
     }
 
+    private boolean deliverSpilledHit(EndpointHitNewRequest hit) {
+        try {
+            sendHit(hit);
+            unavailable = false;
+            return true;
+        } catch (HttpClientErrorException e) {
+            // сервер доступен, но отклонил запись: повторная отправка не поможет
+            log.warn("stat-server отклонил просмотр из буфера: {}", e.getMessage());
+            return true;
+        } catch (RestClientException e) {
+            log.warn("stat-server по-прежнему недоступен: {}", e.getMessage());
+            markUnavailable();
+            return false;
+        }
+    }
+
+    private void markUnavailable() {
+        unavailableUntil = System.nanoTime() + retryDelayNanos;
+        unavailable = true;
+    }
+
+    private void sendHit(EndpointHitNewRequest endpointHitNewRequest) {
+        rest.post()
+                .uri("/hit")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(endpointHitNewRequest)
+                .retrieve()
+                .toBodilessEntity();
+    }
+
     private URI getUri(UriBuilder uriBuilder, String start, String end, List<String> uris, Boolean unique) {
         UriBuilder builder = uriBuilder
                 .path("/stats")
@@ -0,0 +1,62 @@
+package ru.practicum.ewm.stats.client;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "stats-server")
+@Getter
+@Setter
+public class StatClientProperties {
+    private String url;
+    private Http http = new Http();
+    private Spill spill = new Spill();
+
+    public enum Transport {
+        // HttpURLConnection без пула соединений
+        SIMPLE,
+        // java.net.http.HttpClient, поддерживает HTTP/2
+        JDK,
+        // Apache HttpClient 5 с пулом соединений и gzip
+        APACHE
+    }
+
+    @Getter
+    @Setter
+    public static class Http {
+        private Transport transport = Transport.APACHE;
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration readTimeout = Duration.ofSeconds(5);
+        private int maxConnections = 50;
+        private int maxConnectionsPerRoute = 20;
+        // время жизни соединения в пуле, после которого оно не переиспользуется
+        private Duration connectionTtl = Duration.ofMinutes(5);
+        private Duration idleTimeout = Duration.ofSeconds(30);
+        private boolean http2 = false;
+        private boolean gzip = true;
+        // выполнять служебные задачи транспорта JDK в виртуальных потоках
+        private boolean virtualThreads = false;
+    }
+
+    @Getter
+    @Setter
+    public static class Spill {
+        // если false, недоставленные просмотры не сохраняются на диск и createHit выбрасывает исключение
+        private boolean enabled = true;
+        // каталог данных экземпляра приложения, не общий для экземпляров на одном узле
+        private Path dir = Path.of("data", "stats-spill");
+        private DataSize segmentSize = DataSize.ofMegabytes(4);
+        private DataSize maxSize = DataSize.ofMegabytes(256);
+        private Duration replayDelay = Duration.ofSeconds(10);
+        // как часто записи буфера сбрасываются на диск
+        private Duration syncDelay = Duration.ofSeconds(1);
+        // как долго после ошибки отправки новые просмотры сразу пишутся в буфер
+        private Duration retryDelay = Duration.ofSeconds(1);
+    }
+}
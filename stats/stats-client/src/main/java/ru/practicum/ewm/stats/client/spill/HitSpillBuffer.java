@@ -0,0 +1,399 @@
+package ru.practicum.ewm.stats.client.spill;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.extern.slf4j.Slf4j;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.client.StatClientProperties;
+import ru.practicum.ewm.stats.client.exception.NotAvailableStatServerException;
+import ru.practicum.ewm.stats.dto.EndpointHitNewRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Буфер на диске для просмотров, которые не удалось отправить в stats-server.
+ * <p>
+ * Записи дописываются в сегменты {@code hits-<номер>.seg} в формате
+ * {@code [длина:int][crc32:int][json]}. Сегмент закрывается при достижении {@code segment-size},
+ * при превышении {@code max-size} удаляются самые старые сегменты. Выгрузка идёт по порядку записи,
+ * позиция чтения сохраняется в {@code replay.pos}, поэтому после перезапуска выгрузка продолжается
+ * с места остановки.
+ * <p>
+ * Записи попадают на диск не при каждом добавлении, а раз в {@code sync-delay} одним fsync для всех записей,
+ * добавленных за это время, и при закрытии сегмента. При падении процесса записи сохраняются в кэше ОС,
+ * при сбое всего узла теряются записи не более чем за {@code sync-delay}.
+ * <p>
+ * Каталог {@code dir} принадлежит одному экземпляру приложения: экземпляры, запущенные на одном узле,
+ * должны использовать разные каталоги.
+ */
+@Component
+@Slf4j
+public class HitSpillBuffer {
+    private static final String SEGMENT_PREFIX = "hits-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String POSITION_FILE = "replay.pos";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long segmentSize;
+    private final long maxSize;
+    private final ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    // ReentrantLock вместо synchronized: под блокировкой выполняется запись на диск,
+    // а монитор закрепил бы виртуальный поток за платформенным
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // номер сегмента -> размер файла
+    private final TreeMap<Long, Long> segments = new TreeMap<>();
+    private long totalSize;
+    private FileChannel active;
+    private long activeSeq;
+    private long activeSize;
+    // в активный сегмент дописаны записи, которые ещё не сброшены на диск
+    private boolean dirty;
+
+    private long readSeq = -1;
+    private long readOffset;
+
+    public HitSpillBuffer(StatClientProperties properties) {
+        StatClientProperties.Spill spill = properties.getSpill();
+        this.enabled = spill.isEnabled();
+        this.dir = spill.getDir();
+        this.segmentSize = spill.getSegmentSize().toBytes();
+        this.maxSize = spill.getMaxSize().toBytes();
+        if (enabled)
+            open();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return segments.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long size() {
+        lock.lock();
+        try {
+            return totalSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void append(EndpointHitNewRequest hit) {
+        final byte[] payload;
+        try {
+            payload = mapper.writeValueAsBytes(hit);
+        } catch (IOException e) {
+            throw new NotAvailableStatServerException("Не удалось сериализовать просмотр: " + e.getMessage());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+        lock.lock();
+        try {
+            if (active == null || activeSize + record.remaining() > segmentSize)
+                rotate();
+            while (record.hasRemaining())
+                active.write(record);
+            dirty = true;
+            activeSize += HEADER_SIZE + payload.length;
+            totalSize += HEADER_SIZE + payload.length;
+            segments.put(activeSeq, activeSize);
+            enforceMaxSize();
+        } catch (IOException e) {
+            log.error("Не удалось записать просмотр в буфер {}: {}", dir, e.getMessage());
+            throw new NotAvailableStatServerException("Не удалось сохранить просмотр в буфер: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает на диск записи, добавленные после предыдущего сброса. Добавление записей не ждёт fsync:
+     * он выполняется вне блокировки.
+     */
+    @Scheduled(fixedDelayString = "${stats-server.spill.sync-delay:PT1S}")
+    @PreDestroy
+    public void sync() {
+        if (!enabled)
+            return;
+        FileChannel channel;
+        lock.lock();
+        try {
+            if (!dirty)
+                return;
+            channel = active;
+            dirty = false;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // сегмент закрыт и уже сброшен на диск в seal()
+        } catch (IOException e) {
+            log.warn("Не удалось сбросить буфер просмотров {} на диск: {}", dir, e.getMessage());
+            lock.lock();
+            try {
+                if (active == channel)
+                    dirty = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Выгружает сохранённые просмотры по порядку, пока {@code sender} возвращает true.
+     * Одновременно выполняется только одна выгрузка.
+     *
+     * @return количество выгруженных записей
+     */
+    public int replay(Predicate<EndpointHitNewRequest> sender) {
+        if (!enabled || !replaying.compareAndSet(false, true))
+            return 0;
+        int replayed = 0;
+        try {
+            List<Long> sealed;
+            lock.lock();
+            try {
+                seal();
+                sealed = new ArrayList<>(segments.keySet());
+            } finally {
+                lock.unlock();
+            }
+            for (long seq : sealed) {
+                long offset;
+                lock.lock();
+                try {
+                    if (!segments.containsKey(seq))
+                        continue;
+                    offset = seq == readSeq ? readOffset : 0;
+                } finally {
+                    lock.unlock();
+                }
+                SegmentResult result = replaySegment(seq, offset, sender);
+                replayed += result.replayed();
+                if (!result.completed())
+                    return replayed;
+                removeSegment(seq);
+            }
+        } finally {
+            replaying.set(false);
+        }
+        return replayed;
+    }
+
+    private SegmentResult replaySegment(long seq, long offset, Predicate<EndpointHitNewRequest> sender) {
+        int replayed = 0;
+        try (FileChannel channel = FileChannel.open(segmentPath(seq), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (true) {
+                header.clear();
+                if (readFully(channel, header, offset) < HEADER_SIZE)
+                    return new SegmentResult(replayed, true);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    log.warn("Повреждённая запись в сегменте {} по смещению {}, остаток сегмента пропущен.", seq, offset);
+                    return new SegmentResult(replayed, true);
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                if (readFully(channel, payload, offset + HEADER_SIZE) < length) {
+                    log.warn("Неполная запись в конце сегмента {}, запись пропущена.", seq);
+                    return new SegmentResult(replayed, true);
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload.array());
+                long next = offset + HEADER_SIZE + length;
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Не совпадает CRC записи в сегменте {} по смещению {}, запись пропущена.", seq, offset);
+                    offset = next;
+                    continue;
+                }
+                EndpointHitNewRequest hit;
+                try {
+                    hit = mapper.readValue(payload.array(), EndpointHitNewRequest.class);
+                } catch (IOException e) {
+                    log.warn("Не удалось прочитать запись в сегменте {} по смещению {}, запись пропущена.", seq, offset);
+                    offset = next;
+                    continue;
+                }
+                if (!sender.test(hit)) {
+                    savePosition(seq, offset);
+                    return new SegmentResult(replayed, false);
+                }
+                replayed++;
+                offset = next;
+                savePosition(seq, offset);
+            }
+        } catch (IOException e) {
+            log.error("Ошибка чтения сегмента {}: {}", seq, e.getMessage());
+            return new SegmentResult(replayed, false);
+        }
+    }
+
+    private void open() {
+        // каталог создаётся при первой записи
+        if (!Files.isDirectory(dir))
+            return;
+        try {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Long seq = parseSeq(file.getFileName().toString());
+                    if (seq != null) {
+                        long size = Files.size(file);
+                        segments.put(seq, size);
+                        totalSize += size;
+                    }
+                }
+            }
+            loadPosition();
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось открыть буфер просмотров " + dir, e);
+        }
+        activeSeq = segments.isEmpty() ? 0 : segments.lastKey();
+        if (!segments.isEmpty())
+            log.info("В буфере {} найдено {} байт недоставленных просмотров.", dir, totalSize);
+    }
+
+    private void rotate() throws IOException {
+        seal();
+        Files.createDirectories(dir);
+        activeSeq++;
+        active = FileChannel.open(segmentPath(activeSeq),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeSize = 0;
+    }
+
+    private void seal() {
+        if (active == null)
+            return;
+        try {
+            if (dirty)
+                active.force(false);
+            active.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть сегмент {}: {}", activeSeq, e.getMessage());
+        }
+        active = null;
+        dirty = false;
+    }
+
+    private void enforceMaxSize() {
+        while (totalSize > maxSize && segments.size() > 1) {
+            long oldest = segments.firstKey();
+            log.warn("Превышен размер буфера просмотров, удалён самый старый сегмент {}.", oldest);
+            removeSegment(oldest);
+        }
+    }
+
+    private void removeSegment(long seq) {
+        lock.lock();
+        try {
+            Long size = segments.remove(seq);
+            if (size == null)
+                return;
+            totalSize -= size;
+            if (seq == activeSeq)
+                seal();
+            try {
+                Files.deleteIfExists(segmentPath(seq));
+            } catch (IOException e) {
+                log.warn("Не удалось удалить сегмент {}: {}", seq, e.getMessage());
+            }
+            if (seq == readSeq)
+                savePosition(-1, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void savePosition(long seq, long offset) {
+        lock.lock();
+        try {
+            readSeq = seq;
+            readOffset = offset;
+            Files.writeString(dir.resolve(POSITION_FILE), seq + ":" + offset, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить позицию выгрузки: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void loadPosition() throws IOException {
+        Path file = dir.resolve(POSITION_FILE);
+        if (!Files.exists(file))
+            return;
+        String[] parts = Files.readString(file, StandardCharsets.UTF_8).trim().split(":");
+        try {
+            readSeq = Long.parseLong(parts[0]);
+            readOffset = Long.parseLong(parts[1]);
+        } catch (RuntimeException e) {
+            log.warn("Файл позиции выгрузки повреждён, выгрузка начнётся с начала сегмента.");
+            readSeq = -1;
+            readOffset = 0;
+        }
+    }
+
+    private Path segmentPath(long seq) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private static Long parseSeq(String fileName) {
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX))
+            return null;
+        try {
+            return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0)
+                break;
+            total += read;
+        }
+        return total;
+    }
+
+    private record SegmentResult(int replayed, boolean completed) {
+    }
+}
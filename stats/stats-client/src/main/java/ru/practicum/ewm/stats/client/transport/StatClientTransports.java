@@ -0,0 +1,115 @@
+package ru.practicum.ewm.stats.client.transport;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import ru.practicum.ewm.stats.client.StatClientProperties;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Создаёт транспорт для {@link ru.practicum.ewm.stats.client.StatClient} по настройкам {@code stats-server.http.*}.
+ * Транспорты, которые держат соединения или потоки, реализуют {@link DisposableBean} и закрываются вместе
+ * с клиентом.
+ */
+@Slf4j
+public final class StatClientTransports {
+    private StatClientTransports() {
+    }
+
+    public static ClientHttpRequestFactory create(StatClientProperties.Http http) {
+        log.info("Транспорт StatClient: {}.", http.getTransport());
+        return switch (http.getTransport()) {
+            case SIMPLE -> simple(http);
+            case JDK -> jdk(http);
+            case APACHE -> apache(http);
+        };
+    }
+
+    private static ClientHttpRequestFactory simple(StatClientProperties.Http http) {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(http.getConnectTimeout());
+        factory.setReadTimeout(http.getReadTimeout());
+        return factory;
+    }
+
+    private static ClientHttpRequestFactory jdk(StatClientProperties.Http http) {
+        if (http.isGzip())
+            log.warn("Транспорт JDK не поддерживает gzip, настройка stats-server.http.gzip проигнорирована.");
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .connectTimeout(http.getConnectTimeout())
+                .version(http.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1);
+        ExecutorService executor = null;
+        if (http.isVirtualThreads()) {
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+            builder.executor(executor);
+        }
+        HttpClient client = builder.build();
+        JdkClientHttpRequestFactory factory = new ClosingJdkClientHttpRequestFactory(client, executor);
+        factory.setReadTimeout(http.getReadTimeout());
+        return factory;
+    }
+
+    private static ClientHttpRequestFactory apache(StatClientProperties.Http http) {
+        if (http.isHttp2())
+            log.warn("Транспорт APACHE работает только по HTTP/1.1, для HTTP/2 используйте транспорт JDK.");
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(http.getMaxConnections())
+                .setMaxConnPerRoute(http.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(http.getConnectTimeout().toMillis()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(http.getReadTimeout().toMillis()))
+                        .setTimeToLive(TimeValue.ofMilliseconds(http.getConnectionTtl().toMillis()))
+                        .build())
+                .build();
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(http.getReadTimeout().toMillis()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(http.getIdleTimeout().toMillis()));
+        if (!http.isGzip())
+            builder.disableContentCompression();
+        CloseableHttpClient client = builder.build();
+        return new HttpComponentsClientHttpRequestFactory(client);
+    }
+
+    /**
+     * JdkClientHttpRequestFactory не закрывает HttpClient, поток селектора клиента остался бы работать
+     * после остановки контекста.
+     */
+    private static final class ClosingJdkClientHttpRequestFactory extends JdkClientHttpRequestFactory
+            implements DisposableBean {
+        private final HttpClient client;
+        private final ExecutorService executor;
+
+        private ClosingJdkClientHttpRequestFactory(HttpClient client, ExecutorService executor) {
+            super(client);
+            this.client = client;
+            this.executor = executor;
+        }
+
+        @Override
+        public void destroy() {
+            client.close();
+            // исполнитель, переданный в HttpClient, клиент не останавливает
+            if (executor != null)
+                executor.close();
+        }
+    }
+}
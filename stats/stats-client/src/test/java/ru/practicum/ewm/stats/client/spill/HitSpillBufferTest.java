@@ -0,0 +1,113 @@
+package ru.practicum.ewm.stats.client.spill;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.ewm.stats.client.StatClientProperties;
+import ru.practicum.ewm.stats.dto.EndpointHitNewRequest;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitSpillBufferTest {
+    @TempDir
+    private Path dir;
+
+    @Test
+    void replayInOrderAndResumeAfterRestart() {
+        HitSpillBuffer buffer = new HitSpillBuffer(properties(DataSize.ofBytes(300), DataSize.ofMegabytes(1)));
+        for (int i = 1; i <= 10; i++)
+            buffer.append(hit("/events/" + i));
+        assertThat(buffer.isEmpty()).isFalse();
+
+        //stats-server принимает только 4 просмотра, затем снова недоступен
+        List<String> delivered = new ArrayList<>();
+        int replayed = buffer.replay(hit -> delivered.size() < 4 && delivered.add(hit.getUri()));
+        assertThat(replayed).isEqualTo(4);
+        assertThat(buffer.isEmpty()).isFalse();
+
+        //после перезапуска выгрузка продолжается с места остановки
+        HitSpillBuffer restarted = new HitSpillBuffer(properties(DataSize.ofBytes(300), DataSize.ofMegabytes(1)));
+        replayed = restarted.replay(hit -> delivered.add(hit.getUri()));
+        assertThat(replayed).isEqualTo(6);
+        assertThat(restarted.isEmpty()).isTrue();
+        assertThat(delivered).containsExactly("/events/1", "/events/2", "/events/3", "/events/4", "/events/5",
+                "/events/6", "/events/7", "/events/8", "/events/9", "/events/10");
+    }
+
+    @Test
+    void skipRecordWithWrongCrc() throws IOException {
+        HitSpillBuffer buffer = new HitSpillBuffer(properties(DataSize.ofMegabytes(1), DataSize.ofMegabytes(1)));
+        buffer.append(hit("/events/1"));
+        buffer.append(hit("/events/2"));
+
+        //повредить байт в теле первой записи
+        try (Stream<Path> files = Files.list(dir)) {
+            Path segment = files.filter(file -> file.toString().endsWith(".seg")).findFirst().orElseThrow();
+            try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+                file.seek(10);
+                int value = file.read();
+                file.seek(10);
+                file.write(value ^ 0xFF);
+            }
+        }
+
+        List<String> delivered = new ArrayList<>();
+        buffer.replay(hit -> delivered.add(hit.getUri()));
+        assertThat(delivered).containsExactly("/events/2");
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    void dropOldestSegmentsWhenMaxSizeExceeded() {
+        HitSpillBuffer buffer = new HitSpillBuffer(properties(DataSize.ofBytes(150), DataSize.ofBytes(450)));
+        for (int i = 1; i <= 20; i++)
+            buffer.append(hit("/events/" + i));
+        assertThat(buffer.size()).isLessThanOrEqualTo(450);
+
+        List<String> delivered = new ArrayList<>();
+        buffer.replay(hit -> delivered.add(hit.getUri()));
+        assertThat(delivered).isNotEmpty().doesNotContain("/events/1").endsWith("/events/20");
+    }
+
+    @Test
+    void createDirectoryOnFirstAppend() {
+        StatClientProperties properties = properties(DataSize.ofMegabytes(1), DataSize.ofMegabytes(1));
+        properties.getSpill().setDir(dir.resolve("spill"));
+        HitSpillBuffer buffer = new HitSpillBuffer(properties);
+        assertThat(dir.resolve("spill")).doesNotExist();
+
+        buffer.append(hit("/events/1"));
+        buffer.sync();
+        assertThat(dir.resolve("spill")).isDirectoryContaining(file -> file.toString().endsWith(".seg"));
+
+        List<String> delivered = new ArrayList<>();
+        new HitSpillBuffer(properties).replay(hit -> delivered.add(hit.getUri()));
+        assertThat(delivered).containsExactly("/events/1");
+    }
+
+    private StatClientProperties properties(DataSize segmentSize, DataSize maxSize) {
+        StatClientProperties properties = new StatClientProperties();
+        properties.getSpill().setDir(dir);
+        properties.getSpill().setSegmentSize(segmentSize);
+        properties.getSpill().setMaxSize(maxSize);
+        return properties;
+    }
+
+    private EndpointHitNewRequest hit(String uri) {
+        return EndpointHitNewRequest.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("127.0.0.1")
+                .timestamp(LocalDateTime.now().withNano(0))
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+package ru.practicum.ewm.stats.client.transport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.client.StatClient;
+import ru.practicum.ewm.stats.client.StatClientProperties;
+import ru.practicum.ewm.stats.client.spill.HitSpillBuffer;
+import ru.practicum.ewm.stats.dto.EndpointHitNewRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение транспортов StatClient на локальном HTTP-сервере.
+ * Не входит в обычный прогон тестов, запуск:
+ * {@code mvn test -pl stats/stats-client -Dtest=StatClientTransportBenchmark}.
+ * <p>
+ * Нагрузка соответствует публичному списку событий: на один запрос к /stats приходится
+ * {@link #HITS_PER_LISTING} запросов к /hit.
+ */
+class StatClientTransportBenchmark {
+    private static final int THREADS = 16;
+    private static final int LISTINGS_PER_THREAD = 200;
+    private static final int WARMUP_LISTINGS = 50;
+    private static final int HITS_PER_LISTING = 10;
+
+    private static HttpServer server;
+    private static ExecutorService serverExecutor;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hit", exchange -> respond(exchange, 201, null));
+        server.createContext("/stats", exchange -> respond(exchange, 200, "[]"));
+        serverExecutor = Executors.newFixedThreadPool(THREADS * 2);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void compareTransports() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-8s %12s %10s %10s", "transport", "requests/s", "p50, ms", "p99, ms"));
+        for (StatClientProperties.Transport transport : StatClientProperties.Transport.values()) {
+            StatClient client = createClient(transport);
+            try {
+                run(client, WARMUP_LISTINGS);
+                long started = System.nanoTime();
+                long[] latencies = run(client, LISTINGS_PER_THREAD);
+                double seconds = (System.nanoTime() - started) / 1e9;
+                Arrays.sort(latencies);
+                report.add(String.format("%-8s %12.0f %10.2f %10.2f", transport,
+                        latencies.length / seconds,
+                        latencies[latencies.length / 2] / 1e6,
+                        latencies[(int) (latencies.length * 0.99)] / 1e6));
+            } finally {
+                client.destroy();
+            }
+        }
+        report.forEach(System.out::println);
+        assertThat(report).hasSize(StatClientProperties.Transport.values().length + 1);
+    }
+
+    private long[] run(StatClient client, int listingsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[listingsPerThread * (HITS_PER_LISTING + 1)];
+                    int i = 0;
+                    for (int listing = 0; listing < listingsPerThread; listing++) {
+                        long start = System.nanoTime();
+                        client.getStats("2000-01-01 00:00:00", "2100-01-01 00:00:00", List.of("/events/1"), true);
+                        latencies[i++] = System.nanoTime() - start;
+                        for (int hit = 0; hit < HITS_PER_LISTING; hit++) {
+                            start = System.nanoTime();
+                            client.createHit(hit());
+                            latencies[i++] = System.nanoTime() - start;
+                        }
+                    }
+                    return latencies;
+                }));
+            }
+            List<long[]> results = new ArrayList<>();
+            for (Future<long[]> future : futures)
+                results.add(future.get());
+            return results.stream().flatMapToLong(Arrays::stream).toArray();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private StatClient createClient(StatClientProperties.Transport transport) {
+        StatClientProperties properties = new StatClientProperties();
+        properties.setUrl("http://localhost:" + server.getAddress().getPort());
+        properties.getHttp().setTransport(transport);
+        properties.getHttp().setMaxConnectionsPerRoute(THREADS);
+        properties.getSpill().setEnabled(false);
+        return new StatClient(properties, new HitSpillBuffer(properties));
+    }
+
+    private static EndpointHitNewRequest hit() {
+        return EndpointHitNewRequest.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("127.0.0.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+}